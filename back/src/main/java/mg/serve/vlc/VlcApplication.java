@@ -2,9 +2,11 @@ package mg.serve.vlc;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import javax.annotation.PostConstruct;
 
 @SpringBootApplication
+@EnableScheduling
 public class VlcApplication {
 
 	public static void main(String[] args) {
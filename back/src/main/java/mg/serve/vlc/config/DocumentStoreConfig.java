@@ -0,0 +1,55 @@
+package mg.serve.vlc.config;
+
+import mg.serve.vlc.repository.store.CountingDocumentStore;
+import mg.serve.vlc.repository.store.DocumentStore;
+import mg.serve.vlc.repository.store.FirebaseUserAccounts;
+import mg.serve.vlc.repository.store.FirestoreDocumentStore;
+import mg.serve.vlc.repository.store.InMemoryDocumentStore;
+import mg.serve.vlc.repository.store.InMemoryUserAccounts;
+import mg.serve.vlc.repository.store.UserAccounts;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Remote side of the sync services: Firestore and Firebase Auth (app.firestore.store=firestore, the default), or
+ * the in-memory stand-ins (app.firestore.store=memory) with optional simulated latency and write failures.
+ * The store is wrapped in a CountingDocumentStore so the sync benchmark can report Firestore ops.
+ */
+@Configuration
+public class DocumentStoreConfig {
+    private static final Logger logger = LoggerFactory.getLogger(DocumentStoreConfig.class);
+
+    @Value("${app.firestore.store:firestore}")
+    private String store;
+
+    @Value("${app.firestore.memory.latency-ms:0}")
+    private long latencyMs;
+
+    @Value("${app.firestore.memory.failure-rate:0}")
+    private double failureRate;
+
+    @Value("${app.firestore.memory.seed:42}")
+    private long seed;
+
+    @Bean
+    public DocumentStore documentStore() {
+        if (memory()) {
+            logger.warn("Using the in-memory document store (latency {} ms, failure rate {})", latencyMs, failureRate);
+            return new CountingDocumentStore(new InMemoryDocumentStore().withLatency(latencyMs).withFailureRate(failureRate, seed));
+        }
+        return new CountingDocumentStore(new FirestoreDocumentStore());
+    }
+
+    @Bean
+    public UserAccounts userAccounts() {
+        return memory() ? new InMemoryUserAccounts() : new FirebaseUserAccounts();
+    }
+
+    private boolean memory() {
+        return "memory".equalsIgnoreCase(store);
+    }
+}
@@ -42,7 +42,8 @@ public class SwaggerConfig {
                     "/points", "/points/summary",
                     "/points/list", "/points/{id}",
                     "/points/in-progress" , "/points/work-delay",
-                    "/points/detailled"
+                    "/points/detailled",
+                    "/points/within", "/points/near", "/points/clusters"
                 )
                 .build();
     }
@@ -2,9 +2,16 @@ package mg.serve.vlc.controller;
 
 import mg.serve.vlc.controller.response.ApiResponse;
 import mg.serve.vlc.model.Config;
+import mg.serve.vlc.dto.RepriceJobDTO;
+import mg.serve.vlc.security.JwtService;
+import mg.serve.vlc.service.PriceTimeline;
+import mg.serve.vlc.service.RepriceJobService;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
 import mg.serve.vlc.util.RepositoryProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -15,25 +22,21 @@ import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/prices")
+@RequiredArgsConstructor
 public class PriceController {
     private static final Logger logger = LoggerFactory.getLogger(PriceController.class);
-    private static final String PRICE_KEY = "PRICE";
+
+    @Autowired
+    private final JwtService jwtService;
+
+    @Autowired
+    private final RepriceJobService repriceJobService;
+    private static final String PRICE_KEY = PriceTimeline.PRICE_KEY;
 
     @GetMapping("/current")
     public ApiResponse getCurrentPrice() {
         try {
-            List<Config> prices = RepositoryProvider.configRepository.findAll()
-                    .stream()
-                    .filter(c -> PRICE_KEY.equals(c.getKey()))
-                    .collect(Collectors.toList());
-
-            if (prices.isEmpty()) {
-                return new ApiResponse("error", null, "No price found");
-            }
-
-            Config latest = prices.stream()
-                    .max((a, b) -> a.getDate().compareTo(b.getDate()))
-                    .orElse(null);
+            Config latest = PriceTimeline.latest();
 
             if (latest == null) {
                 return new ApiResponse("error", null, "No price found");
@@ -54,36 +57,16 @@ public class PriceController {
         if (referenceDate == null) {
             throw new Exception("Reference date cannot be null");
         }
-        
-        List<Config> prices = RepositoryProvider.configRepository.findAll()
-                .stream()
-                .filter(c -> c.getKey() != null && c.getKey().equalsIgnoreCase("PRICE"))
-                .collect(Collectors.toList());
-
-        if (prices.isEmpty()) {
-            throw new Exception("No price found in database");
-        }
 
-        // Find latest price on or before the reference date by sorting
-        List<Config> validPrices = prices.stream()
-                .filter(c -> c.getDate() != null && !c.getDate().isAfter(referenceDate))
-                .sorted((a, b) -> a.getDate().compareTo(b.getDate()))
-                .collect(Collectors.toList());
-
-        if (validPrices.isEmpty()) {
-            throw new Exception("No price available for the specified date. The earliest price available is from " + 
-                prices.stream()
-                    .map(Config::getDate)
-                    .min((a, b) -> a.compareTo(b))
-                    .map(Object::toString)
-                    .orElse("unknown"));
-        }
-
-        // Take the last one (latest date on or before reference date)
-        Config priceAtDate = validPrices.get(validPrices.size() - 1);
+        // Latest price on or before the reference date (floorEntry on the cached timeline)
+        Config priceAtDate = PriceTimeline.priceAt(referenceDate);
 
         if (priceAtDate == null) {
-            throw new Exception("No price found for the specified date");
+            Config earliest = PriceTimeline.earliest();
+            if (earliest == null) {
+                throw new Exception("No price found in database");
+            }
+            throw new Exception("No price available for the specified date. The earliest price available is from " + earliest.getDate());
         }
 
         return priceAtDate;
@@ -109,11 +92,7 @@ public class PriceController {
     @GetMapping("/history")
     public ApiResponse getPriceHistory() {
         try {
-            List<Config> prices = RepositoryProvider.configRepository.findAll()
-                    .stream()
-                    .filter(c -> PRICE_KEY.equals(c.getKey()))
-                    .sorted((a, b) -> b.getDate().compareTo(a.getDate()))
-                    .collect(Collectors.toList());
+            List<Config> prices = PriceTimeline.history();
 
             List<Map<String, Object>> history = prices.stream()
                     .map(c -> {
@@ -149,6 +128,7 @@ public class PriceController {
             config.setDate(LocalDateTime.now());
 
             Config saved = RepositoryProvider.configRepository.save(config);
+            PriceTimeline.invalidate();
             Map<String, Object> resultMap = new HashMap<>();
             resultMap.put("id", saved.getId());
             resultMap.put("price", price);
@@ -162,4 +142,31 @@ public class PriceController {
             return new ApiResponse("error", null, "Error: " + e.getMessage());
         }
     }
+
+    /**
+     * Admin only: recompute the budget of every live, unfinished point with this price (which must be the latest
+     * one), in the background. Poll GET /prices/reprice/{jobId} for progress.
+     */
+    @PostMapping("/{id}/reprice")
+    @SecurityRequirement(name = "bearerAuth")
+    public ApiResponse reprice(@PathVariable("id") Long id, @RequestHeader("Authorization") String authHeader) {
+        try {
+            jwtService.throwIfUserNotAdmin(authHeader);
+            RepriceJobDTO job = repriceJobService.start(id);
+            return new ApiResponse("success", job, "Reprice job started");
+        } catch (Exception e) {
+            logger.error("Error starting reprice job", e);
+            return new ApiResponse("error", null, "Error: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/reprice/{jobId}")
+    @SecurityRequirement(name = "bearerAuth")
+    public ApiResponse getRepriceJob(@PathVariable("jobId") String jobId) {
+        RepriceJobDTO job = repriceJobService.get(jobId);
+        if (job == null) {
+            return new ApiResponse("error", null, "Job not found");
+        }
+        return new ApiResponse("success", job, null);
+    }
 }
@@ -6,13 +6,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import mg.serve.vlc.controller.response.ApiResponse;
 import mg.serve.vlc.controller.response.SyncStatistics;
 import mg.serve.vlc.exception.BusinessLogicException;
-import mg.serve.vlc.service.UserSyncService;
-import mg.serve.vlc.service.PointSyncService;
-import mg.serve.vlc.service.DashboardSyncService;
+import mg.serve.vlc.service.SyncBenchmarkService;
+import mg.serve.vlc.service.SyncJobService;
+import mg.serve.vlc.dto.SyncBenchmarkDTO;
+import mg.serve.vlc.dto.SyncJobDTO;
 import mg.serve.vlc.model.user.*;
 import mg.serve.vlc.security.JwtService;
 
@@ -22,149 +25,159 @@ public class SyncController {
     private static final Logger logger = LoggerFactory.getLogger(SyncController.class);
 
     @Autowired
-    private UserSyncService userSyncService;
-
-    @Autowired
-    private PointSyncService pointSyncService;
+    private SyncJobService syncJobService;
 
     @Autowired
-    private DashboardSyncService dashboardSyncService;
+    private SyncBenchmarkService syncBenchmarkService;
 
     @Autowired
     private JwtService jwtService;
 
 
+    /**
+     * Synchronous full sync, kept for existing clients; it runs as (or joins) a sync job and waits for it.
+     * Prefer POST /sync/jobs for large syncs.
+     */
     @PostMapping("/all")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<ApiResponse> syncAll(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<ApiResponse> syncAll(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(name = "full", defaultValue = "false") boolean full // full scan instead of delta pull (recovery)
+    ) {
         try {
             jwtService.throwIfUserNotAdmin(authHeader);
 
-            SyncStatistics aggregatedStats = new SyncStatistics();
-
-            // Sync users
-            ApiResponse userResponse = userSyncService.syncUsers();
-            if ("success".equals(userResponse.getStatus()) && userResponse.getData() instanceof SyncStatistics) {
-                SyncStatistics userStats = (SyncStatistics) userResponse.getData();
-                aggregatedStats.setUsersCreatedLocally(userStats.getUsersCreatedLocally());
-                aggregatedStats.setUsersPushedToFirestore(userStats.getUsersPushedToFirestore());
-                aggregatedStats.setUsersUpdatedLocally(userStats.getUsersUpdatedLocally());
-                aggregatedStats.setUsersUpdatedInFirestore(userStats.getUsersUpdatedInFirestore());
-                aggregatedStats.setErrorMessages(userStats.getErrorMessages());
-                aggregatedStats.setTotalErrors(userStats.getTotalErrors());
+            SyncJobDTO job = syncJobService.await(syncJobService.start(full));
+            if ("FAILED".equals(job.status)) {
+                throw new BusinessLogicException(job.error);
             }
+            SyncStatistics aggregatedStats = job.stats;
 
-            // Sync user historic
-            ApiResponse userHistoricResponse = userSyncService.syncUserHistoric();
-            if ("success".equals(userHistoricResponse.getStatus()) && userHistoricResponse.getData() instanceof SyncStatistics) {
-                SyncStatistics userHistoricStats = (SyncStatistics) userHistoricResponse.getData();
-                aggregatedStats.setHistoricCreatedLocally(userHistoricStats.getHistoricCreatedLocally());
-                aggregatedStats.setHistoricPushedToFirestore(userHistoricStats.getHistoricPushedToFirestore());
-                aggregatedStats.setHistoricUpdatedLocally(userHistoricStats.getHistoricUpdatedLocally());
-                aggregatedStats.setHistoricUpdatedInFirestore(userHistoricStats.getHistoricUpdatedInFirestore());
-                // Merge errors
-                for (String error : userHistoricStats.getErrorMessages()) {
-                    aggregatedStats.addError(error);
-                }
-            }
+            return ResponseEntity.ok(new ApiResponse("success", aggregatedStats, aggregatedStats.generateSummaryMessage()));
+        } catch (Exception e) {
+            logger.error("Sync all failed", e);
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, "Sync all failed: " + e.getMessage()));
+        }
+    }
 
-            // Sync points
-            ApiResponse pointResponse = pointSyncService.syncPoints();
-            if ("success".equals(pointResponse.getStatus()) && pointResponse.getData() instanceof SyncStatistics) {
-                SyncStatistics pointStats = (SyncStatistics) pointResponse.getData();
-                aggregatedStats.setPointsCreatedLocally(pointStats.getPointsCreatedLocally());
-                aggregatedStats.setPointsPushedToFirestore(pointStats.getPointsPushedToFirestore());
-                aggregatedStats.setPointsUpdatedLocally(pointStats.getPointsUpdatedLocally());
-                aggregatedStats.setPointsUpdatedInFirestore(pointStats.getPointsUpdatedInFirestore());
-                // Merge errors
-                for (String error : pointStats.getErrorMessages()) {
-                    aggregatedStats.addError(error);
-                }
-            }
+    /**
+     * Starts the full sync in the background and returns its job immediately; a running or queued job of the same
+     * mode is returned instead of starting a second one. Poll GET /sync/jobs/{id} for per-phase progress.
+     */
+    @PostMapping("/jobs")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<ApiResponse> startSyncJob(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(name = "full", defaultValue = "false") boolean full
+    ) {
+        try {
+            jwtService.throwIfUserNotAdmin(authHeader);
+            SyncJobDTO job = syncJobService.start(full);
+            return ResponseEntity.accepted().body(new ApiResponse("success", job, "Sync job " + job.status.toLowerCase()));
+        } catch (Exception e) {
+            logger.error("Failed to start sync job", e);
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
+        }
+    }
 
-            // Sync point historic
-            ApiResponse pointHistoricResponse = pointSyncService.syncPointHistoric();
-            if ("success".equals(pointHistoricResponse.getStatus()) && pointHistoricResponse.getData() instanceof SyncStatistics) {
-                SyncStatistics pointHistoricStats = (SyncStatistics) pointHistoricResponse.getData();
-                aggregatedStats.setPointHistoricCreatedLocally(pointHistoricStats.getPointHistoricCreatedLocally());
-                aggregatedStats.setPointHistoricPushedToFirestore(pointHistoricStats.getPointHistoricPushedToFirestore());
-                aggregatedStats.setPointHistoricUpdatedLocally(pointHistoricStats.getPointHistoricUpdatedLocally());
-                aggregatedStats.setPointHistoricUpdatedInFirestore(pointHistoricStats.getPointHistoricUpdatedInFirestore());
-                // Merge errors
-                for (String error : pointHistoricStats.getErrorMessages()) {
-                    aggregatedStats.addError(error);
-                }
+    @GetMapping("/jobs/{id}")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<ApiResponse> getSyncJob(
+            @RequestHeader("Authorization") String authHeader,
+            @PathVariable("id") String id
+    ) {
+        try {
+            jwtService.throwIfUserNotAdmin(authHeader);
+            SyncJobDTO job = syncJobService.get(id);
+            if (job == null) {
+                return ResponseEntity.badRequest().body(new ApiResponse("error", null, "Job not found"));
             }
+            return ResponseEntity.ok(new ApiResponse("success", job, null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
+        }
+    }
 
-            // Sync dashboard (create/update a Firestore document named 'stats')
-           
-            ApiResponse dashboardResp = dashboardSyncService.syncDashboard();
-            if ("success".equals(dashboardResp.getStatus()) && dashboardResp.getData() instanceof SyncStatistics) {
-                SyncStatistics dashStats = (SyncStatistics) dashboardResp.getData();
-                aggregatedStats.setDashboardSnapshotsCreatedLocally(dashStats.getDashboardSnapshotsCreatedLocally());
-                aggregatedStats.setDashboardSnapshotsPushedToFirestore(dashStats.getDashboardSnapshotsPushedToFirestore());
-                aggregatedStats.setDashboardSnapshotsUpdatedLocally(dashStats.getDashboardSnapshotsUpdatedLocally());
-                aggregatedStats.setDashboardSnapshotsUpdatedInFirestore(dashStats.getDashboardSnapshotsUpdatedInFirestore());
-                for (String err : dashStats.getErrorMessages()) {
-                    aggregatedStats.addError(err);
-                }
-            }
-            
+    /**
+     * Loads a synthetic data set (local database, plus the in-memory store when app.firestore.store=memory) for
+     * POST /sync/benchmark. Only with app.sync.benchmark.enabled.
+     */
+    @PostMapping("/benchmark/dataset")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<ApiResponse> loadBenchmarkDataset(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(name = "seed", defaultValue = "42") long seed,
+            @RequestParam(name = "users", defaultValue = "1000") int users,
+            @RequestParam(name = "points", defaultValue = "10000") int points
+    ) {
+        try {
+            jwtService.throwIfUserNotAdmin(authHeader);
+            return ResponseEntity.ok(new ApiResponse("success", syncBenchmarkService.loadDataset(seed, users, points), "Data set loaded"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
+        }
+    }
 
-            return ResponseEntity.ok(new ApiResponse("success", aggregatedStats, aggregatedStats.generateSummaryMessage()));
+    /**
+     * Runs every sync phase in turn and reports wall time, Firestore ops, SQL statements and heap use per phase.
+     */
+    @PostMapping("/benchmark")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<ApiResponse> runBenchmark(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(name = "full", defaultValue = "false") boolean full
+    ) {
+        try {
+            jwtService.throwIfUserNotAdmin(authHeader);
+            SyncBenchmarkDTO result = syncBenchmarkService.run(full);
+            return ResponseEntity.ok(new ApiResponse("success", result, "Sync benchmark done in " + result.wallMs + " ms"));
         } catch (Exception e) {
-            logger.error("Sync all failed", e);
-            return ResponseEntity.badRequest().body(new ApiResponse("error", null, "Sync all failed: " + e.getMessage()));
+            logger.error("Sync benchmark failed", e);
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
         }
     }
 
+    /*
+     * Single-phase syncs: each runs as a one-phase sync job (see SyncJobService) and waits for it, so it is queued
+     * behind a running background sync instead of racing it.
+     */
     @PostMapping("/users")
-    public ResponseEntity<ApiResponse> syncUsers() {
-        ApiResponse response = userSyncService.syncUsers();
-        if ("success".equals(response.getStatus())) {
-            return ResponseEntity.ok(response);
-        } else {
-            return ResponseEntity.badRequest().body(response);
-        }
+    public ResponseEntity<ApiResponse> syncUsers(@RequestParam(name = "full", defaultValue = "false") boolean full) {
+        return runPhase("users", full);
     }
 
     @PostMapping("/userHistoric")
     public ResponseEntity<ApiResponse> syncUserHistoric() {
-        ApiResponse response = userSyncService.syncUserHistoric();
-        if ("success".equals(response.getStatus())) {
-            return ResponseEntity.ok(response);
-        } else {
-            return ResponseEntity.badRequest().body(response);
-        }
+        return runPhase("userHistoric", false);
     }
 
     @PostMapping("/points")
-    public ResponseEntity<ApiResponse> syncPoints() {
-        ApiResponse response = pointSyncService.syncPoints();
-        if ("success".equals(response.getStatus())) {
-            return ResponseEntity.ok(response);
-        } else {
-            return ResponseEntity.badRequest().body(response);
-        }
+    public ResponseEntity<ApiResponse> syncPoints(@RequestParam(name = "full", defaultValue = "false") boolean full) {
+        return runPhase("points", full);
     }
 
     @PostMapping("/pointHistoric")
-    public ResponseEntity<ApiResponse> syncPointHistoric() {
-        ApiResponse response = pointSyncService.syncPointHistoric();
-        if ("success".equals(response.getStatus())) {
-            return ResponseEntity.ok(response);
-        } else {
-            return ResponseEntity.badRequest().body(response);
-        }
+    public ResponseEntity<ApiResponse> syncPointHistoric(@RequestParam(name = "full", defaultValue = "false") boolean full) {
+        return runPhase("pointHistoric", full);
     }
 
     @PostMapping("/dashboard")
     public ResponseEntity<ApiResponse> syncDashboard() {
-        ApiResponse response = dashboardSyncService.syncDashboard();
-        if ("success".equals(response.getStatus())) {
-            return ResponseEntity.ok(response);
-        } else {
-            return ResponseEntity.badRequest().body(response);
+        return runPhase("dashboard", false);
+    }
+
+    private ResponseEntity<ApiResponse> runPhase(String name, boolean full) {
+        try {
+            SyncJobDTO job = syncJobService.await(syncJobService.start(full, List.of(name)));
+            SyncJobDTO.Phase phase = job.phases.get(0);
+            if (!"DONE".equals(phase.status)) {
+                String error = phase.error != null ? phase.error : "Sync " + name + " failed: " + job.error;
+                return ResponseEntity.badRequest().body(new ApiResponse("error", null, error));
+            }
+            return ResponseEntity.ok(new ApiResponse("success", phase.stats, phase.stats.generateSummaryMessage()));
+        } catch (Exception e) {
+            logger.error("Sync {} failed", name, e);
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, "Sync " + name + " failed: " + e.getMessage()));
         }
     }
 }
\ No newline at end of file
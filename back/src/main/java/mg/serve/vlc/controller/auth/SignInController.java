@@ -6,6 +6,7 @@ import mg.serve.vlc.exception.BusinessLogicException;
 import mg.serve.vlc.model.user.User;
 import mg.serve.vlc.security.*;
 import mg.serve.vlc.service.FirestoreUserService;
+import mg.serve.vlc.util.FirestoreFutures;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
 import org.springframework.http.ResponseEntity;
@@ -14,6 +15,8 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/auth")
@@ -74,36 +77,36 @@ public class SignInController {
 
     @PostMapping("/reset-block/{fbId}")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<ApiResponse> resetBlock(@PathVariable String fbId, @RequestHeader("Authorization") String authHeader) {
+    public CompletableFuture<ResponseEntity<ApiResponse>> resetBlock(@PathVariable String fbId, @RequestHeader("Authorization") String authHeader) {
         try {
             // Control - user must be admin
             User userFrom = jwtService.getUserFromAuthHeader(authHeader);
             if (!userFrom.isAdmin()) {
                 throw new BusinessLogicException("Only admins can reset user blocks");
             }
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage())));
+        }
 
-            // Get user from Firestore
-            Map<String, Object> userToReset = firestoreUserService.getUserByFbId(fbId);
-            if (userToReset == null) {
-                throw new BusinessLogicException("User not found");
-            }
-
-            // Check if user is blocked
-            Object attemptObj = userToReset.get("attempt");
-            long attempt = attemptObj instanceof Long ? (Long) attemptObj : 0L;
-            if (attempt < 3) {
-                throw new BusinessLogicException("User is not blocked");
-            }
+        // Get user from Firestore, then reset the block, without holding the request thread in between
+        return firestoreUserService.getUserByFbIdAsync(fbId)
+            .thenCompose(userToReset -> {
+                if (userToReset == null) {
+                    throw new CompletionException(new BusinessLogicException("User not found"));
+                }
 
-            // Reset block in Firestore
-            firestoreUserService.deblockUser(fbId);
+                // Check if user is blocked
+                Object attemptObj = userToReset.get("attempt");
+                long attempt = attemptObj instanceof Long ? (Long) attemptObj : 0L;
+                if (attempt < 3) {
+                    throw new CompletionException(new BusinessLogicException("User is not blocked"));
+                }
 
-            return ResponseEntity.ok(new ApiResponse("success", null, "User block reset successfully"));
-        } catch (BusinessLogicException e) {
-            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
-        }
+                // Reset block in Firestore
+                return firestoreUserService.deblockUserAsync(fbId);
+            })
+            .thenApply(done -> ResponseEntity.ok(new ApiResponse("success", null, "User block reset successfully")))
+            .exceptionally(e -> ResponseEntity.badRequest().body(new ApiResponse("error", null, FirestoreFutures.unwrap(e).getMessage())));
     }
 
     @GetMapping("/me")
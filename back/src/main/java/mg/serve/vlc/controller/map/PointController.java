@@ -2,7 +2,9 @@ package mg.serve.vlc.controller.map;
 
 import mg.serve.vlc.controller.PriceController;
 import mg.serve.vlc.controller.response.ApiResponse;
+import mg.serve.vlc.dto.PointClusterDTO;
 import mg.serve.vlc.dto.PointDTO;
+import mg.serve.vlc.dto.PointListItemDTO;
 import mg.serve.vlc.dto.PointUpdateDTO;
 import mg.serve.vlc.dto.PointsSummaryDTO;
 import mg.serve.vlc.dto.WorkTreatmentDTO;
@@ -16,12 +18,16 @@ import mg.serve.vlc.repository.PointTypeRepository;
 import mg.serve.vlc.repository.FactoryRepository;
 import mg.serve.vlc.repository.pointState.PointStateRepository;
 import mg.serve.vlc.security.JwtService;
+import mg.serve.vlc.service.PointsSummaryService;
+import mg.serve.vlc.service.WorkDelayAggregator;
 import mg.serve.vlc.util.RepositoryProvider;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -37,76 +43,245 @@ public class PointController {
     @Autowired
     private final JwtService jwtService;
 
+    @Autowired
+    private final WorkDelayAggregator workDelayAggregator;
+
+    @Autowired
+    private final PointsSummaryService pointsSummaryService;
+
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 5000;
+    private static final double MAX_RADIUS_METERS = 50_000;
+    private static final int MAX_ZOOM = 22;
+    private static final int CLUSTER_CELLS_PER_TILE = 8;
+    public static final String NEXT_CURSOR_HEADER = "X-Next-After-Id";
+    // Set to true when /near had more points within the radius than the limit
+    public static final String TRUNCATED_HEADER = "X-Truncated";
+
     /**
-     * Liste complète des points.
-     * Optionnel : filtrer par point_state_id et/ou point_type_id.
+     * Liste paginée des points (keyset sur l'id).
+     * Optionnel : filtrer par point_state_id, point_type_id, level, date_from/date_to, updated_since.
+     * Page suivante : rappeler avec after_id = valeur du header X-Next-After-Id (absent sur la dernière page).
      */
     @GetMapping("")
     @Transactional(Transactional.TxType.REQUIRES_NEW)
     public ResponseEntity<ApiResponse> listPoints(
             @RequestParam(name = "point_state_id", required = false) Integer pointStateId,
-            @RequestParam(name = "point_type_id", required = false) Integer pointTypeId
+            @RequestParam(name = "point_type_id", required = false) Integer pointTypeId,
+            @RequestParam(name = "level", required = false) Integer level,
+            @RequestParam(name = "date_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateFrom,
+            @RequestParam(name = "date_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTo,
+            @RequestParam(name = "updated_since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince,
+            @RequestParam(name = "after_id", required = false) Integer afterId,
+            @RequestParam(name = "limit", required = false) Integer limit
     ) {
         try {
-            // Base list = non-deleted points (deletedAt IS NULL)
-            List<Point> points = RepositoryProvider.jpaPointRepository.findByDeletedAtIsNull();
-
-            // Optional filters in-memory
-            if (pointStateId != null) {
-                points = points.stream()
-                        .filter(p -> p.getPointState() != null && p.getPointState().getId().equals(pointStateId))
-                        .toList();
+            int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+            // Filters and cursor are applied by the database, only one page is loaded
+            List<PointListItemDTO> points = RepositoryProvider.jpaPointRepository.findLivePage(
+                    afterId, pointStateId, pointTypeId, level, dateFrom, dateTo, updatedSince,
+                    PageRequest.of(0, pageSize));
+
+            List<Map<String, Object>> payload = toListPayload(points);
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (points.size() == pageSize) {
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(points.get(points.size() - 1).id));
             }
-            if (pointTypeId != null) {
-                points = points.stream()
-                        .filter(p -> p.getPointType() != null && p.getPointType().getId().equals(pointTypeId))
-                        .toList();
+            return response.body(new ApiResponse("success", payload, null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
+        }
+    }
+
+    /**
+     * Points inside the viewport: bbox=minLon,minLat,maxLon,maxLat (WGS84), paginated like GET /points
+     * (after_id, X-Next-After-Id header).
+     */
+    @GetMapping("/within")
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public ResponseEntity<ApiResponse> listPointsWithin(
+            @RequestParam(name = "bbox") String bbox,
+            @RequestParam(name = "after_id", required = false) Integer afterId,
+            @RequestParam(name = "limit", required = false) Integer limit
+    ) {
+        try {
+            double[] box = parseBbox(bbox);
+            int pageSize = clampSpatialLimit(limit);
+            List<Integer> ids = RepositoryProvider.jpaPointRepository.findLiveIdsWithin(box[0], box[1], box[2], box[3],
+                    afterId != null ? afterId : 0, pageSize);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (ids.size() == pageSize) {
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(ids.get(ids.size() - 1)));
             }
+            return response.body(new ApiResponse("success", toListPayload(loadListItems(ids)), null));
+        } catch (BusinessLogicException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
+        }
+    }
 
-            List<Map<String, Object>> payload = new ArrayList<>();
-            for (Point p : points) {
-                org.locationtech.jts.geom.Point coords = p.getCoordinates();
-                Double lon = null;
-                Double lat = null;
-                if (coords != null) {
-                    lon = coords.getX();
-                    lat = coords.getY();
-                }
-             
-
-                String stateLabel = p.getPointState() != null ? p.getPointState().getLabel() : null;
-                Double stateProgress = p.getPointState() != null ? p.getPointState().getProgress() : null;
-                String typeLabel = p.getPointType() != null ? p.getPointType().getLabel() : null;
-                List<Integer> factoryIds = p.getFactories().stream().map(f -> f.getId()).collect(Collectors.toList());
-                String factoryLabels = p.getFactories().stream().map(f -> f.getLabel()).collect(Collectors.joining(", "));
-
-                Map<String, Object> map = new HashMap<>();
-                map.put("id", p.getId());
-                map.put("date", p.getDate());
-                map.put("surface", p.getSurface());
-                map.put("budget", p.getBudget());
-                map.put("lat", lat);
-                map.put("lon", lon);
-                map.put("lon", lon);
-                map.put("level", p.getLevel());
-                map.put("stateId", p.getPointState() != null ? p.getPointState().getId() : null);
-                map.put("stateLabel", stateLabel);
-                map.put("stateProgress", stateProgress);
-                map.put("typeId", p.getPointType() != null ? p.getPointType().getId() : null);
-                map.put("typeLabel", typeLabel);
-                map.put("factoryIds", factoryIds);
-                map.put("factoryLabels", factoryLabels); // Lord forgive me
-                map.put("updatedAt", p.getUpdatedAt());
-
-                payload.add(map);
+    /**
+     * Points within radius meters of (lat, lon), nearest first. Nearest-first cannot be paged by id: when more
+     * points than limit are in the radius, the nearest ones are returned with X-Truncated: true.
+     */
+    @GetMapping("/near")
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public ResponseEntity<ApiResponse> listPointsNear(
+            @RequestParam(name = "lat") Double lat,
+            @RequestParam(name = "lon") Double lon,
+            @RequestParam(name = "radius") Double radius,
+            @RequestParam(name = "limit", required = false) Integer limit
+    ) {
+        try {
+            if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+                throw new BusinessLogicException("Invalid coordinates");
+            }
+            if (radius <= 0 || radius > MAX_RADIUS_METERS) {
+                throw new BusinessLogicException("Radius must be between 0 and " + (int) MAX_RADIUS_METERS + " meters");
             }
+            int pageSize = clampSpatialLimit(limit);
+            List<Integer> ids = RepositoryProvider.jpaPointRepository.findLiveIdsNear(lon, lat, radius, pageSize + 1);
+            boolean truncated = ids.size() > pageSize;
+            if (truncated) ids = ids.subList(0, pageSize);
+            return ResponseEntity.ok()
+                    .header(TRUNCATED_HEADER, String.valueOf(truncated))
+                    .body(new ApiResponse("success", toListPayload(loadListItems(ids)), null));
+        } catch (BusinessLogicException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
+        }
+    }
 
-            return ResponseEntity.ok(new ApiResponse("success", payload, null));
+    /**
+     * Points of the viewport grouped on a grid whose cell size follows the zoom level
+     * (CLUSTER_CELLS_PER_TILE cells across a web-mercator tile). The cells are doubled until the viewport spans at
+     * most MAX_PAGE_SIZE of them, so every point is counted in some cluster, at any zoom and viewport size.
+     */
+    @GetMapping("/clusters")
+    public ResponseEntity<ApiResponse> listPointClusters(
+            @RequestParam(name = "bbox") String bbox,
+            @RequestParam(name = "zoom") Integer zoom
+    ) {
+        try {
+            if (zoom < 0 || zoom > MAX_ZOOM) {
+                throw new BusinessLogicException("Zoom must be between 0 and " + MAX_ZOOM);
+            }
+            double[] box = parseBbox(bbox);
+            double gridSize = clusterGridSize(box, 360.0 / Math.pow(2, zoom) / CLUSTER_CELLS_PER_TILE);
+
+            List<PointClusterDTO> clusters = new ArrayList<>();
+            for (Object[] row : RepositoryProvider.jpaPointRepository.findLiveClustersWithin(box[0], box[1], box[2], box[3], gridSize, MAX_PAGE_SIZE)) {
+                clusters.add(new PointClusterDTO(
+                        ((Number) row[0]).longValue(),
+                        row[2] != null ? ((Number) row[2]).doubleValue() : null,
+                        row[1] != null ? ((Number) row[1]).doubleValue() : null,
+                        ((Number) row[3]).doubleValue(),
+                        ((Number) row[4]).doubleValue(),
+                        row[5] != null ? ((Number) row[5]).intValue() : null,
+                        row[6] != null ? ((Number) row[6]).intValue() : null
+                ));
+            }
+            return ResponseEntity.ok(new ApiResponse("success", clusters, null));
+        } catch (BusinessLogicException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
         }
     }
 
+    /**
+     * Smallest power-of-two multiple of gridSize at which the bbox spans at most MAX_PAGE_SIZE grid cells.
+     * ST_SnapToGrid rounds to the nearest multiple, so a span of w degrees touches at most w / gridSize + 2 cells.
+     */
+    private static double clusterGridSize(double[] box, double gridSize) {
+        double width = box[2] - box[0];
+        double height = box[3] - box[1];
+        while ((width / gridSize + 2) * (height / gridSize + 2) > MAX_PAGE_SIZE) {
+            gridSize *= 2;
+        }
+        return gridSize;
+    }
+
+    private double[] parseBbox(String bbox) throws BusinessLogicException {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            throw new BusinessLogicException("bbox must be minLon,minLat,maxLon,maxLat");
+        }
+        double[] box = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                box[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new BusinessLogicException("bbox must be minLon,minLat,maxLon,maxLat");
+        }
+        if (box[0] > box[2] || box[1] > box[3]) {
+            throw new BusinessLogicException("bbox min values must be lower than max values");
+        }
+        return box;
+    }
+
+    private int clampSpatialLimit(Integer limit) {
+        return limit == null ? MAX_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Loads the list projection for the given ids, keeping the order of the ids.
+     */
+    private List<PointListItemDTO> loadListItems(List<Integer> ids) {
+        if (ids.isEmpty()) return Collections.emptyList();
+        Map<Integer, PointListItemDTO> byId = new HashMap<>();
+        for (PointListItemDTO dto : RepositoryProvider.jpaPointRepository.findListItemsByIds(ids)) {
+            byId.put(dto.id, dto);
+        }
+        return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Builds the per-point maps returned by the listing endpoints. Factories of all points are fetched in one query.
+     */
+    private List<Map<String, Object>> toListPayload(List<PointListItemDTO> points) {
+        Map<Integer, List<Factory>> factoriesByPoint = new HashMap<>();
+        if (!points.isEmpty()) {
+            List<Integer> ids = points.stream().map(p -> p.id).collect(Collectors.toList());
+            for (Object[] row : RepositoryProvider.jpaPointRepository.findFactoryRowsByPointIds(ids)) {
+                Factory f = new Factory((Integer) row[1], (String) row[2], null);
+                factoriesByPoint.computeIfAbsent((Integer) row[0], k -> new ArrayList<>()).add(f);
+            }
+        }
+
+        List<Map<String, Object>> payload = new ArrayList<>();
+        for (PointListItemDTO p : points) {
+            List<Factory> factories = factoriesByPoint.getOrDefault(p.id, Collections.emptyList());
+            List<Integer> factoryIds = factories.stream().map(f -> f.getId()).collect(Collectors.toList());
+            String factoryLabels = factories.stream().map(f -> f.getLabel()).collect(Collectors.joining(", "));
+
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", p.id);
+            map.put("date", p.date);
+            map.put("surface", p.surface);
+            map.put("budget", p.budget);
+            map.put("lat", p.lat);
+            map.put("lon", p.lon);
+            map.put("level", p.level);
+            map.put("stateId", p.stateId);
+            map.put("stateLabel", p.stateLabel);
+            map.put("stateProgress", p.stateProgress);
+            map.put("typeId", p.typeId);
+            map.put("typeLabel", p.typeLabel);
+            map.put("factoryIds", factoryIds);
+            map.put("factoryLabels", factoryLabels); // Lord forgive me
+            map.put("updatedAt", p.updatedAt);
+
+            payload.add(map);
+        }
+        return payload;
+    }
+
     /**
      * Récupérer un point par son id (détails complets).
      */
@@ -155,11 +330,11 @@ public class PointController {
     }
 
     /**
-     * Returns a summary for points. If userId is provided the summary is limited to that user, otherwise global.
+     * Returns the global points summary from the materialized snapshot (snapshotAt / snapshotAgeMs tell how fresh it is).
      */
     @GetMapping("/summary")
     public ResponseEntity<ApiResponse> summary() {
-        PointsSummaryDTO dto = RepositoryProvider.pointsSummaryRepository.getSummary();
+        PointsSummaryDTO dto = pointsSummaryService.getSummary();
         return ResponseEntity.ok(new ApiResponse("success", dto, null));
     }
 
@@ -417,161 +592,36 @@ public class PointController {
     }
 
     @GetMapping("/work-delay")
-    public ResponseEntity<ApiResponse> getWorkDelay() {
+    public ResponseEntity<ApiResponse> getWorkDelay(
+            @RequestParam(name = "after_id", required = false) Integer afterId,
+            @RequestParam(name = "limit", required = false) Integer limit
+    ) {
         try {
-            // helper to format ms into human readable string
-            java.util.function.Function<Long, String> fmt = (ms) -> {
-                if (ms == null) return null;
-                java.time.Duration d = java.time.Duration.ofMillis(ms);
-                long days = d.toDays();
-                long hours = d.toHours() % 24;
-                long minutes = d.toMinutes() % 60;
-                long seconds = d.getSeconds() % 60;
-                if (days > 0) return String.format("%dd %dh %dm", days, hours, minutes);
-                if (hours > 0) return String.format("%dh %dm", hours, minutes);
-                if (minutes > 0) return String.format("%dm %ds", minutes, seconds);
-                return String.format("%ds", seconds);
-            };
-
-            // get finished point ids via repository
-            var wtRepo = RepositoryProvider.getRepository(mg.serve.vlc.repository.WorkTreatmentRepository.class);
-            java.util.List<Integer> finishedIds = wtRepo.getFinishedWork();
-
-            java.util.List<WorkTreatmentDTO> payload = new java.util.ArrayList<>();
-
-            // load all historic entries once
-            java.util.List<mg.serve.vlc.model.map.PointHistoric> allHistorics = RepositoryProvider.pointHistoricRepository.findAll();
-
-            long sumTotal = 0L;
-            int countTotal = 0;
-            long sumNew = 0L;
-            int countNew = 0;
-            long sumInProg = 0L;
-            int countInProg = 0;
-
-            for (Integer pid : finishedIds) {
-                try {
-                    mg.serve.vlc.model.map.Point p = RepositoryProvider.getRepository(PointRepository.class).findById(pid).orElse(null);
-                    if (p == null) continue;
-
-                    // build PointDTO for this point (similar to getPoint)
-                    org.locationtech.jts.geom.Point coords = p.getCoordinates();
-                    Double lon = coords != null ? coords.getX() : null;
-                    Double lat = coords != null ? coords.getY() : null;
-
-                    Integer stateId = p.getPointState() != null ? p.getPointState().getId() : null;
-                    String stateLabel = p.getPointState() != null ? p.getPointState().getLabel() : null;
-
-                    Integer typeId = p.getPointType() != null ? p.getPointType().getId() : null;
-                    String typeLabel = p.getPointType() != null ? p.getPointType().getLabel() : null;
-
-                    PointDTO pointDTO = new PointDTO(
-                        p.getId(),
-                        p.getDate(),
-                        p.getSurface(),
-                        p.getBudget(),
-                        lat,
-                        lon,
-                        stateId,
-                        stateLabel,
-                        typeId,
-                        typeLabel
-                    );
-
-                    // filter historic entries for this point and sort by date
-                    java.util.List<mg.serve.vlc.model.map.PointHistoric> histForPoint = allHistorics.stream()
-                        .filter(h -> h.getPointId() != null && h.getPointId().equals(pid))
-                        .sorted((a,b) -> a.getDate().compareTo(b.getDate()))
-                        .collect(java.util.stream.Collectors.toList());
-
-                    java.time.LocalDateTime date0 = null;
-                    java.time.LocalDateTime date05 = null;
-                    java.time.LocalDateTime date1 = null;
-
-                    for (mg.serve.vlc.model.map.PointHistoric h : histForPoint) {
-                        if (h.getPointState() != null && h.getPointState().getProgress() != null) {
-                            double prog = h.getPointState().getProgress();
-                            if (date0 == null && Double.valueOf(prog).equals(Double.valueOf(0.0))) {
-                                date0 = h.getDate();
-                            }
-                            if (date05 == null && Double.valueOf(prog).equals(Double.valueOf(0.5))) {
-                                date05 = h.getDate();
-                            }
-                            if (date1 == null && Double.valueOf(prog).equals(Double.valueOf(1.0))) {
-                                date1 = h.getDate();
-                            }
-                        }
-                    }
-
-                    // attempt to find latest 1.0 historic if date1 missing
-                    if (date1 == null) {
-                        java.util.Optional<mg.serve.vlc.model.map.PointHistoric> lastWith1 = histForPoint.stream()
-                            .filter(h -> h.getPointState() != null && h.getPointState().getProgress() != null
-                                && Double.valueOf(h.getPointState().getProgress()).equals(Double.valueOf(1.0)))
-                            .reduce((first, second) -> second);
-                        if (lastWith1.isPresent()) date1 = lastWith1.get().getDate();
-                    }
-
-                    Long newDelay = null;
-                    Long inProgressDelay = null;
-                    if (date0 != null && date05 != null) {
-                        newDelay = java.time.Duration.between(date0, date05).toMillis();
-                    }
-                    if (date05 != null && date1 != null) {
-                        inProgressDelay = java.time.Duration.between(date05, date1).toMillis();
-                    }
-
-                    Long total = null;
-                    if (newDelay != null) {
-                        sumNew += newDelay;
-                        countNew += 1;
-                    }
-                    if (inProgressDelay != null) {
-                        sumInProg += inProgressDelay;
-                        countInProg += 1;
-                    }
-                    if (newDelay != null && inProgressDelay != null) {
-                        total = newDelay + inProgressDelay;
-                        sumTotal += total;
-                        countTotal += 1;
-                    }
-
-                    String newLabel = fmt.apply(newDelay);
-                    String inProgressLabel = fmt.apply(inProgressDelay);
-                    String totalLabel = fmt.apply(total);
-
-                    WorkTreatmentDTO wt = new WorkTreatmentDTO(pointDTO, newDelay, inProgressDelay, newLabel, inProgressLabel, total, totalLabel);
-                    payload.add(wt);
-
-                } catch (Exception ex) {
-                    // skip problematic point but continue
-                }
-            }
-
-            Long avgNew = countNew > 0 ? Math.round((double) sumNew / countNew) : null;
-            Long avgInProg = countInProg > 0 ? Math.round((double) sumInProg / countInProg) : null;
-            Long avgTotal = countTotal > 0 ? Math.round((double) sumTotal / countTotal) : null;
-
-            String avgNewLabel = fmt.apply(avgNew);
-            String avgInProgLabel = fmt.apply(avgInProg);
-            String avgLabel = fmt.apply(avgTotal);
-
-            // Return a map containing the list of WorkTreatmentDTO and the global averages
-            java.util.Map<String, Object> out = new java.util.HashMap<>();
-            out.put("workTreatments", payload);
-            out.put("average0to05Ms", avgNew);
-            out.put("average0to05Label", avgNewLabel);
-            out.put("average05to1Ms", avgInProg);
-            out.put("average05to1Label", avgInProgLabel);
-            out.put("average0to1Ms", avgTotal);
-            out.put("average0to1Label", avgLabel);
-
+            // Averages are kept up to date by the aggregator, only the requested page of points is loaded
+            Map<String, Object> out = workDelayAggregator.toResponse(afterId, limit);
             return ResponseEntity.ok(new ApiResponse("success", out, null));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
         }
     }
 
+    /**
+     * Admin only: recompute the work-delay aggregate from scratch (recovery)
+     */
+    @PostMapping("/work-delay/rebuild")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<ApiResponse> rebuildWorkDelay(@RequestHeader("Authorization") String authHeader) {
+        try {
+            jwtService.throwIfUserNotAdmin(authHeader);
+            workDelayAggregator.rebuild();
+            return ResponseEntity.ok(new ApiResponse("success", null, null));
+        } catch (BusinessLogicException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
+        }
+    }
+
     @GetMapping("/detailled")
     public ResponseEntity<ApiResponse> getClean() {
         try {
@@ -0,0 +1,52 @@
+package mg.serve.vlc.controller.map;
+
+import mg.serve.vlc.controller.response.ApiResponse;
+import mg.serve.vlc.service.PointTileService;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/tiles")
+@RequiredArgsConstructor
+public class TileController {
+    private static final MediaType MVT = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
+    private final PointTileService pointTileService;
+
+    /**
+     * Point layer as a Mapbox Vector Tile. Clients revalidate with If-None-Match.
+     */
+    @GetMapping("/points/{z}/{x}/{y}.mvt")
+    public ResponseEntity<?> getPointTile(
+            @PathVariable("z") int z,
+            @PathVariable("x") int x,
+            @PathVariable("y") int y,
+            @RequestHeader(name = "If-None-Match", required = false) String ifNoneMatch
+    ) {
+        try {
+            if (!PointTileService.isValidTile(z, x, y)) {
+                return ResponseEntity.badRequest().body(new ApiResponse("error", null, "Invalid tile coordinates"));
+            }
+            PointTileService.Tile tile = pointTileService.getTile(z, x, y);
+            CacheControl cacheControl = CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic().mustRevalidate();
+
+            if (tile.etag().equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tile.etag()).cacheControl(cacheControl).build();
+            }
+            return ResponseEntity.ok()
+                    .contentType(MVT)
+                    .eTag(tile.etag())
+                    .cacheControl(cacheControl)
+                    .body(tile.data());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
+        }
+    }
+}
@@ -47,6 +47,34 @@ public class SyncStatistics {
         this.totalErrors++;
     }
 
+    /**
+     * Adds the counters and errors of other (one sync phase) to these totals.
+     */
+    public synchronized void merge(SyncStatistics other) {
+        usersCreatedLocally += other.usersCreatedLocally;
+        usersPushedToFirestore += other.usersPushedToFirestore;
+        usersUpdatedLocally += other.usersUpdatedLocally;
+        usersUpdatedInFirestore += other.usersUpdatedInFirestore;
+        historicCreatedLocally += other.historicCreatedLocally;
+        historicPushedToFirestore += other.historicPushedToFirestore;
+        historicUpdatedLocally += other.historicUpdatedLocally;
+        historicUpdatedInFirestore += other.historicUpdatedInFirestore;
+        pointsCreatedLocally += other.pointsCreatedLocally;
+        pointsPushedToFirestore += other.pointsPushedToFirestore;
+        pointsUpdatedLocally += other.pointsUpdatedLocally;
+        pointsUpdatedInFirestore += other.pointsUpdatedInFirestore;
+        pointHistoricCreatedLocally += other.pointHistoricCreatedLocally;
+        pointHistoricPushedToFirestore += other.pointHistoricPushedToFirestore;
+        pointHistoricUpdatedLocally += other.pointHistoricUpdatedLocally;
+        pointHistoricUpdatedInFirestore += other.pointHistoricUpdatedInFirestore;
+        dashboardSnapshotsCreatedLocally += other.dashboardSnapshotsCreatedLocally;
+        dashboardSnapshotsPushedToFirestore += other.dashboardSnapshotsPushedToFirestore;
+        dashboardSnapshotsUpdatedLocally += other.dashboardSnapshotsUpdatedLocally;
+        dashboardSnapshotsUpdatedInFirestore += other.dashboardSnapshotsUpdatedInFirestore;
+        totalErrors += other.totalErrors;
+        errorMessages.addAll(other.errorMessages);
+    }
+
     public String generateSummaryMessage() {
         StringBuilder sb = new StringBuilder();
         sb.append("Sync completed successfully!\n\n");
@@ -4,6 +4,7 @@ import mg.serve.vlc.controller.response.ApiResponse;
 import mg.serve.vlc.exception.BusinessLogicException;
 import mg.serve.vlc.model.user.User;
 import mg.serve.vlc.repository.user.UserRepository;
+import mg.serve.vlc.util.FirestoreFutures;
 import mg.serve.vlc.util.RepositoryProvider;
 import mg.serve.vlc.service.FirestoreUserService;
 import org.springframework.http.ResponseEntity;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.*;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import mg.serve.vlc.security.JwtService;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @RestController
@@ -27,17 +29,17 @@ public class UserController {
 
     @GetMapping("/blocked")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<ApiResponse> getBlockedUsers(@RequestHeader("Authorization") String authHeader) {
+    public CompletableFuture<ResponseEntity<ApiResponse>> getBlockedUsers(@RequestHeader("Authorization") String authHeader) {
         try {
             jwtService.throwIfUserNotAdmin(authHeader);
-
-            // Fetch blocked users from Firestore (attempt >= 3)
-            List<Map<String, Object>> blockedUsers = firestoreUserService.getBlockedUsers();
-
-            return ResponseEntity.ok(new ApiResponse("success", blockedUsers, null));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new ApiResponse("error", null, e.getMessage())));
         }
+
+        // Fetch blocked users from Firestore (attempt >= 3); the request thread is released while it runs
+        return firestoreUserService.getBlockedUsersAsync()
+            .thenApply(blockedUsers -> ResponseEntity.ok(new ApiResponse("success", blockedUsers, null)))
+            .exceptionally(e -> ResponseEntity.badRequest().body(new ApiResponse("error", null, FirestoreFutures.unwrap(e).getMessage())));
     }
 
     @PutMapping("/update")
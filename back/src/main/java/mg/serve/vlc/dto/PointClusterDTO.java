@@ -0,0 +1,27 @@
+package mg.serve.vlc.dto;
+
+/**
+ * One grid cell of GET /points/clusters.
+ * pointId is only set when the cell holds a single point so the client can open it directly.
+ */
+public class PointClusterDTO {
+    public long count;
+    public Double lat;
+    public Double lon;
+    public double totalBudget;
+    public double totalSurface;
+    public Integer maxLevel;
+    public Integer pointId;
+
+    public PointClusterDTO() {}
+
+    public PointClusterDTO(long count, Double lat, Double lon, double totalBudget, double totalSurface, Integer maxLevel, Integer pointId) {
+        this.count = count;
+        this.lat = lat;
+        this.lon = lon;
+        this.totalBudget = totalBudget;
+        this.totalSurface = totalSurface;
+        this.maxLevel = maxLevel;
+        this.pointId = count == 1 ? pointId : null;
+    }
+}
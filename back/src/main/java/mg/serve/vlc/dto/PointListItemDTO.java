@@ -0,0 +1,52 @@
+package mg.serve.vlc.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat projection of a live point, used by the paginated GET /points listing.
+ * Built directly by JPQL so the user/factories graph is never loaded.
+ */
+public class PointListItemDTO {
+    public Integer id;
+    public LocalDateTime date;
+    public LocalDateTime updatedAt;
+    public Double surface;
+    public Double budget;
+    public Integer level;
+    public Double lat;
+    public Double lon;
+    public Integer stateId;
+    public String stateLabel;
+    public Double stateProgress;
+    public Integer typeId;
+    public String typeLabel;
+
+    public PointListItemDTO() {}
+
+    public PointListItemDTO(Integer id,
+                            LocalDateTime date,
+                            LocalDateTime updatedAt,
+                            Double surface,
+                            Double budget,
+                            Integer level,
+                            org.locationtech.jts.geom.Point coordinates,
+                            Integer stateId,
+                            String stateLabel,
+                            Double stateProgress,
+                            Integer typeId,
+                            String typeLabel) {
+        this.id = id;
+        this.date = date;
+        this.updatedAt = updatedAt != null ? updatedAt : date; // same fallback as Point.getUpdatedAt()
+        this.surface = surface;
+        this.budget = budget;
+        this.level = level;
+        this.lat = coordinates != null ? coordinates.getY() : null;
+        this.lon = coordinates != null ? coordinates.getX() : null;
+        this.stateId = stateId;
+        this.stateLabel = stateLabel;
+        this.stateProgress = stateProgress;
+        this.typeId = typeId;
+        this.typeLabel = typeLabel;
+    }
+}
@@ -0,0 +1,39 @@
+package mg.serve.vlc.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the work-delay query: a point, its first 0 / 0.5 / 1 progress dates,
+ * the derived delays and the global averages (identical on every row, computed by the same query).
+ */
+public class PointWorkDelayDTO {
+    public PointDTO point;
+    public LocalDateTime date0;
+    public LocalDateTime date05;
+    public LocalDateTime date1;
+    // delays in milliseconds (nullable)
+    public Long newDelayMs;
+    public Long inProgressDelayMs;
+    public Long totalDelayMs;
+    // averages over all rows (nullable)
+    public Long averageNewDelayMs;
+    public Long averageInProgressDelayMs;
+    public Long averageTotalDelayMs;
+
+    public PointWorkDelayDTO() {}
+
+    public PointWorkDelayDTO(PointDTO point, LocalDateTime date0, LocalDateTime date05, LocalDateTime date1,
+                             Long newDelayMs, Long inProgressDelayMs, Long totalDelayMs,
+                             Long averageNewDelayMs, Long averageInProgressDelayMs, Long averageTotalDelayMs) {
+        this.point = point;
+        this.date0 = date0;
+        this.date05 = date05;
+        this.date1 = date1;
+        this.newDelayMs = newDelayMs;
+        this.inProgressDelayMs = inProgressDelayMs;
+        this.totalDelayMs = totalDelayMs;
+        this.averageNewDelayMs = averageNewDelayMs;
+        this.averageInProgressDelayMs = averageInProgressDelayMs;
+        this.averageTotalDelayMs = averageTotalDelayMs;
+    }
+}
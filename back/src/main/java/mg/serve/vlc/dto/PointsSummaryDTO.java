@@ -5,6 +5,9 @@ public class PointsSummaryDTO {
     private double totalSurface;
     private double avgProgress;
     private double totalBudget;
+    // when the figures were computed, and how old they were when served
+    private java.time.LocalDateTime snapshotAt;
+    private Long snapshotAgeMs;
 
     public PointsSummaryDTO() {}
 
@@ -46,4 +49,20 @@ public class PointsSummaryDTO {
     public void setTotalBudget(double totalBudget) {
         this.totalBudget = totalBudget;
     }
+
+    public java.time.LocalDateTime getSnapshotAt() {
+        return snapshotAt;
+    }
+
+    public void setSnapshotAt(java.time.LocalDateTime snapshotAt) {
+        this.snapshotAt = snapshotAt;
+    }
+
+    public Long getSnapshotAgeMs() {
+        return snapshotAgeMs;
+    }
+
+    public void setSnapshotAgeMs(Long snapshotAgeMs) {
+        this.snapshotAgeMs = snapshotAgeMs;
+    }
 }
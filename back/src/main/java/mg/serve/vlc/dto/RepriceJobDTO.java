@@ -0,0 +1,29 @@
+package mg.serve.vlc.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a POST /prices/{id}/reprice job (polled with GET /prices/reprice/{jobId}).
+ * status is one of RUNNING, DONE, FAILED.
+ */
+public class RepriceJobDTO {
+    public String id;
+    public Long priceId;
+    public Double price;
+    public volatile String status;
+    public volatile long total;
+    public volatile long processed;
+    public LocalDateTime startedAt;
+    public volatile LocalDateTime finishedAt;
+    public volatile String error;
+
+    public RepriceJobDTO() {}
+
+    public RepriceJobDTO(String id, Long priceId, Double price) {
+        this.id = id;
+        this.priceId = priceId;
+        this.price = price;
+        this.status = "RUNNING";
+        this.startedAt = LocalDateTime.now();
+    }
+}
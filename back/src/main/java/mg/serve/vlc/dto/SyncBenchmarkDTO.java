@@ -0,0 +1,51 @@
+package mg.serve.vlc.dto;
+
+import mg.serve.vlc.controller.response.SyncStatistics;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of POST /sync/benchmark: the sync phases run one after the other, each with its wall time, Firestore
+ * ops (calls, documents read and written), SQL statements prepared by Hibernate and heap use.
+ * heapBeforeMb is measured after a GC, heapPeakMb is the peak of the heap pools during the phase.
+ */
+public class SyncBenchmarkDTO {
+    public static class Phase {
+        public String name;
+        public String status;
+        public long wallMs;
+        public long firestoreCalls;
+        public long documentsRead;
+        public long documentsWritten;
+        public long sqlStatements;
+        public long heapBeforeMb;
+        public long heapPeakMb;
+        public SyncStatistics stats;
+        public String error;
+
+        public Phase() {}
+
+        public Phase(String name) {
+            this.name = name;
+        }
+    }
+
+    public boolean full;
+    public LocalDateTime startedAt;
+    public long wallMs;
+    public long firestoreCalls;
+    public long documentsRead;
+    public long documentsWritten;
+    public long sqlStatements;
+    public long heapPeakMb;
+    public List<Phase> phases = new ArrayList<>();
+
+    public SyncBenchmarkDTO() {}
+
+    public SyncBenchmarkDTO(boolean full) {
+        this.full = full;
+        this.startedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,54 @@
+package mg.serve.vlc.dto;
+
+import mg.serve.vlc.controller.response.SyncStatistics;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of a POST /sync/jobs run (polled with GET /sync/jobs/{id}).
+ * status is one of QUEUED (waiting for the running job), RUNNING, DONE, FAILED; each phase is
+ * PENDING, RUNNING, DONE or FAILED. startedAt is reset when a queued job starts.
+ * Independent phases run in parallel, so currentPhase lists every running phase (comma separated).
+ * stats holds the totals of the finished phases and is replaced (not mutated) after each phase.
+ */
+public class SyncJobDTO {
+    public static class Phase {
+        public String name;
+        public volatile String status = "PENDING";
+        public volatile SyncStatistics stats;
+        public volatile LocalDateTime startedAt;
+        public volatile LocalDateTime finishedAt;
+        public volatile String error;
+
+        public Phase() {}
+
+        public Phase(String name) {
+            this.name = name;
+        }
+    }
+
+    public String id;
+    public boolean full;
+    public volatile String status;
+    public volatile String currentPhase;
+    public List<Phase> phases = new ArrayList<>();
+    public volatile SyncStatistics stats = new SyncStatistics();
+    public volatile int coalescedRequests;
+    public LocalDateTime startedAt;
+    public volatile LocalDateTime finishedAt;
+    public volatile String error;
+
+    public SyncJobDTO() {}
+
+    public SyncJobDTO(String id, boolean full, List<String> phaseNames) {
+        this.id = id;
+        this.full = full;
+        this.status = "RUNNING";
+        this.startedAt = LocalDateTime.now();
+        for (String name : phaseNames) {
+            phases.add(new Phase(name));
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package mg.serve.vlc.model.map;
 
 import lombok.*;
+import mg.serve.vlc.exception.BusinessLogicException;
 import mg.serve.vlc.model.user.User;
 import mg.serve.vlc.repository.point.PointRepository;
+import mg.serve.vlc.service.PointWriteListener;
+import mg.serve.vlc.util.ContentHash;
+import mg.serve.vlc.util.FieldMask;
 import mg.serve.vlc.util.RepositoryProvider;
+import mg.serve.vlc.util.SyncOutbox;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.*;
@@ -21,6 +26,7 @@ import java.util.*;
 
 @Entity
 @Table(name = "point")
+@EntityListeners(PointWriteListener.class)
 @Getter
 @Setter
 @AllArgsConstructor
@@ -79,9 +85,39 @@ public class Point {
     @JsonIgnore
     private List<Factory> factories = new ArrayList<>();
 
+    /**
+     * Hash of the synced fields (see computeContentHash), kept up to date on every JPA write.
+     * Null after bulk SQL updates: sync then falls back to a field comparison.
+     */
+    @Column(name = "content_hash", length = 64)
+    @JsonIgnore
+    private String contentHash;
+
+    /**
+     * Firestore document this point was mapped from, the base of a field-level overwrite (see FieldMask)
+     */
+    @Transient
+    @JsonIgnore
+    private FieldMask.RemoteState remoteState;
+
+    /**
+     * Coordinates as loaded from the database, so a moved point also invalidates the tiles it left
+     */
+    @Transient
+    @JsonIgnore
+    private org.locationtech.jts.geom.Point loadedCoordinates;
+
     @Transactional(rollbackOn = Exception.class)
     public Point save() {
-        return RepositoryProvider.getRepository(PointRepository.class).save(this);
+        try {
+            return SyncOutbox.inTransaction(() -> {
+                Point saved = RepositoryProvider.getRepository(PointRepository.class).save(this);
+                SyncOutbox.record(SyncOutbox.POINT, saved.getId(), SyncOutbox.SAVE);
+                return saved;
+            });
+        } catch (BusinessLogicException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     public void setCoordinates(double longitude, double latitude) {
@@ -100,7 +136,15 @@ public class Point {
         Integer pointId = this.id;
         historic.setPointId(pointId);
         historic.setPointState( this.pointState );
-        RepositoryProvider.pointHistoricRepository.save(historic); // TODO: add factories history too
+        try {
+            SyncOutbox.inTransaction(() -> {
+                PointHistoric saved = RepositoryProvider.pointHistoricRepository.save(historic); // TODO: add factories history too
+                SyncOutbox.record(SyncOutbox.POINT_HISTORIC, saved.getId(), SyncOutbox.SAVE);
+                return saved;
+            });
+        } catch (BusinessLogicException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     /**
@@ -136,7 +180,21 @@ public class Point {
 
     public Point delete() {
         this.setDeletedAt(LocalDateTime.now());
-        return RepositoryProvider.getRepository(PointRepository.class).save(this);
+        try {
+            return SyncOutbox.inTransaction(() -> {
+                Point deleted = RepositoryProvider.getRepository(PointRepository.class).save(this);
+                SyncOutbox.record(SyncOutbox.POINT, deleted.getId(), SyncOutbox.DELETE);
+                return deleted;
+            });
+        } catch (BusinessLogicException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void refreshContentHash() {
+        this.contentHash = this.date != null && this.coordinates != null ? computeContentHash() : null;
     }
 
     public Map<String, Object> toMap() {
@@ -170,6 +228,48 @@ public class Point {
             factoryList.add(Map.of("id", factory.getId(), "label", factory.getLabel()));
         }
         pointMap.put("factories", factoryList);
+        // contentHashAt lets readers tell a hash written along with updatedAt from one left stale by another client
+        pointMap.put("contentHash", computeContentHash());
+        if (pointMap.containsKey("updatedAt")) {
+            pointMap.put("contentHashAt", pointMap.get("updatedAt"));
+        }
         return pointMap;
     }
+
+    /**
+     * Hash of the fields compared by sync, built from the scalar fields and ids only (no user or factory loading
+     * beyond their ids and the owner's email). Matches the contentHash of toMap() written to Firestore.
+     */
+    public String computeContentHash() {
+        return ContentHash.of(canonicalFields());
+    }
+
+    /**
+     * The fields compared by sync: toMap() without ids, timestamps and labels; the owner by email, factories by id.
+     */
+    private Map<String, Object> canonicalFields() {
+        Map<String, Object> canonical = new HashMap<>();
+        canonical.put("date_", Timestamp.of(Date.from(this.date.toInstant(ZoneOffset.UTC))));
+        if (this.deletedAt != null) {
+            canonical.put("deletedAt", Timestamp.of(Date.from(this.deletedAt.toInstant(ZoneOffset.UTC))));
+        }
+        canonical.put("surface", this.surface);
+        canonical.put("budget", this.budget);
+        canonical.put("coordinates", Map.of("longitude", this.coordinates.getX(), "latitude", this.coordinates.getY()));
+        canonical.put("level_", this.level);
+        canonical.put("user", this.user != null ? this.user.getEmail() : null);
+        if (this.pointState != null) {
+            canonical.put("pointStateId", this.pointState.getId());
+        }
+        if (this.pointType != null) {
+            canonical.put("pointTypeId", this.pointType.getId());
+        }
+        List<Object> factoryIds = new ArrayList<>();
+        for (Factory factory : this.factories) {
+            factoryIds.add(factory.getId());
+        }
+        factoryIds.sort(Comparator.comparing(String::valueOf));
+        canonical.put("factories", factoryIds);
+        return canonical;
+    }
 }
@@ -2,6 +2,7 @@ package mg.serve.vlc.model.map;
 
 import jakarta.persistence.*;
 import lombok.*;
+import mg.serve.vlc.service.PointHistoricWriteListener;
 
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
@@ -15,6 +16,7 @@ import java.util.Date;
 
 @Entity
 @Table(name = "point_historic")
+@EntityListeners(PointHistoricWriteListener.class)
 @Getter
 @Setter
 @AllArgsConstructor
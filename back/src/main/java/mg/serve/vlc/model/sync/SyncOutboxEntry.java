@@ -0,0 +1,46 @@
+package mg.serve.vlc.model.sync;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A local change still to be pushed to Firestore, written in the same transaction as the change itself.
+ * Deleted once the push succeeded (at-least-once: a row may be pushed twice, never lost).
+ */
+@Entity
+@Table(name = "sync_outbox")
+@Data
+@NoArgsConstructor
+public class SyncOutboxEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "entity_type", nullable = false, length = 30)
+    private String entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Integer entityId;
+
+    @Column(name = "operation", nullable = false, length = 20)
+    private String operation;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    public SyncOutboxEntry(String entityType, Integer entityId, String operation) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.operation = operation;
+        this.createdAt = LocalDateTime.now();
+    }
+}
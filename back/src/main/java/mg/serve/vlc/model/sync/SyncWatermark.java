@@ -0,0 +1,39 @@
+package mg.serve.vlc.model.sync;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * High-water mark of a Firestore collection: the greatest remote updatedAt already pulled.
+ * The next sync only asks Firestore for documents updated after it.
+ * Also holds the checkpoint of an interrupted run of the collection's sync.
+ */
+@Entity
+@Table(name = "sync_watermark")
+@Data
+public class SyncWatermark {
+    @Id
+    @Column(name = "collection_name", length = 50)
+    private String collectionName;
+
+    @Column(name = "remote_updated_at")
+    private LocalDateTime remoteUpdatedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * Checkpoint of an unfinished run: last key reconciled (keys are processed in order), kind of run and
+     * when that run started. Cleared when a run completes.
+     */
+    @Column(name = "checkpoint_cursor", length = 100)
+    private String checkpointCursor;
+
+    @Column(name = "checkpoint_full")
+    private Boolean checkpointFull;
+
+    @Column(name = "checkpoint_at")
+    private LocalDateTime checkpointAt;
+}
@@ -7,7 +7,10 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import mg.serve.vlc.exception.BusinessLogicException;
+import mg.serve.vlc.util.ContentHash;
+import mg.serve.vlc.util.FieldMask;
 import mg.serve.vlc.util.RepositoryProvider;
+import mg.serve.vlc.util.SyncOutbox;
 import java.time.*;
 import java.util.*;
 import mg.serve.vlc.model.*;
@@ -17,6 +20,7 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.UserRecord;
 import mg.serve.vlc.repository.userHistoric.UserHistoricRepository;
 import com.google.cloud.Timestamp;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
 @Table(name = "user_")
@@ -51,6 +55,20 @@ public class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Hash of the synced fields (see computeContentHash), refreshed on every JPA write.
+     */
+    @Column(name = "content_hash", length = 64)
+    @JsonIgnore
+    private String contentHash;
+
+    /**
+     * Firestore document this user was mapped from, the base of a field-level overwrite (see FieldMask)
+     */
+    @Transient
+    @JsonIgnore
+    private FieldMask.RemoteState remoteState;
+
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(
         name = "user_role",
@@ -134,9 +152,13 @@ public class User {
 
         this.userStateId = 1;
 
-        // Persistence
-        User savedUser = repo.save(this);
-        savedUser.saveHistoric();
+        // Persistence (with its outbox entry, in one transaction)
+        SyncOutbox.inTransaction(() -> {
+            User savedUser = repo.save(this);
+            savedUser.saveHistoric();
+            SyncOutbox.record(SyncOutbox.USER, savedUser.getId(), SyncOutbox.SAVE);
+            return savedUser;
+        });
     }
 
     @Transactional(rollbackOn = Exception.class)
@@ -154,9 +176,13 @@ public class User {
             this.setUsername(username);
         }
 
-        // Persistence
-        User updated = RepositoryProvider.getRepository(UserRepository.class).save(this);
-        updated.saveHistoric();
+        // Persistence (with its outbox entry, in one transaction)
+        SyncOutbox.inTransaction(() -> {
+            User updated = RepositoryProvider.getRepository(UserRepository.class).save(this);
+            updated.saveHistoric();
+            SyncOutbox.record(SyncOutbox.USER, updated.getId(), SyncOutbox.SAVE);
+            return updated;
+        });
     }
 
     @Transactional(rollbackOn = Exception.class)
@@ -176,9 +202,13 @@ public class User {
         // Business logic
         this.setUserStateId(2);
 
-        // Persistence
-        User deleted = RepositoryProvider.getRepository(UserRepository.class).save(this);
-        deleted.saveHistoric();
+        // Persistence (with its outbox entry, in one transaction)
+        SyncOutbox.inTransaction(() -> {
+            User deleted = RepositoryProvider.getRepository(UserRepository.class).save(this);
+            deleted.saveHistoric();
+            SyncOutbox.record(SyncOutbox.USER, deleted.getId(), SyncOutbox.DELETE);
+            return deleted;
+        });
     }
 
     @Transactional(rollbackOn = Exception.class)
@@ -206,8 +236,12 @@ public class User {
         System.out.println("Wrong attempts for user id " + this.id + ": " + wrongAttempts);
         if (wrongAttempts >= loginAttemptLimit) {
             this.setUserStateId(3); // Blocked
-            User updated = RepositoryProvider.getRepository(UserRepository.class).save(this);
-            updated.saveHistoric();
+            SyncOutbox.inTransaction(() -> {
+                User updated = RepositoryProvider.getRepository(UserRepository.class).save(this);
+                updated.saveHistoric();
+                SyncOutbox.record(SyncOutbox.USER, updated.getId(), SyncOutbox.SAVE);
+                return updated;
+            });
         }
     }
 
@@ -219,6 +253,7 @@ public class User {
     @PreUpdate
     public void setUpdatedAt() {
         this.updatedAt = LocalDateTime.now();
+        this.contentHash = computeContentHash();
     }
 
     public void setEmail(String email) throws BusinessLogicException {
@@ -255,10 +290,32 @@ public class User {
             rolesList.add(role.toMap());
         }
         userMap.put("roles", rolesList);
+        // contentHashAt lets readers tell a hash written along with updatedAt from one left stale by another client
+        userMap.put("contentHash", ContentHash.of(canonicalFields(userMap)));
+        userMap.put("contentHashAt", userMap.get("updatedAt"));
 
         return userMap;
     }
 
+    public String computeContentHash() {
+        return (String) toMap().get("contentHash");
+    }
+
+    /**
+     * The fields compared by sync: toMap() without ids, timestamps and the state label; roles by id.
+     */
+    private static Map<String, Object> canonicalFields(Map<String, Object> userMap) {
+        Map<String, Object> canonical = new HashMap<>(userMap);
+        canonical.keySet().removeAll(List.of("id", "fbId", "updatedAt", "userState"));
+        List<Object> roleIds = new ArrayList<>();
+        for (Object role : (List<?>) userMap.get("roles")) {
+            roleIds.add(((Map<?, ?>) role).get("id"));
+        }
+        roleIds.sort(Comparator.comparing(String::valueOf));
+        canonical.put("roles", roleIds);
+        return canonical;
+    }
+
     /****************************
      * Util
      ****************************/
@@ -6,6 +6,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import mg.serve.vlc.model.Config;
+
+import java.time.LocalDateTime;
 import java.util.*;
 
 @Repository
@@ -16,4 +18,20 @@ public interface ConfigRepository extends CrudRepository<Config, Long> {
     String getLastValueByKey(@Param("key") String key);
 
     List<Config> findAll();
+
+    /**
+     * Latest row of key dated on or before date (served by config_key_date_idx).
+     */
+    @Query(
+        value = "SELECT * FROM config WHERE key = :key AND date_ <= :date ORDER BY date_ DESC, id DESC LIMIT 1",
+        nativeQuery = true)
+    Config findLastByKeyAtOrBefore(@Param("key") String key, @Param("date") LocalDateTime date);
+
+    Config findFirstByKeyOrderByDateDescIdDesc(String key);
+
+    Config findFirstByKeyOrderByDateAscIdAsc(String key);
+
+    List<Config> findByKeyOrderByDateAscIdAsc(String key);
+
+    List<Config> findByKeyOrderByDateDescIdDesc(String key);
 }
@@ -2,6 +2,8 @@ package mg.serve.vlc.repository;
 
 import mg.serve.vlc.model.map.PointHistoric;
 import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
 import java.util.List;
 
 public interface PointHistoricRepository extends JpaRepository<PointHistoric, Integer>
@@ -9,4 +11,16 @@ public interface PointHistoricRepository extends JpaRepository<PointHistoric, In
     List<PointHistoric> findByPointId(Integer pointId);
 
     int countByPointId(Integer id);
+
+    List<PointHistoric> findByFbIdIn(Collection<String> fbIds);
+
+    /**
+     * Local side of a full history sync: every entry in one query, grouped by point.
+     */
+    List<PointHistoric> findAllByOrderByPointIdAscIdAsc();
+
+    /**
+     * Local side of a delta history sync: the history of the points of the pulled entries.
+     */
+    List<PointHistoric> findByPointIdIn(Collection<Integer> pointIds);
 }
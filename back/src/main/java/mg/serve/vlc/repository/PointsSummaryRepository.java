@@ -4,9 +4,13 @@ import mg.serve.vlc.model.map.Point;
 
 import mg.serve.vlc.dto.PointsSummaryDTO;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface PointsSummaryRepository extends JpaRepository<Point, Long> {
@@ -23,5 +27,19 @@ public interface PointsSummaryRepository extends JpaRepository<Point, Long> {
         JOIN p.pointState ps
     """)
     PointsSummaryDTO getSummary();
+
+    /**
+     * Single row of the point_summary materialized view:
+     * [nb_points, total_surface, avg_progress, total_budget, refreshed_at]
+     */
+    @Query(
+        value = "SELECT nb_points, total_surface, avg_progress, total_budget, refreshed_at FROM point_summary",
+        nativeQuery = true)
+    List<Object[]> getSnapshotRows();
+
+    @Modifying
+    @Transactional
+    @Query(value = "REFRESH MATERIALIZED VIEW CONCURRENTLY point_summary", nativeQuery = true)
+    void refreshSnapshot();
 }
 
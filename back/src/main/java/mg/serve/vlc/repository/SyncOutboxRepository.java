@@ -0,0 +1,28 @@
+package mg.serve.vlc.repository;
+
+import mg.serve.vlc.model.sync.SyncOutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SyncOutboxRepository extends JpaRepository<SyncOutboxEntry, Long> {
+    List<SyncOutboxEntry> findByEntityTypeAndIdGreaterThanOrderByIdAsc(String entityType, Long afterId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SyncOutboxEntry e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SyncOutboxEntry e SET e.attempts = e.attempts + 1, e.lastError = :error WHERE e.id IN :ids")
+    int markFailed(@Param("ids") Collection<Long> ids, @Param("error") String error);
+}
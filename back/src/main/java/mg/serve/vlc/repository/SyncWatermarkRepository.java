@@ -0,0 +1,9 @@
+package mg.serve.vlc.repository;
+
+import mg.serve.vlc.model.sync.SyncWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SyncWatermarkRepository extends JpaRepository<SyncWatermark, String> {
+}
@@ -1,9 +1,14 @@
 package mg.serve.vlc.repository;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import mg.serve.vlc.dto.PointDTO;
+import mg.serve.vlc.dto.PointWorkDelayDTO;
 import mg.serve.vlc.model.map.Point;
 
 @Repository
@@ -12,4 +17,95 @@ public interface WorkTreatmentRepository extends JpaRepository<Point, Integer> {
     @Query("SELECT p.id FROM Point p JOIN p.pointState ps")
     List<Integer> getFinishedWork();
 
+    /**
+     * Same points as getFinishedWork, each with the first date it reached progress 0, 0.5 and 1
+     * (MIN ... FILTER over point_historic grouped by point), the delays between them,
+     * and the global averages as window aggregates. One round trip whatever the history size.
+     */
+    @Query(
+        value = """
+            WITH phases AS (
+                SELECT ph.point_id,
+                       MIN(ph.date_) FILTER (WHERE hs.progress = 0)   AS date0,
+                       MIN(ph.date_) FILTER (WHERE hs.progress = 0.5) AS date05,
+                       MIN(ph.date_) FILTER (WHERE hs.progress = 1)   AS date1
+                FROM point_historic ph
+                JOIN point_state hs ON hs.id = ph.point_state_id
+                GROUP BY ph.point_id
+            ),
+            delays AS (
+                SELECT p.id, p.date_, p.surface, p.budget,
+                       ST_Y(p.coordinates) AS lat, ST_X(p.coordinates) AS lon,
+                       ps.id AS state_id, ps.label AS state_label,
+                       pt.id AS type_id, pt.label AS type_label,
+                       f.date0, f.date05, f.date1,
+                       FLOOR(EXTRACT(EPOCH FROM (f.date05 - f.date0)) * 1000) AS new_ms,
+                       FLOOR(EXTRACT(EPOCH FROM (f.date1 - f.date05)) * 1000) AS in_progress_ms
+                FROM point p
+                JOIN point_state ps ON ps.id = p.point_state_id
+                LEFT JOIN point_type pt ON pt.id = p.point_type_id
+                LEFT JOIN phases f ON f.point_id = p.id
+            )
+            SELECT id, date_, surface, budget, lat, lon,
+                   state_id, state_label, type_id, type_label,
+                   date0, date05, date1,
+                   new_ms, in_progress_ms, new_ms + in_progress_ms AS total_ms,
+                   ROUND(AVG(new_ms) OVER ()) AS avg_new_ms,
+                   ROUND(AVG(in_progress_ms) OVER ()) AS avg_in_progress_ms,
+                   ROUND(AVG(new_ms + in_progress_ms) OVER ()) AS avg_total_ms
+            FROM delays
+            ORDER BY id
+        """,
+        nativeQuery = true)
+    List<Object[]> getWorkDelayRows();
+
+    default List<PointWorkDelayDTO> getWorkDelays() {
+        List<PointWorkDelayDTO> result = new ArrayList<>();
+        for (Object[] row : getWorkDelayRows()) {
+            PointDTO point = new PointDTO(
+                toInteger(row[0]),
+                toLocalDateTime(row[1]),
+                toDouble(row[2]),
+                toDouble(row[3]),
+                toDouble(row[4]),
+                toDouble(row[5]),
+                toInteger(row[6]),
+                (String) row[7],
+                toInteger(row[8]),
+                (String) row[9]
+            );
+            result.add(new PointWorkDelayDTO(
+                point,
+                toLocalDateTime(row[10]),
+                toLocalDateTime(row[11]),
+                toLocalDateTime(row[12]),
+                toLong(row[13]),
+                toLong(row[14]),
+                toLong(row[15]),
+                toLong(row[16]),
+                toLong(row[17]),
+                toLong(row[18])
+            ));
+        }
+        return result;
+    }
+
+    private static Integer toInteger(Object o) {
+        return o == null ? null : ((Number) o).intValue();
+    }
+
+    private static Long toLong(Object o) {
+        return o == null ? null : ((Number) o).longValue();
+    }
+
+    private static Double toDouble(Object o) {
+        return o == null ? null : ((Number) o).doubleValue();
+    }
+
+    private static LocalDateTime toLocalDateTime(Object o) {
+        if (o == null) return null;
+        if (o instanceof LocalDateTime) return (LocalDateTime) o;
+        if (o instanceof Timestamp) return ((Timestamp) o).toLocalDateTime();
+        throw new IllegalArgumentException("Unsupported timestamp type: " + o.getClass());
+    }
 }
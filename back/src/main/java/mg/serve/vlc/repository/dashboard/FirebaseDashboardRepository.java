@@ -3,8 +3,10 @@ package mg.serve.vlc.repository.dashboard;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.Firestore;
 import com.google.firebase.cloud.FirestoreClient;
+import mg.serve.vlc.util.FirestoreFutures;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class FirebaseDashboardRepository {
 
@@ -14,26 +16,28 @@ public class FirebaseDashboardRepository {
      * Returns the document id ("stats") on success.
      */
     public String save(Map<String, Object> snapshot) {
-        try {
-            Firestore firestore = FirestoreClient.getFirestore();
-            String docId = "stats";
-            DocumentReference docRef = firestore.collection("dashboard").document(docId);
-            // include pushedAt timestamp for convenience
-            snapshot.put("pushedAt", java.time.Instant.now().toString());
+        return FirestoreFutures.await(saveAsync(snapshot));
+    }
 
-            // Try to detect existence and choose update vs set to avoid overwriting unintended fields.
-            boolean exists = docRef.get().get().exists();
-            if (exists) {
-                // update existing document fields
-                docRef.update(snapshot).get();
-            } else {
-                // create new document
-                docRef.set(snapshot).get();
-            }
+    /**
+     * Same as save(), the existence check and the write chained without blocking.
+     */
+    public CompletableFuture<String> saveAsync(Map<String, Object> snapshot) {
+        Firestore firestore = FirestoreClient.getFirestore();
+        String docId = "stats";
+        DocumentReference docRef = firestore.collection("dashboard").document(docId);
+        // include pushedAt timestamp for convenience
+        snapshot.put("pushedAt", java.time.Instant.now().toString());
 
-            return docId;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to save dashboard snapshot to Firebase: " + e.getMessage(), e);
-        }
+        // Try to detect existence and choose update vs set to avoid overwriting unintended fields.
+        return FirestoreFutures.toCompletable(docRef.get())
+            .thenCompose(existing -> FirestoreFutures.toCompletable(existing.exists()
+                ? docRef.update(snapshot) // update existing document fields
+                : docRef.set(snapshot)))  // create new document
+            .thenApply(result -> docId)
+            .exceptionally(e -> {
+                Throwable cause = FirestoreFutures.unwrap(e);
+                throw new RuntimeException("Failed to save dashboard snapshot to Firebase: " + cause.getMessage(), cause);
+            });
     }
 }
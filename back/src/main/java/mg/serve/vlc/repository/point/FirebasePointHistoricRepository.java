@@ -1,65 +1,75 @@
 package mg.serve.vlc.repository.point;
 
-import com.google.api.core.ApiFuture;
-import com.google.cloud.firestore.CollectionReference;
-import com.google.cloud.firestore.DocumentReference;
-import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Query;
 import com.google.firebase.cloud.FirestoreClient;
 import mg.serve.vlc.model.map.PointHistoric;
+import mg.serve.vlc.repository.store.DocumentQuery;
+import mg.serve.vlc.repository.store.DocumentStore;
+import mg.serve.vlc.repository.store.FirestoreDocumentStore;
+import mg.serve.vlc.util.FirestoreBatchWriter;
+import mg.serve.vlc.util.FirestoreFutures;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.stereotype.Repository;
 
 @Repository
 public class FirebasePointHistoricRepository {
-    private Firestore db;
-    private final CollectionReference collectionReference;
+    private final DocumentStore store;
 
     public FirebasePointHistoricRepository() {
-        db = FirestoreClient.getFirestore();
-        this.collectionReference = db.collection("points");
+        this(new FirestoreDocumentStore());
+    }
+
+    public FirebasePointHistoricRepository(DocumentStore store) {
+        this.store = store;
+    }
+
+    private static String history(String pointFbId) {
+        return FirebasePointRepository.COLLECTION + "/" + pointFbId + "/history";
     }
 
     public PointHistoric save(PointHistoric pointHistoric) {
         String pointFbId = pointHistoric.getFbId();
-        try {
-            DocumentReference docRef = collectionReference.document(pointFbId).collection("history").document();
-            String id = docRef.getId();
-            pointHistoric.setFbId(id);
-            docRef.set(pointHistoric.toMap()).get();
-            return pointHistoric;
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException("Failed to save point historic to Firestore", e);
-        }
+        pointHistoric.setFbId(store.newId());
+        FirestoreFutures.await(store.writeAsync(history(pointFbId), new FirestoreBatchWriter.Write(pointHistoric.getFbId(), pointHistoric.toMap(), true))
+            .exceptionally(e -> {
+                throw new RuntimeException("Failed to save point historic to Firestore", FirestoreFutures.unwrap(e));
+            }));
+        return pointHistoric;
     }
 
+    /**
+     * Creates or replaces the entry under points/{pointFbId}/history. Local entries get the stable id "ph-" + id,
+     * so a push repeated after a crash lands on the same document.
+     */
     public PointHistoric save(PointHistoric pointHistoric, String pointFbId) {
-        try {
-            DocumentReference docRef = collectionReference.document(pointFbId).collection("history").document();
-            String id = docRef.getId();
-            pointHistoric.setFbId(id);
-            docRef.set(pointHistoric.toMap()).get();
-            return pointHistoric;
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException("Failed to save point historic to Firestore", e);
+        return FirestoreFutures.await(saveAsync(pointHistoric, pointFbId));
+    }
+
+    public CompletableFuture<PointHistoric> saveAsync(PointHistoric pointHistoric, String pointFbId) {
+        if (pointHistoric.getFbId() == null) {
+            pointHistoric.setFbId(pointHistoric.getId() != null ? "ph-" + pointHistoric.getId() : store.newId());
         }
+        return store.writeAsync(history(pointFbId), new FirestoreBatchWriter.Write(pointHistoric.getFbId(), pointHistoric.toMap(), true))
+            .thenApply(result -> pointHistoric)
+            .exceptionally(e -> {
+                throw new RuntimeException("Failed to save point historic to Firestore", FirestoreFutures.unwrap(e));
+            });
     }
 
     public List<PointHistoric> findByPointFbId(String pointFbId) {
         try {
-            var query = collectionReference.document(pointFbId).collection("history").get();
-            var documents = query.get().getDocuments();
             List<PointHistoric> history = new ArrayList<>();
-            for (var doc : documents) {
-                Map<String, Object> data = doc.getData();
-                if (data != null) {
-                    PointHistoric historic = mapToPointHistoric(data);
+            for (DocumentStore.StoredDocument doc : FirestoreFutures.await(store.query(DocumentQuery.collection(history(pointFbId))))) {
+                if (doc.data() != null) {
+                    PointHistoric historic = mapToPointHistoric(doc.data());
                     // IMPORTANT: fbId is the Firestore document id of the historic entry,
                     // not the parent point fbId. Sync relies on this to de-dup.
-                    historic.setFbId(doc.getId());
+                    historic.setFbId(doc.id());
                     history.add(historic);
                 }
             }
@@ -70,6 +80,70 @@ public class FirebasePointHistoricRepository {
         }
     }
 
+    /**
+     * A history entry read through the collection group, with the fbId of the point it belongs to.
+     */
+    public record RemoteHistoric(String pointFbId, PointHistoric historic) {}
+
+    /**
+     * Every point history entry in a single collectionGroup("history") query, or only those dated after since.
+     * users/{id}/history shares the group name, so only entries under points/ are kept.
+     * The date filter needs the collection-group scope of the date_ single-field index; without it the query
+     * fails and the caller should fall back to since = null.
+     */
+    public List<RemoteHistoric> findAllSince(LocalDateTime since) {
+        return FirestoreFutures.await(findAllSinceAsync(since));
+    }
+
+    public CompletableFuture<List<RemoteHistoric>> findAllSinceAsync(LocalDateTime since) {
+        DocumentQuery query = DocumentQuery.group("history");
+        if (since != null) {
+            query = query.whereGreaterThan("date_", com.google.cloud.Timestamp.of(java.sql.Timestamp.valueOf(since)));
+        }
+        return store.query(query)
+            .thenApply(docs -> {
+                List<RemoteHistoric> history = new ArrayList<>();
+                for (DocumentStore.StoredDocument doc : docs) {
+                    RemoteHistoric remote = fromDocument(doc);
+                    if (remote != null) history.add(remote);
+                }
+                return history;
+            })
+            .exceptionally(e -> {
+                throw new RuntimeException("Failed to fetch point history from Firestore", FirestoreFutures.unwrap(e));
+            });
+    }
+
+    /**
+     * Firestore query watched by the snapshot listener (same filter as findAllSince). Results still go through
+     * fromDocument.
+     */
+    public Query sinceQuery(LocalDateTime since) {
+        Query query = FirestoreClient.getFirestore().collectionGroup("history");
+        if (since != null) {
+            query = query.whereGreaterThan("date_", com.google.cloud.Timestamp.of(java.sql.Timestamp.valueOf(since)));
+        }
+        return query;
+    }
+
+    /**
+     * Maps one points/{pointFbId}/history/{fbId} document from a snapshot listener, null for a history entry of
+     * another collection.
+     */
+    public RemoteHistoric fromDocument(DocumentSnapshot doc) {
+        return fromDocument(FirestoreDocumentStore.toStored(doc));
+    }
+
+    public RemoteHistoric fromDocument(DocumentStore.StoredDocument doc) {
+        String[] path = doc.path().split("/");
+        if (path.length != 4 || !FirebasePointRepository.COLLECTION.equals(path[0]) || doc.data() == null) {
+            return null;
+        }
+        PointHistoric historic = mapToPointHistoric(doc.data());
+        historic.setFbId(doc.id());
+        return new RemoteHistoric(path[1], historic);
+    }
+
     private PointHistoric mapToPointHistoric(Map<String, Object> data) {
         PointHistoric historic = new PointHistoric();
         if (data.get("id") != null) {
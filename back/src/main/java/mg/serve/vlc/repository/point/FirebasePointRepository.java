@@ -6,41 +6,155 @@ import mg.serve.vlc.model.map.PointType;
 import mg.serve.vlc.exception.BusinessLogicException;
 import mg.serve.vlc.model.map.Factory;
 import mg.serve.vlc.model.user.User;
+import mg.serve.vlc.repository.store.DocumentQuery;
+import mg.serve.vlc.repository.store.DocumentStore;
+import mg.serve.vlc.repository.store.FirestoreDocumentStore;
+import mg.serve.vlc.util.ContentHash;
+import mg.serve.vlc.util.FieldMask;
+import mg.serve.vlc.util.FirestoreBatchWriter;
+import mg.serve.vlc.util.FirestoreFutures;
+import mg.serve.vlc.util.FirestoreReader;
 import com.google.firebase.cloud.FirestoreClient;
-import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.GeoPoint;
+import com.google.cloud.firestore.Query;
 import com.google.cloud.Timestamp;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class FirebasePointRepository implements PointRepository {
+    public static final String COLLECTION = "points";
+
+    private final DocumentStore store;
+
+    public FirebasePointRepository() {
+        this(new FirestoreDocumentStore());
+    }
+
+    public FirebasePointRepository(DocumentStore store) {
+        this.store = store;
+    }
 
     @Override
     public List<Point> findAll() {
         try {
-            Firestore firestore = FirestoreClient.getFirestore();
-            Iterable<com.google.cloud.firestore.DocumentReference> docs = firestore.collection("points").listDocuments();
-            List<Point> points = new ArrayList<>();
-
-            for (com.google.cloud.firestore.DocumentReference doc : docs) {
-                Map<String, Object> data = doc.get().get().getData();
-                if (data != null) {
-                    Point point = mapToPoint(data);
-                    point.setFbId(doc.getId());
-                    points.add(point);
-                }
-            }
-
-            return points;
+            // One query for the whole collection instead of one get() per document
+            return toPoints(FirestoreFutures.await(store.query(DocumentQuery.collection(COLLECTION))));
         } catch (Exception e) {
             System.err.println("Error fetching all points from Firebase: " + e.getMessage());
             throw new RuntimeException("Failed to fetch all points from Firebase", e);
         }
     }
 
+    /**
+     * Points whose updatedAt is strictly after since (delta pull). Documents without updatedAt are only seen by findAll().
+     */
+    public List<Point> findUpdatedSince(LocalDateTime since) {
+        return FirestoreFutures.await(findUpdatedSinceAsync(since));
+    }
+
+    public CompletableFuture<List<Point>> findUpdatedSinceAsync(LocalDateTime since) {
+        DocumentQuery query = DocumentQuery.collection(COLLECTION);
+        if (since != null) {
+            query = query.whereGreaterThan("updatedAt", Timestamp.of(java.sql.Timestamp.valueOf(since)));
+        }
+        return store.query(query)
+            .thenApply(docs -> {
+                try {
+                    return toPoints(docs);
+                } catch (BusinessLogicException e) {
+                    throw new CompletionException(e);
+                }
+            })
+            .exceptionally(e -> {
+                System.err.println("Error fetching updated points from Firebase: " + FirestoreFutures.unwrap(e).getMessage());
+                throw new RuntimeException("Failed to fetch updated points from Firebase", FirestoreFutures.unwrap(e));
+            });
+    }
+
+    /**
+     * (fbId, content hash, updatedAt) of every point through a projection query: no other field is transferred.
+     */
+    public List<ContentHash.Stamp> findContentStamps() {
+        return FirestoreFutures.await(findContentStampsAsync());
+    }
+
+    public CompletableFuture<List<ContentHash.Stamp>> findContentStampsAsync() {
+        return store.query(DocumentQuery.collection(COLLECTION).select("contentHash", "contentHashAt", "updatedAt"))
+            .thenApply(docs -> {
+                List<ContentHash.Stamp> stamps = new ArrayList<>(docs.size());
+                for (DocumentStore.StoredDocument doc : docs) {
+                    Object updatedAt = doc.data().get("updatedAt");
+                    stamps.add(new ContentHash.Stamp(doc.id(), doc.id(), ContentHash.trusted(doc.data()),
+                        updatedAt != null ? parseTimestamp(updatedAt) : null));
+                }
+                return stamps;
+            })
+            .exceptionally(e -> {
+                throw new RuntimeException("Failed to fetch point hashes from Firebase", FirestoreFutures.unwrap(e));
+            });
+    }
+
+    /**
+     * Full documents of the given points (missing ones are skipped).
+     */
+    public List<Point> findByFbIds(Collection<String> fbIds) {
+        List<Point> points = new ArrayList<>();
+        forEachByFbIds(fbIds, FirestoreReader.DEFAULT_CHUNK_SIZE, FirestoreReader.DEFAULT_MAX_IN_FLIGHT, points::add);
+        return points;
+    }
+
+    /**
+     * Streams the given points to consumer, read through batched getAll calls (see FirestoreReader).
+     */
+    public void forEachByFbIds(Collection<String> fbIds, int chunkSize, int maxInFlight, java.util.function.Consumer<Point> consumer) {
+        if (fbIds.isEmpty()) return;
+        store.getAll(COLLECTION, new ArrayList<>(fbIds), chunkSize, maxInFlight, doc -> {
+            try {
+                consumer.accept(fromDocument(doc));
+            } catch (BusinessLogicException e) {
+                throw new RuntimeException("Failed to read point " + doc.id() + " from Firebase", e);
+            }
+        });
+    }
+
+    /**
+     * Firestore query watched by the snapshot listener (same filter as findUpdatedSince); a null since watches the
+     * whole collection.
+     */
+    public Query updatedSinceQuery(LocalDateTime since) {
+        Query query = FirestoreClient.getFirestore().collection(COLLECTION);
+        if (since == null) return query;
+        return query.whereGreaterThan("updatedAt", Timestamp.of(java.sql.Timestamp.valueOf(since))).orderBy("updatedAt");
+    }
+
+    private List<Point> toPoints(List<DocumentStore.StoredDocument> docs) throws BusinessLogicException {
+        List<Point> points = new ArrayList<>(docs.size());
+        for (DocumentStore.StoredDocument doc : docs) {
+            points.add(fromDocument(doc));
+        }
+        return points;
+    }
+
+    /**
+     * Maps one points/{fbId} document from a snapshot listener.
+     */
+    public Point fromDocument(DocumentSnapshot doc) throws BusinessLogicException {
+        return fromDocument(FirestoreDocumentStore.toStored(doc));
+    }
+
+    public Point fromDocument(DocumentStore.StoredDocument doc) throws BusinessLogicException {
+        Point point = mapToPoint(doc.data());
+        point.setFbId(doc.id());
+        point.setRemoteState(new FieldMask.RemoteState(doc.data(), doc.updateTime()));
+        return point;
+    }
+
     @Override
     public List<Point> findByPointStateId(Integer pointStateId) {
         return findAll().stream()
@@ -51,18 +165,22 @@ public class FirebasePointRepository implements PointRepository {
     @Override
     public Point save(Point point) {
         try {
-            Firestore firestore = FirestoreClient.getFirestore();
             String fbId = point.getFbId();
             boolean isNew = fbId == null;
             if (isNew) {
-                fbId = firestore.collection("points").document().getId();
+                fbId = store.newId();
                 point.setFbId(fbId);
             }
+            FirestoreBatchWriter.Write write;
             if (isNew) {
-                firestore.collection("points").document(fbId).set(point.toMap()).get();
+                write = new FirestoreBatchWriter.Write(fbId, point.toMap(), true);
+            } else if (point.getRemoteState() != null) {
+                write = FirestoreBatchWriter.Write.fields(fbId,
+                    FieldMask.diff(point.getRemoteState().data(), point.toMap()), point.getRemoteState().updateTime());
             } else {
-                firestore.collection("points").document(fbId).update(point.toMap()).get();
+                write = new FirestoreBatchWriter.Write(fbId, point.toMap(), false);
             }
+            FirestoreFutures.await(store.writeAsync(COLLECTION, write));
             return point;
         } catch (Exception e) {
             System.err.println("Error saving point to Firebase: " + e.getMessage());
@@ -70,6 +188,33 @@ public class FirebasePointRepository implements PointRepository {
         }
     }
 
+    public Map<String, String> saveAll(List<Point> points, Set<String> create, int maxInFlight) {
+        return saveAll(points, create, Map.of(), maxInFlight);
+    }
+
+    /**
+     * Batched save: points without fbId (or listed in create) are created, the others updated.
+     * An update whose last read state is in remoteStates (by fbId) only sends the changed fields.
+     * fbIds ("pt-" + id for local points) are assigned before anything is written. Returns the points that failed, fbId -> error.
+     */
+    public Map<String, String> saveAll(List<Point> points, Set<String> create, Map<String, FieldMask.RemoteState> remoteStates, int maxInFlight) {
+        List<FirestoreBatchWriter.Write> writes = new ArrayList<>();
+        for (Point point : points) {
+            boolean isNew = point.getFbId() == null || create.contains(point.getFbId());
+            if (point.getFbId() == null) {
+                // Stable id: a push repeated after a crash overwrites the same document instead of duplicating it
+                point.setFbId(point.getId() != null ? "pt-" + point.getId() : store.newId());
+            }
+            FieldMask.RemoteState remote = isNew ? null : remoteStates.get(point.getFbId());
+            if (remote != null) {
+                writes.add(FirestoreBatchWriter.Write.fields(point.getFbId(), FieldMask.diff(remote.data(), point.toMap()), remote.updateTime()));
+            } else {
+                writes.add(new FirestoreBatchWriter.Write(point.getFbId(), point.toMap(), isNew));
+            }
+        }
+        return store.write(COLLECTION, writes, maxInFlight);
+    }
+
     public Optional<Point> findById(Integer pid) {
         throw new UnsupportedOperationException("findById is not supported in FirebasePointRepository");
     }
@@ -88,6 +233,7 @@ public class FirebasePointRepository implements PointRepository {
         if (data.get("updatedAt") != null) {
             point.setUpdatedAt(parseTimestamp(data.get("updatedAt")));
         }
+        point.setContentHash(ContentHash.trusted(data));
         if (data.get("deletedAt") != null) {
             point.setDeletedAt(parseTimestamp(data.get("deletedAt")));
         }
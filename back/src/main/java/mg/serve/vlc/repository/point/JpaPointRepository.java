@@ -1,9 +1,17 @@
 package mg.serve.vlc.repository.point;
 
+import mg.serve.vlc.dto.PointListItemDTO;
 import mg.serve.vlc.model.map.Point;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 import java.util.*;
 
 @Repository
@@ -11,6 +19,270 @@ public interface JpaPointRepository extends JpaRepository<Point, Integer>, Point
     List<Point> findAll();
     List<Point> findByPointStateId(Integer pointStateId);
     List<Point> findByDeletedAtIsNull();
+    List<Point> findByFbIdIn(Collection<String> fbIds);
     Optional<Point> findById(Integer pid);
     Optional<Point> findByFbId(String fbId);
-}
\ No newline at end of file
+
+    /**
+     * One page of live points, filtered in SQL and ordered by id so that afterId works as a keyset cursor.
+     * Every filter is optional (null = ignored). The page size comes from the Pageable.
+     */
+    @Query("""
+        SELECT new mg.serve.vlc.dto.PointListItemDTO(
+            p.id,
+            p.date,
+            p.updatedAt,
+            p.surface,
+            p.budget,
+            p.level,
+            p.coordinates,
+            ps.id,
+            ps.label,
+            ps.progress,
+            pt.id,
+            pt.label
+        )
+        FROM Point p
+        LEFT JOIN p.pointState ps
+        LEFT JOIN p.pointType pt
+        WHERE p.deletedAt IS NULL
+          AND (:afterId IS NULL OR p.id > :afterId)
+          AND (:pointStateId IS NULL OR ps.id = :pointStateId)
+          AND (:pointTypeId IS NULL OR pt.id = :pointTypeId)
+          AND (:level IS NULL OR p.level = :level)
+          AND (:dateFrom IS NULL OR p.date >= :dateFrom)
+          AND (:dateTo IS NULL OR p.date <= :dateTo)
+          AND (:updatedSince IS NULL OR COALESCE(p.updatedAt, p.date) >= :updatedSince)
+        ORDER BY p.id ASC
+    """)
+    List<PointListItemDTO> findLivePage(
+        @Param("afterId") Integer afterId,
+        @Param("pointStateId") Integer pointStateId,
+        @Param("pointTypeId") Integer pointTypeId,
+        @Param("level") Integer level,
+        @Param("dateFrom") LocalDateTime dateFrom,
+        @Param("dateTo") LocalDateTime dateTo,
+        @Param("updatedSince") LocalDateTime updatedSince,
+        Pageable pageable
+    );
+
+    /**
+     * Same projection as findLivePage, for an explicit set of ids (e.g. the result of a spatial query).
+     */
+    @Query("""
+        SELECT new mg.serve.vlc.dto.PointListItemDTO(
+            p.id,
+            p.date,
+            p.updatedAt,
+            p.surface,
+            p.budget,
+            p.level,
+            p.coordinates,
+            ps.id,
+            ps.label,
+            ps.progress,
+            pt.id,
+            pt.label
+        )
+        FROM Point p
+        LEFT JOIN p.pointState ps
+        LEFT JOIN p.pointType pt
+        WHERE p.id IN :pointIds
+        ORDER BY p.id ASC
+    """)
+    List<PointListItemDTO> findListItemsByIds(@Param("pointIds") Collection<Integer> pointIds);
+
+    /**
+     * Ids of live points inside a lon/lat bounding box after afterId, in id order (served by the GiST index on
+     * coordinates).
+     */
+    @Query(
+        value = """
+            SELECT p.id FROM point p
+            WHERE p.deleted_at IS NULL
+              AND ST_Intersects(p.coordinates, ST_MakeEnvelope(:minLon, :minLat, :maxLon, :maxLat, 4326))
+              AND p.id > :afterId
+            ORDER BY p.id
+            LIMIT :maxResults
+        """,
+        nativeQuery = true)
+    List<Integer> findLiveIdsWithin(
+        @Param("minLon") double minLon,
+        @Param("minLat") double minLat,
+        @Param("maxLon") double maxLon,
+        @Param("maxLat") double maxLat,
+        @Param("afterId") int afterId,
+        @Param("maxResults") int maxResults
+    );
+
+    /**
+     * Ids of live points within radiusMeters of (lon, lat), nearest first
+     * (served by the GiST index on CAST(coordinates AS geography)).
+     */
+    @Query(
+        value = """
+            SELECT p.id FROM point p
+            WHERE p.deleted_at IS NULL
+              AND ST_DWithin(CAST(p.coordinates AS geography), CAST(ST_SetSRID(ST_MakePoint(:lon, :lat), 4326) AS geography), :radiusMeters)
+            ORDER BY CAST(p.coordinates AS geography) <-> CAST(ST_SetSRID(ST_MakePoint(:lon, :lat), 4326) AS geography)
+            LIMIT :maxResults
+        """,
+        nativeQuery = true)
+    List<Integer> findLiveIdsNear(
+        @Param("lon") double lon,
+        @Param("lat") double lat,
+        @Param("radiusMeters") double radiusMeters,
+        @Param("maxResults") int maxResults
+    );
+
+    /**
+     * Live points of a bounding box grouped on a gridSize-degree grid (ST_SnapToGrid), biggest clusters first.
+     * Rows are [count, centroidLon, centroidLat, sumBudget, sumSurface, maxLevel, minId]. Callers size the grid so
+     * the box spans at most maxResults cells; the limit is only a safety net.
+     */
+    @Query(
+        value = """
+            SELECT COUNT(*),
+                   ST_X(ST_Centroid(ST_Collect(p.coordinates))),
+                   ST_Y(ST_Centroid(ST_Collect(p.coordinates))),
+                   COALESCE(SUM(p.budget), 0),
+                   COALESCE(SUM(p.surface), 0),
+                   MAX(p.level_),
+                   MIN(p.id)
+            FROM point p
+            WHERE p.deleted_at IS NULL
+              AND ST_Intersects(p.coordinates, ST_MakeEnvelope(:minLon, :minLat, :maxLon, :maxLat, 4326))
+            GROUP BY ST_SnapToGrid(p.coordinates, :gridSize)
+            ORDER BY COUNT(*) DESC, MIN(p.id)
+            LIMIT :maxResults
+        """,
+        nativeQuery = true)
+    List<Object[]> findLiveClustersWithin(
+        @Param("minLon") double minLon,
+        @Param("minLat") double minLat,
+        @Param("maxLon") double maxLon,
+        @Param("maxLat") double maxLat,
+        @Param("gridSize") double gridSize,
+        @Param("maxResults") int maxResults
+    );
+
+    /**
+     * Mapbox Vector Tile (layer "points") of the live points in tile z/x/y.
+     * Feature attributes mirror the GET /points fields: id, stateId, typeId, level, budget.
+     */
+    @Query(
+        value = """
+            WITH bounds AS (
+                SELECT ST_TileEnvelope(:z, :x, :y) AS geom
+            ),
+            features AS (
+                SELECT ST_AsMVTGeom(ST_Transform(p.coordinates, 3857), bounds.geom) AS geom,
+                       p.id AS "id",
+                       p.point_state_id AS "stateId",
+                       p.point_type_id AS "typeId",
+                       p.level_ AS "level",
+                       p.budget AS "budget"
+                FROM point p, bounds
+                WHERE p.deleted_at IS NULL
+                  AND ST_Intersects(p.coordinates, ST_Transform(bounds.geom, 4326))
+            )
+            SELECT ST_AsMVT(features.*, 'points', 4096, 'geom') FROM features
+        """,
+        nativeQuery = true)
+    byte[] findLiveTile(@Param("z") int z, @Param("x") int x, @Param("y") int y);
+
+    /**
+     * Factories of the given points as [pointId, factoryId, factoryLabel] rows, so a page needs a single extra query.
+     */
+    @Query("SELECT p.id, f.id, f.label FROM Point p JOIN p.factories f WHERE p.id IN :pointIds ORDER BY p.id, f.id")
+    List<Object[]> findFactoryRowsByPointIds(@Param("pointIds") Collection<Integer> pointIds);
+
+    /**
+     * [id, fbId, contentHash] of every point, the local side of a hash-based full sync without loading entities.
+     */
+    @Query("SELECT p.id, p.fbId, p.contentHash FROM Point p")
+    List<Object[]> findSyncStamps();
+
+    /**
+     * [id, fbId] of every pushed point, what the history sync needs to map point ids to fbIds without entities.
+     */
+    @Query("SELECT p.id, p.fbId FROM Point p WHERE p.fbId IS NOT NULL")
+    List<Object[]> findFbIdRefs();
+
+    @Query("SELECT p.id, p.fbId FROM Point p WHERE p.fbId IN :fbIds")
+    List<Object[]> findFbIdRefsByFbIdIn(@Param("fbIds") Collection<String> fbIds);
+
+    @Query("SELECT p.id, p.fbId FROM Point p WHERE p.id IN :ids AND p.fbId IS NOT NULL")
+    List<Object[]> findFbIdRefsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Stores a hash without going through the entity callbacks (points repriced in bulk SQL).
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Point p SET p.contentHash = :hash WHERE p.id = :id")
+    int updateContentHash(@Param("id") Integer id, @Param("hash") String hash);
+
+    /**
+     * Reprice candidates: live points whose budget is not surface * level * price yet. Finished works
+     * (state progress 1) keep the budget they were done with.
+     */
+    String REPRICE_CANDIDATE = """
+        p.deleted_at IS NULL
+          AND p.surface > 0
+          AND p.budget IS DISTINCT FROM p.surface * p.level_ * :price
+          AND NOT EXISTS (SELECT 1 FROM point_state s WHERE s.id = p.point_state_id AND s.progress >= 1)
+        """;
+
+    @Query(value = "SELECT COUNT(*) FROM point p WHERE " + REPRICE_CANDIDATE, nativeQuery = true)
+    long countRepriceCandidates(@Param("price") double price);
+
+    /**
+     * Ids of the next chunk of reprice candidates after afterId, in id order.
+     */
+    @Query(
+        value = "SELECT p.id FROM point p WHERE " + REPRICE_CANDIDATE + " AND p.id > :afterId ORDER BY p.id LIMIT :chunkSize",
+        nativeQuery = true)
+    List<Integer> findRepriceChunk(@Param("price") double price, @Param("afterId") int afterId, @Param("chunkSize") int chunkSize);
+
+    /**
+     * Reprices the given candidates in one statement: budgets are updated set-based, a point_historic row is
+     * written for each updated point and both are queued in sync_outbox. Points that stopped being candidates
+     * since findRepriceChunk are left alone.
+     * content_hash is cleared since it cannot be computed in SQL (sync compares those points field by field).
+     * Returns the number of points updated; each call is its own transaction, so an interrupted job can simply
+     * be restarted.
+     */
+    @Modifying
+    @Transactional
+    @Query(
+        value = """
+            WITH updated AS (
+                UPDATE point p
+                SET budget = p.surface * p.level_ * :price,
+                    updated_at = :date,
+                    content_hash = NULL
+                WHERE p.id IN (:ids) AND """ + REPRICE_CANDIDATE + """
+                RETURNING p.id, p.surface, p.budget, p.coordinates, p.point_state_id
+            ),
+            historic AS (
+                INSERT INTO point_historic(date_, surface, budget, coordinates, point_id, point_state_id)
+                SELECT :date, u.surface, u.budget, u.coordinates, u.id, u.point_state_id
+                FROM updated u
+                WHERE u.point_state_id IS NOT NULL
+                RETURNING id
+            ),
+            historic_outbox AS (
+                INSERT INTO sync_outbox(entity_type, entity_id, operation, created_at)
+                SELECT 'POINT_HISTORIC', h.id, 'SAVE', :date FROM historic h
+            )
+            INSERT INTO sync_outbox(entity_type, entity_id, operation, created_at)
+            SELECT 'POINT', u.id, 'SAVE', :date FROM updated u
+        """,
+        nativeQuery = true)
+    int repriceChunk(
+        @Param("ids") Collection<Integer> ids,
+        @Param("price") double price,
+        @Param("date") LocalDateTime date
+    );
+}
@@ -0,0 +1,81 @@
+package mg.serve.vlc.repository.store;
+
+import mg.serve.vlc.util.FirestoreBatchWriter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Counts the operations made through another DocumentStore: calls (queries, getAll, batched writes, single writes
+ * and deletes), documents read and documents written. Used by the sync benchmark to report Firestore ops per phase.
+ */
+public class CountingDocumentStore implements DocumentStore {
+    public record Counts(long calls, long documentsRead, long documentsWritten) {
+        public Counts minus(Counts before) {
+            return new Counts(calls - before.calls, documentsRead - before.documentsRead, documentsWritten - before.documentsWritten);
+        }
+    }
+
+    private final DocumentStore delegate;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder documentsRead = new LongAdder();
+    private final LongAdder documentsWritten = new LongAdder();
+
+    public CountingDocumentStore(DocumentStore delegate) {
+        this.delegate = delegate;
+    }
+
+    public DocumentStore delegate() {
+        return delegate;
+    }
+
+    public Counts counts() {
+        return new Counts(calls.sum(), documentsRead.sum(), documentsWritten.sum());
+    }
+
+    @Override
+    public String newId() {
+        return delegate.newId();
+    }
+
+    @Override
+    public CompletableFuture<List<StoredDocument>> query(DocumentQuery query) {
+        calls.increment();
+        return delegate.query(query).thenApply(docs -> {
+            documentsRead.add(docs.size());
+            return docs;
+        });
+    }
+
+    @Override
+    public void getAll(String collection, List<String> ids, int chunkSize, int maxInFlight, Consumer<StoredDocument> consumer) {
+        calls.add((ids.size() + Math.max(1, chunkSize) - 1) / Math.max(1, chunkSize));
+        delegate.getAll(collection, ids, chunkSize, maxInFlight, doc -> {
+            documentsRead.increment();
+            consumer.accept(doc);
+        });
+    }
+
+    @Override
+    public Map<String, String> write(String collection, List<FirestoreBatchWriter.Write> writes, int maxInFlight) {
+        calls.add((writes.size() + FirestoreBatchWriter.MAX_BATCH_SIZE - 1) / FirestoreBatchWriter.MAX_BATCH_SIZE);
+        Map<String, String> failed = delegate.write(collection, writes, maxInFlight);
+        documentsWritten.add(writes.size() - failed.size());
+        return failed;
+    }
+
+    @Override
+    public CompletableFuture<Void> writeAsync(String collection, FirestoreBatchWriter.Write write) {
+        calls.increment();
+        return delegate.writeAsync(collection, write).thenRun(documentsWritten::increment);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String collection, String id) {
+        calls.increment();
+        return delegate.delete(collection, id).thenRun(documentsWritten::increment);
+    }
+}
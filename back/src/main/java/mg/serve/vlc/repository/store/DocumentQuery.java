@@ -0,0 +1,32 @@
+package mg.serve.vlc.repository.store;
+
+import java.util.List;
+
+/**
+ * The query shapes used by the repositories: a collection (or a collection group, i.e. every subcollection with
+ * that name), at most one filter, and an optional projection. A greaterThan filter also orders by its field.
+ */
+public record DocumentQuery(String collection, boolean group, String field, Operator operator, Object value, List<String> select) {
+
+    public enum Operator { EQUAL, GREATER_THAN }
+
+    public static DocumentQuery collection(String collection) {
+        return new DocumentQuery(collection, false, null, null, null, null);
+    }
+
+    public static DocumentQuery group(String collectionId) {
+        return new DocumentQuery(collectionId, true, null, null, null, null);
+    }
+
+    public DocumentQuery whereEqualTo(String field, Object value) {
+        return new DocumentQuery(collection, group, field, Operator.EQUAL, value, select);
+    }
+
+    public DocumentQuery whereGreaterThan(String field, Object value) {
+        return new DocumentQuery(collection, group, field, Operator.GREATER_THAN, value, select);
+    }
+
+    public DocumentQuery select(String... fields) {
+        return new DocumentQuery(collection, group, field, operator, value, List.of(fields));
+    }
+}
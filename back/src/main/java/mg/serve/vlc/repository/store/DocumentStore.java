@@ -0,0 +1,56 @@
+package mg.serve.vlc.repository.store;
+
+import com.google.cloud.Timestamp;
+import mg.serve.vlc.util.FirestoreBatchWriter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * The document operations the Firebase repositories need, so they can run against Firestore
+ * ({@link FirestoreDocumentStore}) or against {@link InMemoryDocumentStore} in tests and benchmarks.
+ *
+ * Collections are slash-separated paths ("points", "users/{fbId}/history"). Snapshot listeners stay on the
+ * Firestore client (see FirestoreListenerService).
+ */
+public interface DocumentStore {
+
+    /**
+     * One stored document: its full path (e.g. points/{fbId}/history/{id}), data and last update time.
+     */
+    record StoredDocument(String path, Map<String, Object> data, Timestamp updateTime) {
+        public String id() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        /**
+         * Path of the collection holding the document, e.g. points/{fbId}/history.
+         */
+        public String collection() {
+            return path.substring(0, path.lastIndexOf('/'));
+        }
+    }
+
+    /**
+     * A new random document id, as Firestore generates them.
+     */
+    String newId();
+
+    CompletableFuture<List<StoredDocument>> query(DocumentQuery query);
+
+    /**
+     * Streams the existing documents among ids, read chunkSize at a time with at most maxInFlight reads running.
+     */
+    void getAll(String collection, List<String> ids, int chunkSize, int maxInFlight, Consumer<StoredDocument> consumer);
+
+    /**
+     * Batched writes (see FirestoreBatchWriter.Write). Returns the documents that could not be written, id -> error.
+     */
+    Map<String, String> write(String collection, List<FirestoreBatchWriter.Write> writes, int maxInFlight);
+
+    CompletableFuture<Void> writeAsync(String collection, FirestoreBatchWriter.Write write);
+
+    CompletableFuture<Void> delete(String collection, String id);
+}
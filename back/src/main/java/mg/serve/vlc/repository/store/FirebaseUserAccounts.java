@@ -0,0 +1,55 @@
+package mg.serve.vlc.repository.store;
+
+import com.google.firebase.auth.AuthErrorCode;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.UserRecord;
+import com.google.firebase.auth.UserRecord.CreateRequest;
+import com.google.firebase.auth.UserRecord.UpdateRequest;
+
+import java.util.Optional;
+
+public class FirebaseUserAccounts implements UserAccounts {
+
+    @Override
+    public Optional<Account> findByEmail(String email) {
+        try {
+            UserRecord record = FirebaseAuth.getInstance().getUserByEmail(email);
+            return Optional.of(new Account(record.getUid(), record.getEmail(), record.getDisplayName()));
+        } catch (FirebaseAuthException e) {
+            if (e.getAuthErrorCode() == AuthErrorCode.USER_NOT_FOUND) return Optional.empty();
+            throw new RuntimeException("Failed to look up Firebase user " + email + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String create(String email, String password, String displayName) {
+        try {
+            CreateRequest request = new CreateRequest()
+                    .setEmail(email)
+                    .setPassword(password)
+                    .setDisplayName(displayName);
+            return FirebaseAuth.getInstance().createUser(request).getUid();
+        } catch (FirebaseAuthException e) {
+            throw new RuntimeException("Failed to create Firebase user " + email + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void updateDisplayName(String uid, String displayName) {
+        try {
+            FirebaseAuth.getInstance().updateUser(new UpdateRequest(uid).setDisplayName(displayName));
+        } catch (FirebaseAuthException e) {
+            throw new RuntimeException("Failed to update Firebase user " + uid + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void delete(String uid) {
+        try {
+            FirebaseAuth.getInstance().deleteUser(uid);
+        } catch (FirebaseAuthException e) {
+            throw new RuntimeException("Failed to delete Firebase user " + uid + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package mg.serve.vlc.repository.store;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.firebase.cloud.FirestoreClient;
+import mg.serve.vlc.util.FieldMask;
+import mg.serve.vlc.util.FirestoreBatchWriter;
+import mg.serve.vlc.util.FirestoreFutures;
+import mg.serve.vlc.util.FirestoreReader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * DocumentStore on the Firestore client of the default FirebaseApp, obtained on first use.
+ */
+public class FirestoreDocumentStore implements DocumentStore {
+    private volatile Firestore firestore;
+
+    private Firestore firestore() {
+        if (firestore == null) {
+            firestore = FirestoreClient.getFirestore();
+        }
+        return firestore;
+    }
+
+    public static StoredDocument toStored(DocumentSnapshot doc) {
+        return new StoredDocument(doc.getReference().getPath(), doc.getData(), doc.getUpdateTime());
+    }
+
+    @Override
+    public String newId() {
+        return firestore().collection("_").document().getId();
+    }
+
+    @Override
+    public CompletableFuture<List<StoredDocument>> query(DocumentQuery query) {
+        Query q = query.group() ? firestore().collectionGroup(query.collection()) : firestore().collection(query.collection());
+        if (query.operator() == DocumentQuery.Operator.EQUAL) {
+            q = q.whereEqualTo(query.field(), query.value());
+        } else if (query.operator() == DocumentQuery.Operator.GREATER_THAN) {
+            q = q.whereGreaterThan(query.field(), query.value()).orderBy(query.field());
+        }
+        if (query.select() != null) {
+            q = q.select(query.select().toArray(String[]::new));
+        }
+        return FirestoreFutures.toCompletable(q.get()).thenApply(snapshot -> {
+            List<StoredDocument> docs = new ArrayList<>(snapshot.size());
+            snapshot.getDocuments().forEach(doc -> docs.add(toStored(doc)));
+            return docs;
+        });
+    }
+
+    @Override
+    public void getAll(String collection, List<String> ids, int chunkSize, int maxInFlight, Consumer<StoredDocument> consumer) {
+        List<DocumentReference> refs = ids.stream().map(firestore().collection(collection)::document).toList();
+        FirestoreReader.read(firestore(), refs, chunkSize, maxInFlight, doc -> consumer.accept(toStored(doc)));
+    }
+
+    @Override
+    public Map<String, String> write(String collection, List<FirestoreBatchWriter.Write> writes, int maxInFlight) {
+        return FirestoreBatchWriter.write(firestore().collection(collection), writes, maxInFlight);
+    }
+
+    @Override
+    public CompletableFuture<Void> writeAsync(String collection, FirestoreBatchWriter.Write write) {
+        DocumentReference doc = firestore().collection(collection).document(write.fbId());
+        if (write.create()) {
+            return FirestoreFutures.toCompletable(doc.set(write.data())).thenApply(result -> null);
+        }
+        if (write.fields() != null) {
+            if (write.fields().isEmpty()) return CompletableFuture.completedFuture(null);
+            return FirestoreFutures.toCompletable(FieldMask.updateAsync(doc, write.fields(), write.readAt())).thenApply(result -> null);
+        }
+        return FirestoreFutures.toCompletable(doc.update(write.data())).thenApply(result -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String collection, String id) {
+        return FirestoreFutures.toCompletable(firestore().collection(collection).document(id).delete()).thenApply(result -> null);
+    }
+}
@@ -0,0 +1,330 @@
+package mg.serve.vlc.repository.store;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.FieldPath;
+import mg.serve.vlc.util.ContentHash;
+import mg.serve.vlc.util.FirestoreBatchWriter;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Firestore stand-in for tests and benchmarks: documents live in a sorted map keyed by path, with the semantics
+ * the repositories rely on (update() of a missing document fails, updatedAt preconditions, batches of up to
+ * FirestoreBatchWriter.MAX_BATCH_SIZE applied atomically, integers read back as Long, monotonic update times).
+ *
+ * Every call is one simulated RPC: it completes after the configured latency and may fail with the configured
+ * rate (seeded, so runs are reproducible); writes to the paths matched by failingOn always fail. Nothing here
+ * blocks while holding the store lock.
+ */
+public class InMemoryDocumentStore implements DocumentStore {
+    private static final String ID_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    private final ConcurrentSkipListMap<String, StoredDocument> documents = new ConcurrentSkipListMap<>();
+    private final AtomicLong lastUpdateMicros = new AtomicLong();
+    private final AtomicLong rpcs = new AtomicLong();
+    private volatile long latencyMs = 0;
+    private volatile double failureRate = 0;
+    private volatile Random failures = new Random(0);
+    private volatile Predicate<String> failingPaths = path -> false;
+
+    public InMemoryDocumentStore withLatency(long latencyMs) {
+        this.latencyMs = Math.max(0, latencyMs);
+        return this;
+    }
+
+    /**
+     * Fails each RPC with the given probability (0 to 1); the same seed gives the same failures.
+     */
+    public InMemoryDocumentStore withFailureRate(double failureRate, long seed) {
+        this.failureRate = failureRate;
+        this.failures = new Random(seed);
+        return this;
+    }
+
+    /**
+     * Writes to the matching document paths (e.g. "points/abc") always fail, as a rejected document would.
+     */
+    public InMemoryDocumentStore failingOn(Predicate<String> paths) {
+        this.failingPaths = paths != null ? paths : path -> false;
+        return this;
+    }
+
+    public long rpcCount() {
+        return rpcs.get();
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public Optional<StoredDocument> get(String collection, String id) {
+        return Optional.ofNullable(documents.get(collection + "/" + id));
+    }
+
+    /**
+     * Seeds a document directly, without latency nor failures (test fixtures and generated data sets).
+     */
+    public StoredDocument put(String collection, String id, Map<String, Object> data) {
+        StoredDocument doc = new StoredDocument(collection + "/" + id, Collections.unmodifiableMap(normalizeMap(data)), nextUpdateTime());
+        documents.put(doc.path(), doc);
+        return doc;
+    }
+
+    @Override
+    public String newId() {
+        StringBuilder id = new StringBuilder(20);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 20; i++) {
+            id.append(ID_CHARS.charAt(random.nextInt(ID_CHARS.length())));
+        }
+        return id.toString();
+    }
+
+    @Override
+    public CompletableFuture<List<StoredDocument>> query(DocumentQuery query) {
+        return rpc(() -> {
+            Collection<StoredDocument> scope = query.group()
+                ? documents.values()
+                : documents.subMap(query.collection() + "/", query.collection() + "0").values(); // '0' follows '/'
+            List<StoredDocument> result = new ArrayList<>();
+            for (StoredDocument doc : scope) {
+                if (!inScope(query, doc) || !matches(query, doc)) continue;
+                result.add(query.select() != null ? project(doc, query.select()) : doc);
+            }
+            if (query.operator() == DocumentQuery.Operator.GREATER_THAN) {
+                result.sort((a, b) -> compare(a.data().get(query.field()), b.data().get(query.field())));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public void getAll(String collection, List<String> ids, int chunkSize, int maxInFlight, Consumer<StoredDocument> consumer) {
+        int size = Math.max(1, chunkSize);
+        Deque<CompletableFuture<List<StoredDocument>>> inFlight = new ArrayDeque<>();
+        for (int from = 0; from < ids.size(); from += size) {
+            List<String> chunk = ids.subList(from, Math.min(from + size, ids.size()));
+            if (inFlight.size() >= Math.max(1, maxInFlight)) {
+                inFlight.poll().join().forEach(consumer);
+            }
+            inFlight.add(rpc(() -> {
+                List<StoredDocument> found = new ArrayList<>();
+                for (String id : chunk) {
+                    StoredDocument doc = documents.get(collection + "/" + id);
+                    if (doc != null) found.add(doc);
+                }
+                return found;
+            }));
+        }
+        while (!inFlight.isEmpty()) {
+            inFlight.poll().join().forEach(consumer);
+        }
+    }
+
+    /**
+     * Same contract as FirestoreBatchWriter: a failed batch is retried document by document and only the documents
+     * that still fail are returned.
+     */
+    @Override
+    public Map<String, String> write(String collection, List<FirestoreBatchWriter.Write> writes, int maxInFlight) {
+        Map<String, String> failed = new LinkedHashMap<>();
+        writes = writes.stream().filter(w -> w.fields() == null || !w.fields().isEmpty()).toList(); // nothing changed
+        Deque<Map.Entry<List<FirestoreBatchWriter.Write>, CompletableFuture<Void>>> inFlight = new ArrayDeque<>();
+        for (int from = 0; from < writes.size(); from += FirestoreBatchWriter.MAX_BATCH_SIZE) {
+            List<FirestoreBatchWriter.Write> chunk = writes.subList(from, Math.min(from + FirestoreBatchWriter.MAX_BATCH_SIZE, writes.size()));
+            if (inFlight.size() >= Math.max(1, maxInFlight)) {
+                awaitBatch(collection, inFlight.poll(), failed);
+            }
+            inFlight.add(Map.entry(chunk, rpc(() -> apply(collection, chunk))));
+        }
+        while (!inFlight.isEmpty()) {
+            awaitBatch(collection, inFlight.poll(), failed);
+        }
+        return failed;
+    }
+
+    @Override
+    public CompletableFuture<Void> writeAsync(String collection, FirestoreBatchWriter.Write write) {
+        if (write.fields() != null && write.fields().isEmpty()) return CompletableFuture.completedFuture(null);
+        return rpc(() -> apply(collection, List.of(write)));
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String collection, String id) {
+        return rpc(() -> {
+            documents.remove(collection + "/" + id);
+            return null;
+        });
+    }
+
+    private void awaitBatch(String collection, Map.Entry<List<FirestoreBatchWriter.Write>, CompletableFuture<Void>> batch,
+                            Map<String, String> failed) {
+        try {
+            batch.getValue().join();
+        } catch (CompletionException e) {
+            for (FirestoreBatchWriter.Write w : batch.getKey()) {
+                try {
+                    writeAsync(collection, w).join();
+                } catch (CompletionException single) {
+                    failed.put(w.fbId(), single.getCause().getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the writes all or nothing: every write is checked against the current documents before any is stored.
+     */
+    private Void apply(String collection, List<FirestoreBatchWriter.Write> writes) {
+        synchronized (documents) {
+            Map<String, StoredDocument> staged = new LinkedHashMap<>();
+            for (FirestoreBatchWriter.Write w : writes) {
+                String path = collection + "/" + w.fbId();
+                if (failingPaths.test(path)) {
+                    throw new IllegalStateException("UNAVAILABLE: injected failure for " + path);
+                }
+                StoredDocument current = staged.containsKey(path) ? staged.get(path) : documents.get(path);
+                Map<String, Object> data;
+                if (w.create()) {
+                    data = normalizeMap(w.data());
+                } else if (current == null) {
+                    throw new IllegalStateException("NOT_FOUND: No document to update: " + path);
+                } else if (w.fields() != null) {
+                    if (w.readAt() != null && !w.readAt().equals(current.updateTime())) {
+                        throw new IllegalStateException("FAILED_PRECONDITION: " + path + " was updated after " + w.readAt());
+                    }
+                    data = copy(current.data());
+                    for (Map.Entry<FieldPath, Object> field : w.fields().entrySet()) {
+                        setField(data, segments(field.getKey()), normalize(field.getValue()));
+                    }
+                } else {
+                    data = copy(current.data());
+                    data.putAll(normalizeMap(w.data()));
+                }
+                staged.put(path, new StoredDocument(path, data, null));
+            }
+            for (StoredDocument doc : staged.values()) {
+                documents.put(doc.path(), new StoredDocument(doc.path(), Collections.unmodifiableMap(doc.data()), nextUpdateTime()));
+            }
+            return null;
+        }
+    }
+
+    private <T> CompletableFuture<T> rpc(Supplier<T> operation) {
+        rpcs.incrementAndGet();
+        Supplier<T> call = () -> {
+            if (failureRate > 0 && failures.nextDouble() < failureRate) {
+                throw new IllegalStateException("UNAVAILABLE: injected failure");
+            }
+            return operation.get();
+        };
+        if (latencyMs <= 0) {
+            try {
+                return CompletableFuture.completedFuture(call.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(call, CompletableFuture.delayedExecutor(latencyMs, TimeUnit.MILLISECONDS));
+    }
+
+    private Timestamp nextUpdateTime() {
+        long now = System.currentTimeMillis() * 1000;
+        long micros = lastUpdateMicros.updateAndGet(last -> Math.max(last + 1, now));
+        return Timestamp.ofTimeMicroseconds(micros);
+    }
+
+    private static boolean inScope(DocumentQuery query, StoredDocument doc) {
+        String collection = doc.collection();
+        return query.group()
+            ? collection.equals(query.collection()) || collection.endsWith("/" + query.collection())
+            : collection.equals(query.collection());
+    }
+
+    private static boolean matches(DocumentQuery query, StoredDocument doc) {
+        if (query.operator() == null) return true;
+        Object value = doc.data().get(query.field());
+        if (value == null) return false; // Firestore leaves documents without the field out of filtered queries
+        return switch (query.operator()) {
+            case EQUAL -> ContentHash.sameValue(value, query.value());
+            case GREATER_THAN -> comparable(value, query.value()) && compare(value, query.value()) > 0;
+        };
+    }
+
+    private static StoredDocument project(StoredDocument doc, List<String> fields) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        for (String field : fields) {
+            if (doc.data().containsKey(field)) data.put(field, doc.data().get(field));
+        }
+        return new StoredDocument(doc.path(), data, doc.updateTime());
+    }
+
+    private static boolean comparable(Object a, Object b) {
+        return (a instanceof Number && b instanceof Number) || (a != null && b != null && a.getClass() == b.getClass() && a instanceof Comparable);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object a, Object b) {
+        if (a instanceof Number x && b instanceof Number y) return Double.compare(x.doubleValue(), y.doubleValue());
+        if (comparable(a, b)) return ((Comparable) a).compareTo(b);
+        return String.valueOf(a).compareTo(String.valueOf(b));
+    }
+
+    private static List<String> segments(FieldPath path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.toString().split("\\.")) {
+            segments.add(segment.replace("`", ""));
+        }
+        return segments;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void setField(Map<String, Object> data, List<String> segments, Object value) {
+        Map<String, Object> target = data;
+        for (String segment : segments.subList(0, segments.size() - 1)) {
+            Object child = target.get(segment);
+            Map<String, Object> next = child instanceof Map<?, ?> map ? new LinkedHashMap<>((Map<String, Object>) map) : new LinkedHashMap<>();
+            target.put(segment, next);
+            target = next;
+        }
+        target.put(segments.get(segments.size() - 1), value);
+    }
+
+    private static Map<String, Object> copy(Map<String, Object> data) {
+        return normalizeMap(data);
+    }
+
+    private static Map<String, Object> normalizeMap(Map<?, ?> data) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        if (data != null) {
+            data.forEach((k, v) -> copy.put(String.valueOf(k), normalize(v)));
+        }
+        return copy;
+    }
+
+    /**
+     * Stores values the way Firestore returns them: integral numbers as Long, floats as Double, dates as Timestamp.
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) return ((Number) value).longValue();
+        if (value instanceof Float f) return f.doubleValue();
+        if (value instanceof Date date) return Timestamp.of(date);
+        if (value instanceof Enum<?> e) return e.name();
+        if (value instanceof Map<?, ?> map) return normalizeMap(map);
+        if (value instanceof Collection<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(item -> copy.add(normalize(item)));
+            return copy;
+        }
+        return value;
+    }
+}
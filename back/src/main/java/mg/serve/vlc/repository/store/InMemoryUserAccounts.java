@@ -0,0 +1,64 @@
+package mg.serve.vlc.repository.store;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Firebase Auth stand-in for InMemoryDocumentStore: accounts by email, uids generated like Firebase's.
+ */
+public class InMemoryUserAccounts implements UserAccounts {
+    private final Map<String, Account> byEmail = new ConcurrentHashMap<>();
+    private final Map<String, Account> byUid = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<Account> findByEmail(String email) {
+        return Optional.ofNullable(email != null ? byEmail.get(email) : null);
+    }
+
+    @Override
+    public synchronized String create(String email, String password, String displayName) {
+        if (byEmail.containsKey(email)) {
+            throw new IllegalStateException("The user with the provided email already exists");
+        }
+        Account account = new Account(UUID.randomUUID().toString().replace("-", "").substring(0, 28), email, displayName);
+        byEmail.put(email, account);
+        byUid.put(account.uid(), account);
+        return account.uid();
+    }
+
+    @Override
+    public synchronized void updateDisplayName(String uid, String displayName) {
+        Account account = new Account(uid, existing(uid).email(), displayName);
+        byEmail.put(account.email(), account);
+        byUid.put(uid, account);
+    }
+
+    @Override
+    public synchronized void delete(String uid) {
+        byEmail.remove(existing(uid).email());
+        byUid.remove(uid);
+    }
+
+    /**
+     * Seeds an account with a known uid (test fixtures and generated data sets).
+     */
+    public synchronized void put(String uid, String email, String displayName) {
+        Account account = new Account(uid, email, displayName);
+        byEmail.put(email, account);
+        byUid.put(uid, account);
+    }
+
+    public int size() {
+        return byUid.size();
+    }
+
+    private Account existing(String uid) {
+        Account account = byUid.get(uid);
+        if (account == null) {
+            throw new IllegalStateException("No user record found for uid " + uid);
+        }
+        return account;
+    }
+}
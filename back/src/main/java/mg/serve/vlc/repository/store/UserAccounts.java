@@ -0,0 +1,23 @@
+package mg.serve.vlc.repository.store;
+
+import java.util.Optional;
+
+/**
+ * The Firebase Auth calls behind user sync (lookup by email, creation, display name, deletion), pluggable like
+ * DocumentStore: {@link FirebaseUserAccounts} or {@link InMemoryUserAccounts}.
+ */
+public interface UserAccounts {
+
+    record Account(String uid, String email, String displayName) {}
+
+    Optional<Account> findByEmail(String email);
+
+    /**
+     * Creates the account and returns its uid.
+     */
+    String create(String email, String password, String displayName);
+
+    void updateDisplayName(String uid, String displayName);
+
+    void delete(String uid);
+}
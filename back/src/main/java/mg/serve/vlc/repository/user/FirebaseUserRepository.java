@@ -1,76 +1,47 @@
 package mg.serve.vlc.repository.user;
 
+import mg.serve.vlc.exception.BusinessLogicException;
 import mg.serve.vlc.model.user.User;
 import mg.serve.vlc.model.Role;
+import mg.serve.vlc.repository.store.DocumentQuery;
+import mg.serve.vlc.repository.store.DocumentStore;
+import mg.serve.vlc.repository.store.FirebaseUserAccounts;
+import mg.serve.vlc.repository.store.FirestoreDocumentStore;
+import mg.serve.vlc.repository.store.UserAccounts;
+import mg.serve.vlc.util.ContentHash;
+import mg.serve.vlc.util.FieldMask;
+import mg.serve.vlc.util.FirestoreBatchWriter;
+import mg.serve.vlc.util.FirestoreFutures;
+import mg.serve.vlc.util.FirestoreReader;
 
 import java.util.*;
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.UserRecord;
-import com.google.firebase.auth.UserRecord.CreateRequest;
-import com.google.firebase.auth.UserRecord.UpdateRequest;
 import com.google.firebase.cloud.FirestoreClient;
-import com.google.cloud.firestore.CollectionReference;
-import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Query;
 import com.google.cloud.Timestamp;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 public class FirebaseUserRepository implements UserRepository {
-    private final Firestore db;
-    private final CollectionReference collectionReference;
+    public static final String COLLECTION = "users";
+
+    private final DocumentStore store;
+    private final UserAccounts accounts;
 
     public FirebaseUserRepository() {
-        db = FirestoreClient.getFirestore();
-        this.collectionReference = db.collection("users");
+        this(new FirestoreDocumentStore(), new FirebaseUserAccounts());
+    }
+
+    public FirebaseUserRepository(DocumentStore store, UserAccounts accounts) {
+        this.store = store;
+        this.accounts = accounts;
     }
 
     // TODO: fetch full info (not userStateId but userState itself)
     @Override
     public List<User> findAll() {
         try {
-            Firestore firestore = FirestoreClient.getFirestore();
-            // I'm using full package to remember the class
-            Iterable<com.google.cloud.firestore.DocumentReference> docs = firestore.collection("users").listDocuments();
-            List<User> users = new ArrayList<>();
-
-            for (com.google.cloud.firestore.DocumentReference doc : docs) {
-                Map<String, Object> data = doc.get().get().getData();
-                if (data != null) {
-                    User user = new User();
-                    user.setFbId(doc.getId());
-                    if (data.get("id") != null) {
-                        user.setId(((Long) data.get("id")).intValue());
-                    }
-                    user.setEmail((String) data.get("email"));
-                    user.setUsername((String) data.get("username"));
-                    user.setPassword((String) data.get("password"));
-                    if (data.get("userStateId") != null) {
-                        user.setUserStateId(((Long) data.get("userStateId")).intValue());
-                    }
-                    if (data.get("updatedAt") != null) {
-                        user.setUpdatedAt(((com.google.cloud.Timestamp) data.get("updatedAt")).toSqlTimestamp().toLocalDateTime());
-                    }
-
-                    // Handle roles
-                    List<Map<String, Object>> rolesData = (List<Map<String, Object>>) data.get("roles");
-                    if (rolesData != null) {
-                        Set<Role> roles = new HashSet<>();
-                        for (Map<String, Object> roleData : rolesData) {
-                            Role role = new Role();
-                            if (roleData.get("id") != null) {
-                                role.setId(((Long) roleData.get("id")).intValue());
-                            }
-                            role.setLabel((String) roleData.get("label"));
-                            roles.add(role);
-                        }
-                        user.setRoles(roles);
-                    }
-
-                    users.add(user);
-                }
-            }
-
-            return users;
+            // One query for the whole collection instead of one get() per document
+            return toUsers(FirestoreFutures.await(store.query(DocumentQuery.collection(COLLECTION))));
         } catch (Exception e) {
             System.err.println("Error fetching all users from Firebase: " + e.getMessage());
             // throw new RuntimeException("Failed to fetch all users from Firebase " + e.getMessage(), e);
@@ -79,43 +50,196 @@ public class FirebaseUserRepository implements UserRepository {
         return Collections.emptyList();
     }
 
+    /**
+     * Users whose updatedAt is strictly after since (delta pull). Documents without updatedAt are only seen by findAll().
+     */
+    public List<User> findUpdatedSince(java.time.LocalDateTime since) {
+        return FirestoreFutures.await(findUpdatedSinceAsync(since));
+    }
+
+    public CompletableFuture<List<User>> findUpdatedSinceAsync(java.time.LocalDateTime since) {
+        DocumentQuery query = DocumentQuery.collection(COLLECTION);
+        if (since != null) {
+            query = query.whereGreaterThan("updatedAt", Timestamp.of(java.sql.Timestamp.valueOf(since)));
+        }
+        return store.query(query)
+            .thenApply(this::toUsers)
+            .exceptionally(e -> {
+                System.err.println("Error fetching updated users from Firebase: " + FirestoreFutures.unwrap(e).getMessage());
+                throw new RuntimeException("Failed to fetch updated users from Firebase", FirestoreFutures.unwrap(e));
+            });
+    }
+
+    /**
+     * (email, fbId, content hash, updatedAt) of every user through a projection query: no other field is transferred.
+     */
+    public List<ContentHash.Stamp> findContentStamps() {
+        return FirestoreFutures.await(findContentStampsAsync());
+    }
+
+    public CompletableFuture<List<ContentHash.Stamp>> findContentStampsAsync() {
+        return store.query(DocumentQuery.collection(COLLECTION).select("email", "contentHash", "contentHashAt", "updatedAt"))
+            .thenApply(docs -> {
+                List<ContentHash.Stamp> stamps = new ArrayList<>(docs.size());
+                for (DocumentStore.StoredDocument doc : docs) {
+                    Timestamp updatedAt = (Timestamp) doc.data().get("updatedAt");
+                    stamps.add(new ContentHash.Stamp((String) doc.data().get("email"), doc.id(), ContentHash.trusted(doc.data()),
+                        updatedAt != null ? updatedAt.toSqlTimestamp().toLocalDateTime() : null));
+                }
+                return stamps;
+            })
+            .exceptionally(e -> {
+                throw new RuntimeException("Failed to fetch user hashes from Firebase", FirestoreFutures.unwrap(e));
+            });
+    }
+
+    /**
+     * Full documents of the given users (missing ones are skipped).
+     */
+    public List<User> findByFbIds(Collection<String> fbIds) {
+        List<User> users = new ArrayList<>();
+        forEachByFbIds(fbIds, FirestoreReader.DEFAULT_CHUNK_SIZE, FirestoreReader.DEFAULT_MAX_IN_FLIGHT, users::add);
+        return users;
+    }
+
+    /**
+     * Streams the given users to consumer, read through batched getAll calls (see FirestoreReader).
+     */
+    public void forEachByFbIds(Collection<String> fbIds, int chunkSize, int maxInFlight, java.util.function.Consumer<User> consumer) {
+        if (fbIds.isEmpty()) return;
+        store.getAll(COLLECTION, new ArrayList<>(fbIds), chunkSize, maxInFlight, doc -> {
+            User user = readable(doc);
+            if (user != null) consumer.accept(user);
+        });
+    }
+
+    /**
+     * Firestore query watched by the snapshot listener (same filter as findUpdatedSince); a null since watches the
+     * whole collection.
+     */
+    public Query updatedSinceQuery(java.time.LocalDateTime since) {
+        Query query = FirestoreClient.getFirestore().collection(COLLECTION);
+        if (since == null) return query;
+        return query.whereGreaterThan("updatedAt", Timestamp.of(java.sql.Timestamp.valueOf(since))).orderBy("updatedAt");
+    }
+
+    private List<User> toUsers(List<DocumentStore.StoredDocument> docs) {
+        List<User> users = new ArrayList<>(docs.size());
+        for (DocumentStore.StoredDocument doc : docs) {
+            User user = readable(doc);
+            if (user != null) users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * The mapped user, or null (logged) when the document holds an invalid email or password.
+     */
+    private User readable(DocumentStore.StoredDocument doc) {
+        try {
+            return fromDocument(doc);
+        } catch (BusinessLogicException e) {
+            System.err.println("Skipping unreadable user document " + doc.id() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Maps one users/{fbId} document from a snapshot listener.
+     */
+    public User fromDocument(DocumentSnapshot doc) throws BusinessLogicException {
+        return fromDocument(FirestoreDocumentStore.toStored(doc));
+    }
+
+    public User fromDocument(DocumentStore.StoredDocument doc) throws BusinessLogicException {
+        Map<String, Object> data = doc.data();
+        User user = new User();
+        user.setFbId(doc.id());
+        if (data.get("id") != null) {
+            user.setId(((Long) data.get("id")).intValue());
+        }
+        user.setEmail((String) data.get("email"));
+        user.setUsername((String) data.get("username"));
+        user.setPassword((String) data.get("password"));
+        if (data.get("userStateId") != null) {
+            user.setUserStateId(((Long) data.get("userStateId")).intValue());
+        }
+        if (data.get("updatedAt") != null) {
+            user.setUpdatedAt(((com.google.cloud.Timestamp) data.get("updatedAt")).toSqlTimestamp().toLocalDateTime());
+        }
+        user.setContentHash(ContentHash.trusted(data));
+        user.setRemoteState(new FieldMask.RemoteState(doc.data(), doc.updateTime()));
+
+        // Handle roles
+        List<Map<String, Object>> rolesData = (List<Map<String, Object>>) data.get("roles");
+        if (rolesData != null) {
+            Set<Role> roles = new HashSet<>();
+            for (Map<String, Object> roleData : rolesData) {
+                Role role = new Role();
+                if (roleData.get("id") != null) {
+                    role.setId(((Long) roleData.get("id")).intValue());
+                }
+                role.setLabel((String) roleData.get("label"));
+                roles.add(role);
+            }
+            user.setRoles(roles);
+        }
+
+        return user;
+    }
+
+    /**
+     * Overwrites an existing user document with only the fields that differ from remoteState (see FieldMask).
+     * Falls back to save() when the last remote state is unknown.
+     */
+    public User update(User user, FieldMask.RemoteState remoteState) {
+        if (remoteState == null || user.getFbId() == null) {
+            return save(user);
+        }
+        try {
+            if (!Objects.equals(user.getUsername(), remoteState.data().get("username"))) {
+                accounts.updateDisplayName(user.getFbId(), user.getUsername());
+            }
+            user.setUpdatedAt(java.time.LocalDateTime.now());
+            FirestoreFutures.await(store.writeAsync(COLLECTION, FirestoreBatchWriter.Write.fields(user.getFbId(),
+                FieldMask.diff(remoteState.data(), user.toMap()), remoteState.updateTime())));
+            return user;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to update user in Firebase " + e.getMessage(), e);
+        }
+    }
+
     // TODO: save all the fk too: roles, userState
     @Override
     public User save(User user) {
         try {
             System.out.println("Saving user to Firebase: " + user.getEmail());
 
-            UserRecord existing = null;
+            UserAccounts.Account existing = null;
             try {
-                existing = FirebaseAuth.getInstance().getUserByEmail(user.getEmail());
+                existing = accounts.findByEmail(user.getEmail()).orElse(null);
             } catch (Exception e) {
                 // User not found, will create (l-101)
             }
 
             String fbId;
             if (existing != null) {
-                fbId = existing.getUid();
+                fbId = existing.uid();
                 // Update existing user, TODO: make it better
-                UpdateRequest updateRequest = new UpdateRequest(fbId)
-                        .setDisplayName(user.getUsername());
-                FirebaseAuth.getInstance().updateUser(updateRequest);
+                accounts.updateDisplayName(fbId, user.getUsername());
                 System.out.println("Successfully updated Firebase user: " + fbId);
             } else {
                 // Create new user
-                CreateRequest request = new CreateRequest()
-                        .setEmail(user.getEmail())
-                        .setPassword(user.getPassword() != null ? user.getPassword() : "defaultpassword")
-                        .setDisplayName(user.getUsername());
-                UserRecord userRecord = FirebaseAuth.getInstance().createUser(request);
-                fbId = userRecord.getUid();
+                fbId = accounts.create(user.getEmail(),
+                        user.getPassword() != null ? user.getPassword() : "defaultpassword",
+                        user.getUsername());
                 System.out.println("Successfully created Firebase user: " + fbId);
             }
 
             user.setFbId(fbId);
             user.setUpdatedAt(java.time.LocalDateTime.now());
 
-            Firestore firestore = FirestoreClient.getFirestore();
-            firestore.collection("users").document(fbId).set(user.toMap()).get();
+            FirestoreFutures.await(store.writeAsync(COLLECTION, new FirestoreBatchWriter.Write(fbId, user.toMap(), true)));
 
             return user;
         } catch (Exception e) {
@@ -129,11 +253,11 @@ public class FirebaseUserRepository implements UserRepository {
         try {
             System.out.println("Finding user in Firebase by email: " + email);
 
-            UserRecord userRecord = FirebaseAuth.getInstance().getUserByEmail(email);
+            UserAccounts.Account account = accounts.findByEmail(email).orElseThrow();
 
             User user = new User();
-            user.setEmail(userRecord.getEmail());
-            user.setUsername(userRecord.getDisplayName()); // TODO: Should get full user, not just the one from UserRecord
+            user.setEmail(account.email());
+            user.setUsername(account.displayName()); // TODO: Should get full user, not just the one from UserRecord
 
             return Optional.of(user);
         } catch (Exception e) {
@@ -153,22 +277,19 @@ public class FirebaseUserRepository implements UserRepository {
         try {
             System.out.println("Fetching users from Firebase by userStateId: " + userStateId);
 
-            Firestore firestore = FirestoreClient.getFirestore();
-            Iterable<com.google.cloud.firestore.DocumentReference> docs = firestore.collection("users").listDocuments();
+            // Filtered server side in one query instead of listing every document and reading them one by one
             List<User> users = new ArrayList<>();
-
-            for (com.google.cloud.firestore.DocumentReference doc : docs) {
-                Map<String, Object> data = doc.get().get().getData();
-                if (data != null && data.get("userStateId") != null && ((Long) data.get("userStateId")).intValue() == userStateId) {
-                    User user = new User();
-                    user.setEmail((String) data.get("email"));
-                    user.setUsername((String) data.get("username"));
-                    user.setUserStateId(((Long) data.get("userStateId")).intValue());
-                    if (data.get("updatedAt") != null) {
-                        user.setUpdatedAt(((Timestamp) data.get("updatedAt")).toSqlTimestamp().toLocalDateTime());
-                    }
-                    users.add(user);
+            for (DocumentStore.StoredDocument doc : FirestoreFutures.await(store.query(
+                    DocumentQuery.collection(COLLECTION).whereEqualTo("userStateId", userStateId.longValue())))) {
+                Map<String, Object> data = doc.data();
+                User user = new User();
+                user.setEmail((String) data.get("email"));
+                user.setUsername((String) data.get("username"));
+                user.setUserStateId(((Long) data.get("userStateId")).intValue());
+                if (data.get("updatedAt") != null) {
+                    user.setUpdatedAt(((Timestamp) data.get("updatedAt")).toSqlTimestamp().toLocalDateTime());
                 }
+                users.add(user);
             }
 
             return users;
@@ -178,12 +299,10 @@ public class FirebaseUserRepository implements UserRepository {
         }
     }
 
-    public void deleteByUserFbId(String userFbId) 
-        throws FirebaseAuthException, // Auth
-                InterruptedException, ExecutionException { // Firestore
+    public void deleteByUserFbId(String userFbId) {
         // Auth
-        FirebaseAuth.getInstance().deleteUser(userFbId);
+        accounts.delete(userFbId);
         // Firestore
-        collectionReference.document(userFbId).delete().get();
+        FirestoreFutures.await(store.delete(COLLECTION, userFbId));
     }
-}
\ No newline at end of file
+}
@@ -2,8 +2,11 @@ package mg.serve.vlc.repository.user;
 
 import mg.serve.vlc.model.user.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,4 +20,12 @@ public interface JpaUserRepository extends JpaRepository<User, Integer>, UserRep
     }
 
     Optional<User> findByFbId(String fbId);
+
+    List<User> findByEmailIn(Collection<String> emails);
+
+    /**
+     * [id, email, contentHash] of every user, the local side of a hash-based full sync without loading entities.
+     */
+    @Query("SELECT u.id, u.email, u.contentHash FROM User u")
+    List<Object[]> findSyncStamps();
 }
\ No newline at end of file
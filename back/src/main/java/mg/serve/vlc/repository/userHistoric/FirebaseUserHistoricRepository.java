@@ -1,63 +1,54 @@
 package mg.serve.vlc.repository.userHistoric;
 
-import com.google.api.core.ApiFuture;
-import com.google.cloud.firestore.CollectionReference;
-import com.google.cloud.firestore.DocumentReference;
-import com.google.cloud.firestore.Firestore;
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.cloud.FirestoreClient;
 import mg.serve.vlc.model.user.UserHistoric;
+import mg.serve.vlc.repository.store.DocumentQuery;
+import mg.serve.vlc.repository.store.DocumentStore;
+import mg.serve.vlc.repository.store.FirestoreDocumentStore;
+import mg.serve.vlc.util.FirestoreBatchWriter;
+import mg.serve.vlc.util.FirestoreFutures;
 
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import com.google.cloud.Timestamp;
 
 import org.springframework.stereotype.Repository;
 
 @Repository
 public class FirebaseUserHistoricRepository implements UserHistoricRepository {
-    private Firestore db;
-    private final CollectionReference collectionReference;
+    private final DocumentStore store;
 
     public FirebaseUserHistoricRepository() {
-        db = FirestoreClient.getFirestore();
-        this.collectionReference = db.collection("users");
+        this(new FirestoreDocumentStore());
+    }
+
+    public FirebaseUserHistoricRepository(DocumentStore store) {
+        this.store = store;
+    }
+
+    private static String history(String userFbId) {
+        return "users/" + userFbId + "/history";
     }
 
     @Override
     public UserHistoric save(UserHistoric userHistoric) {
-        String userFbId = userHistoric.getUser().getFbId();
-        try {
-            DocumentReference docRef = collectionReference.document(userFbId).collection("history").document();
-            String id = docRef.getId();
-            userHistoric.setFbId(id);
-            docRef.set(userHistoric.toMap()).get();
-            return userHistoric;
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException("Failed to save user historic to Firestore", e);
-        }
+        return save(userHistoric, userHistoric.getUser().getFbId());
     }
 
     public UserHistoric save(UserHistoric userHistoric, String userFbId) {
         try {
-            DocumentReference docRef = collectionReference.document(userFbId).collection("history").document();
-            String id = docRef.getId();
+            String id = store.newId();
             userHistoric.setFbId(id);
-            docRef.set(userHistoric.toMap()).get();
+            FirestoreFutures.await(store.writeAsync(history(userFbId), new FirestoreBatchWriter.Write(id, userHistoric.toMap(), true)));
             return userHistoric;
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (Exception e) {
             throw new RuntimeException("Failed to save user historic to Firestore", e);
         }
     }
 
     public List<UserHistoric> findByUserFbId(String userFbId) {
         try {
-            var query = collectionReference.document(userFbId).collection("history").get();
-            var documents = query.get().getDocuments();
+            var documents = FirestoreFutures.await(store.query(DocumentQuery.collection(history(userFbId))));
             List<UserHistoric> history = new ArrayList<>();
             for (var doc : documents) {
-                Map<String, Object> data = doc.getData();
+                Map<String, Object> data = doc.data();
                 if (data != null) {
                     UserHistoric historic = new UserHistoric();
                     if (data.get("id") != null) {
@@ -1,6 +1,7 @@
 package mg.serve.vlc.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import mg.serve.vlc.controller.response.ApiResponse;
 
@@ -33,7 +34,10 @@ public class SecurityConfig {
             .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
 
-                
+                // A CompletableFuture response is written on an ASYNC dispatch, which the JWT filter does not
+                // authenticate (OncePerRequestFilter): the original request was already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+
                 .requestMatchers(HttpMethod.GET, "/").permitAll()
                 .requestMatchers(HttpMethod.POST, "/auth/sign-up").permitAll()
                 .requestMatchers(HttpMethod.POST, "/auth/sign-in").permitAll()
@@ -50,9 +54,12 @@ public class SecurityConfig {
                     "/points/factories", "/points/pointStates", "/points/pointTypes",
                     "/points/inProgress","/points/work-delay",
                     "/points/detailled",
+                    "/points/within", "/points/near", "/points/clusters",
                     "/prices/current", "/prices/history", "/prices/at"
                 ).permitAll()
 
+                .requestMatchers(HttpMethod.GET, "/tiles/**").permitAll()
+
                 .requestMatchers(
                     "/users" // Debug
                 ).permitAll()
@@ -0,0 +1,240 @@
+package mg.serve.vlc.service;
+
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mg.serve.vlc.controller.response.SyncStatistics;
+import mg.serve.vlc.model.map.Point;
+import mg.serve.vlc.model.user.User;
+import mg.serve.vlc.repository.point.FirebasePointHistoricRepository;
+import mg.serve.vlc.repository.point.FirebasePointRepository;
+import mg.serve.vlc.repository.store.DocumentStore;
+import mg.serve.vlc.repository.store.UserAccounts;
+import mg.serve.vlc.repository.user.FirebaseUserRepository;
+import mg.serve.vlc.util.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in real-time pull (app.sync.listeners.enabled): snapshot listeners on points, points/{id}/history and users
+ * push every added/modified document into a bounded queue, drained in batches by a single worker that applies them
+ * through the sync services (same mapping and "newer wins" rule as the periodic sync).
+ *
+ * Listeners start from the stored watermarks, so the first snapshot only replays what the last sync missed.
+ * Batches wait while a sync job is running.
+ * When the queue is full, changes are dropped and counted: they are still after the watermark and the next delta
+ * sync picks them up. Deletions are soft (deletedAt), so REMOVED events are ignored.
+ */
+@Service
+public class FirestoreListenerService {
+    private static final Logger logger = LoggerFactory.getLogger(FirestoreListenerService.class);
+
+    private enum Kind { USER, POINT, POINT_HISTORIC }
+
+    private record Change(Kind kind, QueryDocumentSnapshot document) {}
+
+    FirebaseUserRepository firebaseUserRepository;
+    FirebasePointRepository firebasePointRepository;
+    FirebasePointHistoricRepository firebasePointHistoricRepository;
+
+    @Autowired
+    private DocumentStore documentStore;
+
+    @Autowired
+    private UserAccounts userAccounts;
+
+    @Autowired
+    private PointSyncService pointSyncService;
+
+    @Autowired
+    private SyncJobService syncJobService;
+
+    @Autowired
+    private UserSyncService userSyncService;
+
+    @Autowired
+    private SyncWatermarkService syncWatermarkService;
+
+    @Value("${app.sync.listeners.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.sync.listeners.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.sync.listeners.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.sync.listeners.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${app.sync.listeners.retry-delay-ms:30000}")
+    private long retryDelayMs;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final Map<Kind, ListenerRegistration> registrations = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private BlockingQueue<Change> queue;
+    private ScheduledExecutorService retryScheduler;
+    private Thread worker;
+    private volatile boolean running = false;
+
+    @PostConstruct
+    void init() {
+        firebaseUserRepository = new FirebaseUserRepository(documentStore, userAccounts);
+        firebasePointRepository = new FirebasePointRepository(documentStore);
+        firebasePointHistoricRepository = new FirebasePointHistoricRepository(documentStore);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(Threads.factory("firestore-listener-retry", virtualThreads));
+        running = true;
+        worker = Threads.factory("firestore-listener-ingest", virtualThreads).newThread(this::drainLoop);
+        worker.start();
+        for (Kind kind : Kind.values()) {
+            listen(kind);
+        }
+        logger.info("Firestore listeners started (queue {}, batch {})", queueCapacity, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        registrations.values().forEach(ListenerRegistration::remove);
+        registrations.clear();
+        if (retryScheduler != null) retryScheduler.shutdownNow();
+        if (worker != null) worker.interrupt();
+    }
+
+    private void listen(Kind kind) {
+        if (!running) return;
+        try {
+            ListenerRegistration registration = query(kind).addSnapshotListener((snapshot, error) -> {
+                if (error != null) {
+                    logger.warn("Firestore {} listener failed, re-registering in {} ms", kind, retryDelayMs, error);
+                    registrations.remove(kind);
+                    scheduleRetry(kind);
+                    return;
+                }
+                if (snapshot == null) return;
+                for (DocumentChange change : snapshot.getDocumentChanges()) {
+                    if (change.getType() == DocumentChange.Type.REMOVED) continue;
+                    if (!queue.offer(new Change(kind, change.getDocument()))) {
+                        dropped.incrementAndGet();
+                    }
+                }
+            });
+            ListenerRegistration previous = registrations.put(kind, registration);
+            if (previous != null) previous.remove();
+        } catch (Exception e) {
+            logger.warn("Failed to register Firestore {} listener, retrying in {} ms", kind, retryDelayMs, e);
+            scheduleRetry(kind);
+        }
+    }
+
+    private void scheduleRetry(Kind kind) {
+        if (running) retryScheduler.schedule(() -> listen(kind), retryDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private Query query(Kind kind) {
+        return switch (kind) {
+            case USER -> firebaseUserRepository.updatedSinceQuery(syncWatermarkService.get(UserSyncService.USERS_COLLECTION));
+            case POINT -> firebasePointRepository.updatedSinceQuery(syncWatermarkService.get(PointSyncService.POINTS_COLLECTION));
+            case POINT_HISTORIC -> firebasePointHistoricRepository.sinceQuery(syncWatermarkService.get(PointSyncService.POINT_HISTORY_COLLECTION));
+        };
+    }
+
+    /**
+     * A batch is not applied while a sync job runs (the job reconciles the same documents): it is kept and retried
+     * every flush interval, and the queue fills up meanwhile.
+     */
+    private void drainLoop() {
+        List<Change> deferred = null;
+        while (running) {
+            try {
+                List<Change> batch = deferred;
+                deferred = null;
+                if (batch == null) {
+                    Change first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                    long lost = dropped.getAndSet(0);
+                    if (lost > 0) {
+                        logger.warn("Listener queue full, {} Firestore changes dropped (left to the next delta sync)", lost);
+                    }
+                    if (first == null) continue;
+                    batch = new ArrayList<>(batchSize);
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                List<Change> toApply = batch;
+                if (!syncJobService.runUnlessSyncing(() -> apply(toApply))) {
+                    deferred = batch;
+                    Thread.sleep(flushIntervalMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Failed to apply Firestore listener batch", e);
+            }
+        }
+    }
+
+    /**
+     * Applies one batch: users first (points reference them), then points, then history. A document changed several
+     * times within the batch is applied once, with its latest snapshot.
+     */
+    private void apply(List<Change> batch) {
+        Map<Kind, Map<String, QueryDocumentSnapshot>> latest = new EnumMap<>(Kind.class);
+        for (Change change : batch) {
+            latest.computeIfAbsent(change.kind(), k -> new LinkedHashMap<>())
+                .put(change.document().getReference().getPath(), change.document());
+        }
+
+        List<User> users = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : latest.getOrDefault(Kind.USER, Map.of()).values()) {
+            try {
+                users.add(firebaseUserRepository.fromDocument(doc));
+            } catch (Exception e) {
+                logger.warn("Skipping unreadable user document {}", doc.getId(), e);
+            }
+        }
+        if (!users.isEmpty()) log(Kind.USER, users.size(), userSyncService.applyRemoteUsers(users));
+
+        List<Point> points = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : latest.getOrDefault(Kind.POINT, Map.of()).values()) {
+            try {
+                points.add(firebasePointRepository.fromDocument(doc));
+            } catch (Exception e) {
+                logger.warn("Skipping unreadable point document {}", doc.getId(), e);
+            }
+        }
+        if (!points.isEmpty()) log(Kind.POINT, points.size(), pointSyncService.applyRemotePoints(points));
+
+        List<FirebasePointHistoricRepository.RemoteHistoric> history = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : latest.getOrDefault(Kind.POINT_HISTORIC, Map.of()).values()) {
+            FirebasePointHistoricRepository.RemoteHistoric remote = firebasePointHistoricRepository.fromDocument(doc);
+            if (remote != null) history.add(remote);
+        }
+        if (!history.isEmpty()) log(Kind.POINT_HISTORIC, history.size(), pointSyncService.applyRemoteHistory(history));
+    }
+
+    private void log(Kind kind, int received, SyncStatistics stats) {
+        logger.info("Listener applied {} {} change(s): {}", received, kind, stats.generateSummaryMessage());
+    }
+}
@@ -3,12 +3,12 @@ package mg.serve.vlc.service;
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.QuerySnapshot;
 import com.google.firebase.cloud.FirestoreClient;
+import mg.serve.vlc.util.FirestoreFutures;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class FirestoreUserService {
@@ -20,51 +20,64 @@ public class FirestoreUserService {
         usersCollection = db.collection("users");
     }
 
-    
     public List<Map<String, Object>> getBlockedUsers() {
-        try {
-            QuerySnapshot snapshot = usersCollection
-                    .whereGreaterThanOrEqualTo("attempt", 3L)
-                    .get()
-                    .get();
+        return FirestoreFutures.await(getBlockedUsersAsync());
+    }
 
-            List<Map<String, Object>> blockedUsers = new ArrayList<>();
-            for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                Map<String, Object> user = new HashMap<>();
-                user.put("fbId", doc.getId());
-                user.put("email", doc.get("email"));
-                user.put("attempt", doc.get("attempt"));
-                user.put("disabled", doc.get("disabled"));
-                blockedUsers.add(user);
-            }
-            return blockedUsers;
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException("Failed to fetch blocked users from Firestore", e);
-        }
+    /**
+     * Users locked out after 3 failed sign-ins, without blocking the calling thread.
+     */
+    public CompletableFuture<List<Map<String, Object>>> getBlockedUsersAsync() {
+        return FirestoreFutures.toCompletable(usersCollection.whereGreaterThanOrEqualTo("attempt", 3L).get())
+            .thenApply(snapshot -> {
+                List<Map<String, Object>> blockedUsers = new ArrayList<>();
+                for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                    Map<String, Object> user = new HashMap<>();
+                    user.put("fbId", doc.getId());
+                    user.put("email", doc.get("email"));
+                    user.put("attempt", doc.get("attempt"));
+                    user.put("disabled", doc.get("disabled"));
+                    blockedUsers.add(user);
+                }
+                return blockedUsers;
+            })
+            .exceptionally(e -> {
+                throw new RuntimeException("Failed to fetch blocked users from Firestore", FirestoreFutures.unwrap(e));
+            });
     }
 
     public void deblockUser(String fbId) {
-        try {
-            Map<String, Object> updates = new HashMap<>();
-            updates.put("attempt", 0L);
-            updates.put("disabled", false);
-            usersCollection.document(fbId).update(updates).get();
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException("Failed to deblock user in Firestore", e);
-        }
+        FirestoreFutures.await(deblockUserAsync(fbId));
+    }
+
+    public CompletableFuture<Void> deblockUserAsync(String fbId) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("attempt", 0L);
+        updates.put("disabled", false);
+        return FirestoreFutures.toCompletable(usersCollection.document(fbId).update(updates))
+            .<Void>thenApply(result -> null)
+            .exceptionally(e -> {
+                throw new RuntimeException("Failed to deblock user in Firestore", FirestoreFutures.unwrap(e));
+            });
     }
 
     public Map<String, Object> getUserByFbId(String fbId) {
-        try {
-            DocumentSnapshot doc = usersCollection.document(fbId).get().get();
-            if (doc.exists()) {
+        return FirestoreFutures.await(getUserByFbIdAsync(fbId));
+    }
+
+    /**
+     * The users/{fbId} document with its fbId, or null when it does not exist.
+     */
+    public CompletableFuture<Map<String, Object>> getUserByFbIdAsync(String fbId) {
+        return FirestoreFutures.toCompletable(usersCollection.document(fbId).get())
+            .thenApply(doc -> {
+                if (!doc.exists()) return null;
                 Map<String, Object> user = new HashMap<>(doc.getData());
                 user.put("fbId", doc.getId());
                 return user;
-            }
-            return null;
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException("Failed to fetch user from Firestore", e);
-        }
+            })
+            .exceptionally(e -> {
+                throw new RuntimeException("Failed to fetch user from Firestore", FirestoreFutures.unwrap(e));
+            });
     }
 }
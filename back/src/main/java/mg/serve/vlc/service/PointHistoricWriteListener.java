@@ -0,0 +1,22 @@
+package mg.serve.vlc.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import mg.serve.vlc.model.map.PointHistoric;
+
+/**
+ * Keeps the dashboard summary and the work-delay aggregate in step with the JPA writes of PointHistoric.
+ */
+public class PointHistoricWriteListener {
+    @PostPersist
+    public void onInserted(PointHistoric historic) {
+        PointsSummaryService.markDirty();
+        WorkDelayAggregator.onHistoricWritten(historic, true);
+    }
+
+    @PostUpdate
+    public void onUpdated(PointHistoric historic) {
+        PointsSummaryService.markDirty();
+        WorkDelayAggregator.onHistoricWritten(historic, false);
+    }
+}
@@ -7,95 +7,223 @@ import mg.serve.vlc.model.map.Point;
 import mg.serve.vlc.model.map.PointHistoric;
 import mg.serve.vlc.model.map.PointState;
 import mg.serve.vlc.model.map.PointType;
+import mg.serve.vlc.model.sync.SyncOutboxEntry;
 import mg.serve.vlc.model.user.User;
 import mg.serve.vlc.repository.point.FirebasePointHistoricRepository;
 import mg.serve.vlc.repository.point.FirebasePointRepository;
 import mg.serve.vlc.repository.point.PointRepository;
 import mg.serve.vlc.repository.PointHistoricRepository;
+import mg.serve.vlc.repository.store.DocumentStore;
+import mg.serve.vlc.util.ContentHash;
+import mg.serve.vlc.util.FieldMask;
+import mg.serve.vlc.util.FirestoreFutures;
+import mg.serve.vlc.util.HistoryReconciler;
 import mg.serve.vlc.util.RepositoryProvider;
+import mg.serve.vlc.util.SyncOutbox;
 
 import org.hibernate.Hibernate;
+import jakarta.annotation.PostConstruct;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
 public class PointSyncService {
     private static final Logger logger = LoggerFactory.getLogger(PointSyncService.class);
-    FirebasePointRepository firebasePointRepository = new FirebasePointRepository();
-    FirebasePointHistoricRepository firebasePointHistoricRepository = new FirebasePointHistoricRepository();
+    public static final String POINTS_COLLECTION = "points";
+    public static final String POINT_HISTORY_COLLECTION = "points/history";
+    FirebasePointRepository firebasePointRepository;
+    FirebasePointHistoricRepository firebasePointHistoricRepository;
+
+    @Autowired
+    private DocumentStore documentStore;
+
+    @Autowired
+    private SyncWatermarkService syncWatermarkService;
+
+    @Autowired
+    private SyncOutboxService syncOutboxService;
+
+    @Value("${app.sync.max-batches-in-flight:4}")
+    private int maxBatchesInFlight;
+
+    @Value("${app.sync.checkpoint-every:500}")
+    private int checkpointEvery;
+
+    @Value("${app.sync.read-chunk-size:300}")
+    private int readChunkSize;
+
+    @Value("${app.sync.max-reads-in-flight:4}")
+    private int maxReadsInFlight;
+
+    @Value("${app.sync.max-writes-in-flight:64}")
+    private int maxWritesInFlight;
+
+    @PostConstruct
+    void init() {
+        firebasePointRepository = new FirebasePointRepository(documentStore);
+        firebasePointHistoricRepository = new FirebasePointHistoricRepository(documentStore);
+    }
 
     public ApiResponse syncPoints() {
+        return syncPoints(false);
+    }
+
+    /**
+     * Two-way point sync. Unless fullScan is asked (or the collection was never synced), only the Firestore
+     * documents updated after the stored watermark are pulled and only the points of the sync outbox are pushed.
+     *
+     * Points are reconciled in fbId order, app.sync.checkpoint-every at a time; after each clean page a checkpoint
+     * is stored, so a run that crashes or fails halfway is resumed by the next one instead of restarting.
+     */
+    public ApiResponse syncPoints(boolean fullScan) {
         try {
-            List<Point> localPoints = RepositoryProvider.jpaPointRepository.findAll();
-            List<Point> remotePoints = firebasePointRepository.findAll();
-
-            // Push local points with null fbId to Firestore first
-            for (Point local : localPoints) {
-                if (local.getFbId() == null) {
-                    Point updatedLocal = pushPointToFirestore(local);
-                    local = ((PointRepository) RepositoryProvider.jpaPointRepository).save(updatedLocal);
+            LocalDateTime startedAt = LocalDateTime.now();
+            SyncWatermarkService.Checkpoint checkpoint = syncWatermarkService.checkpoint(POINTS_COLLECTION);
+            boolean resumeFull = checkpoint != null && checkpoint.full();
+            LocalDateTime watermark = fullScan || resumeFull ? null : syncWatermarkService.get(POINTS_COLLECTION);
+            List<Point> remotePoints = null;
+            if (watermark != null) {
+                try {
+                    remotePoints = firebasePointRepository.findUpdatedSince(syncWatermarkService.pullFrom(watermark));
+                } catch (Exception e) {
+                    logger.warn("Delta pull of points failed, falling back to a full scan", e);
+                    watermark = null;
                 }
             }
+            boolean delta = watermark != null;
+            if (checkpoint != null && checkpoint.full() == delta) {
+                checkpoint = null; // only a run of the same kind is resumed
+            }
+            LocalDateTime runStartedAt = checkpoint != null ? checkpoint.at() : startedAt;
+            LocalDateTime pulledUpTo = null;
+            int scanned;
 
-            Map<String, Point> localMap = localPoints.stream().collect(Collectors.toMap(Point::getFbId, p -> p));
-            Map<String, Point> remoteMap = remotePoints.stream().collect(Collectors.toMap(Point::getFbId, p -> p));
+            SyncStatistics stats = new SyncStatistics();
 
-            Set<String> allPointFbIds = new HashSet<>(localMap.keySet());
-            allPointFbIds.addAll(remoteMap.keySet());
+            // Local side: the outbox tells what changed here (drained below); only a full scan still compares every point
+            Map<String, Point> localMap = new HashMap<>();
+            Map<String, Point> remoteMap = new HashMap<>();
+            Map<String, LocalDateTime> remoteUpdatedAt = new HashMap<>();
+            List<Point> unsyncedPoints;
+            SortedSet<String> keys = new TreeSet<>();
 
-            SyncStatistics stats = new SyncStatistics();
+            if (!delta) {
+                // Full scan on (fbId, content hash) pairs first: full documents and entities are only loaded for the
+                // points whose hashes differ or are unknown
+                CompletableFuture<List<ContentHash.Stamp>> remoteStampsPull = firebasePointRepository.findContentStampsAsync();
+                List<Object[]> localStamps = RepositoryProvider.jpaPointRepository.findSyncStamps(); // while Firestore answers
+                List<ContentHash.Stamp> remoteStamps = FirestoreFutures.await(remoteStampsPull);
+                Map<String, String> remoteHashes = new HashMap<>();
+                for (ContentHash.Stamp stamp : remoteStamps) {
+                    remoteHashes.put(stamp.key(), stamp.hash());
+                    remoteUpdatedAt.put(stamp.key(), stamp.updatedAt());
+                    if (stamp.updatedAt() != null && (pulledUpTo == null || stamp.updatedAt().isAfter(pulledUpTo))) {
+                        pulledUpTo = stamp.updatedAt();
+                    }
+                }
+                Map<String, String> localHashes = new HashMap<>();
+                Set<Integer> unsyncedIds = new HashSet<>();
+                for (Object[] row : localStamps) {
+                    if (row[1] == null) {
+                        unsyncedIds.add((Integer) row[0]);
+                        continue;
+                    }
+                    localHashes.put((String) row[1], (String) row[2]);
+                }
+                keys.addAll(ContentHash.differing(localHashes, remoteHashes));
+                unsyncedPoints = RepositoryProvider.jpaPointRepository.findAllById(unsyncedIds);
+                scanned = remoteStamps.size();
+                logger.info("Point full scan: {} of {} remote / {} local points differ by hash", keys.size(), remoteStamps.size(), localStamps.size());
+            } else {
+                scanned = remotePoints.size();
+                for (Point remote : remotePoints) {
+                    remoteMap.put(remote.getFbId(), remote);
+                    remoteUpdatedAt.put(remote.getFbId(), remote.getUpdatedAt());
+                    if (remote.getUpdatedAt() != null && (pulledUpTo == null || remote.getUpdatedAt().isAfter(pulledUpTo))) {
+                        pulledUpTo = remote.getUpdatedAt();
+                    }
+                }
+                unsyncedPoints = List.of(); // the outbox has them
+                keys.addAll(remoteMap.keySet());
+            }
 
-            for (String fbId : allPointFbIds) {
-                Point local = localMap.get(fbId);
-                Point remote = remoteMap.get(fbId);
+            // Resuming: skip what the interrupted run already reconciled, unless it changed since in Firestore
+            // (changed here, it is in the outbox)
+            Set<String> resumedFbIds = new HashSet<>();
+            if (checkpoint != null) {
+                SyncWatermarkService.Checkpoint resumed = checkpoint;
+                int before = keys.size();
+                keys.removeIf(fbId -> resumed.covers(fbId, remoteUpdatedAt.get(fbId)) && resumedFbIds.add(fbId));
+                logger.info("Resuming point sync after {}: {} of {} points left", resumed.cursor(), keys.size(), before);
+            }
 
-                try {
-                    if (local == null && remote != null) {
-                        // Firestore only
-                        ensureUserExistsLocally(remote.getUser().getFbId());
-                        createLocalPoint(remote);
-                        stats.setPointsCreatedLocally(stats.getPointsCreatedLocally() + 1);
-                    } else if (local != null && remote == null) {
-                        // Local only
-                        Point updatedLocal = pushPointToFirestore(local);
-                        local = ((PointRepository) RepositoryProvider.jpaPointRepository).save(updatedLocal); // To get fbId if needed
-                        stats.setPointsPushedToFirestore(stats.getPointsPushedToFirestore() + 1);
-                    } else if (local.getUpdatedAt() != null && remote.getUpdatedAt() != null) {
-                        if (local.getUpdatedAt().isAfter(remote.getUpdatedAt()) && !pointDataEquals(local, remote)) {
-                            // Local newer and data different
-                            overwriteFirestorePoint(local);
-                            stats.setPointsUpdatedInFirestore(stats.getPointsUpdatedInFirestore() + 1);
-                        } else if (remote.getUpdatedAt().isAfter(local.getUpdatedAt()) && !pointDataEquals(local, remote)) {
-                            // Firestore newer and data different
-                            ensureUserExistsLocally(remote.getUser().getFbId());
-                            overwriteLocalPoint(remote);
-                            stats.setPointsUpdatedLocally(stats.getPointsUpdatedLocally() + 1);
-                        } else {
-                            // identical timestamps or identical data: no op
-                        }
-                    } else {
-                        // Handle cases where updatedAt is null
-                        if (local.getUpdatedAt() == null && remote.getUpdatedAt() != null && !pointDataEquals(local, remote)) {
-                            ensureUserExistsLocally(remote.getUser().getFbId());
-                            overwriteLocalPoint(remote);
-                            stats.setPointsUpdatedLocally(stats.getPointsUpdatedLocally() + 1);
-                        } else if (local.getUpdatedAt() != null && remote.getUpdatedAt() == null && !pointDataEquals(local, remote)) {
-                            overwriteFirestorePoint(local);
-                            stats.setPointsUpdatedInFirestore(stats.getPointsUpdatedInFirestore() + 1);
-                        }
-                        // if both null or data same, no op
+            Map<Integer, String> failures = new HashMap<>();
+            Set<Integer> handled = new HashSet<>();
+            List<String> ordered = new ArrayList<>(keys);
+            boolean clean = true; // the checkpoint never moves past a page with errors
+            for (int from = 0; from < ordered.size(); from += checkpointEvery) {
+                List<String> page = ordered.subList(from, Math.min(from + checkpointEvery, ordered.size()));
+                int errorsBefore = stats.getTotalErrors();
+
+                if (!delta) {
+                    firebasePointRepository.forEachByFbIds(page, readChunkSize, maxReadsInFlight, remote -> remoteMap.put(remote.getFbId(), remote));
+                }
+                List<String> notLoaded = page.stream().filter(fbId -> !localMap.containsKey(fbId)).collect(Collectors.toList());
+                if (!notLoaded.isEmpty()) {
+                    for (Point local : RepositoryProvider.jpaPointRepository.findByFbIdIn(notLoaded)) {
+                        localMap.put(local.getFbId(), local);
                     }
-                } catch (Exception e) {
-                    stats.addError("Failed to sync point " + fbId + ": " + e.getMessage());
-                    logger.warn("Failed to sync point {}", fbId, e);
+                }
+
+                List<Point> toCreateInFirestore = new ArrayList<>();
+                List<Point> toUpdateInFirestore = new ArrayList<>();
+                Map<String, FieldMask.RemoteState> remoteStates = new HashMap<>();
+                for (String fbId : page) {
+                    Point local = localMap.remove(fbId);
+                    Point remote = remoteMap.remove(fbId);
+                    if (local != null) handled.add(local.getId());
+                    if (remote != null && remote.getRemoteState() != null) {
+                        // Documents pulled in this run are overwritten field by field against what was read
+                        remoteStates.put(fbId, remote.getRemoteState());
+                    }
+                    reconcilePoint(fbId, local, remote, delta, toCreateInFirestore, toUpdateInFirestore, stats, failures);
+                }
+                failures.putAll(pushPointsToFirestore(toCreateInFirestore, toUpdateInFirestore, List.of(), remoteStates, stats));
+
+                clean = clean && stats.getTotalErrors() == errorsBefore;
+                if (clean) {
+                    syncWatermarkService.saveCheckpoint(POINTS_COLLECTION, page.get(page.size() - 1), !delta, runStartedAt);
                 }
             }
 
+            // Local points that never reached Firestore, created under their stable fbId (see FirebasePointRepository)
+            failures.putAll(pushPointsToFirestore(unsyncedPoints, List.of(), unsyncedPoints, Map.of(), stats));
+            unsyncedPoints.forEach(p -> handled.add(p.getId()));
+
+            // Outbox, a page at a time: the points changed here and not reconciled above (a full scan only has the
+            // ones skipped by a resume left). At-least-once: an entry is only removed once its point is in
+            // Firestore (or was found up to date)
+            syncOutboxService.drain(SyncOutbox.POINT, page -> {
+                pushOutboxPage(page, delta, handled, resumedFbIds, remoteMap, stats, failures);
+                return failures;
+            });
+            syncWatermarkService.clearCheckpoint(POINTS_COLLECTION);
+
+            // With errors the watermark stays put, so the failed documents are pulled again next time
+            if (stats.getTotalErrors() == 0) {
+                syncWatermarkService.advance(POINTS_COLLECTION, pulledUpTo);
+            }
+            logger.info("Point sync ({}) checked {} remote documents, reconciled {}", delta ? "delta" : "full scan", scanned, ordered.size());
+
             return new ApiResponse("success", stats, stats.generateSummaryMessage());
         } catch (Exception e) {
             logger.error("Sync points failed", e);
@@ -103,6 +231,231 @@ public class PointSyncService {
         }
     }
 
+    private void pushOutboxPage(List<SyncOutboxEntry> page, boolean delta, Set<Integer> handled, Set<String> resumedFbIds,
+                                Map<String, Point> remoteMap, SyncStatistics stats, Map<Integer, String> failures) {
+        Set<Integer> ids = SyncOutboxService.entityIds(page);
+        ids.removeAll(handled);
+        if (ids.isEmpty()) return;
+
+        List<Point> unsynced = new ArrayList<>();
+        List<Point> changed = new ArrayList<>();
+        for (Point local : RepositoryProvider.jpaPointRepository.findAllById(ids)) {
+            handled.add(local.getId());
+            if (local.getFbId() == null) {
+                unsynced.add(local);
+            } else if (delta || resumedFbIds.contains(local.getFbId())) {
+                changed.add(local); // a full scan found the others up to date by hash
+            }
+        }
+        if (!delta && !changed.isEmpty()) {
+            firebasePointRepository.forEachByFbIds(changed.stream().map(Point::getFbId).collect(Collectors.toList()),
+                readChunkSize, maxReadsInFlight, remote -> remoteMap.put(remote.getFbId(), remote));
+        }
+
+        List<Point> toCreateInFirestore = new ArrayList<>();
+        List<Point> toUpdateInFirestore = new ArrayList<>();
+        Map<String, FieldMask.RemoteState> remoteStates = new HashMap<>();
+        for (Point local : changed) {
+            Point remote = remoteMap.remove(local.getFbId());
+            if (remote != null && remote.getRemoteState() != null) {
+                remoteStates.put(local.getFbId(), remote.getRemoteState());
+            }
+            reconcilePoint(local.getFbId(), local, remote, delta, toCreateInFirestore, toUpdateInFirestore, stats, failures);
+        }
+        failures.putAll(pushPointsToFirestore(toCreateInFirestore, toUpdateInFirestore, List.of(), remoteStates, stats));
+        failures.putAll(pushPointsToFirestore(unsynced, List.of(), unsynced, Map.of(), stats));
+    }
+
+    /**
+     * Decides one point. Idempotent: a point already reconciled (e.g. by an interrupted run) compares equal and is
+     * left alone, creations use the existing fbId.
+     */
+    private void reconcilePoint(String fbId, Point local, Point remote, boolean delta,
+                                List<Point> toCreateInFirestore, List<Point> toUpdateInFirestore,
+                                SyncStatistics stats, Map<Integer, String> failures) {
+        try {
+            if (local == null && remote == null) {
+                // deleted on both sides since the hash scan
+            } else if (local == null) {
+                // Firestore only
+                ensureUserExistsLocally(remote.getUser().getFbId());
+                createLocalPoint(remote);
+                stats.setPointsCreatedLocally(stats.getPointsCreatedLocally() + 1);
+            } else if (remote == null) {
+                if (!delta) {
+                    // Local only
+                    toCreateInFirestore.add(local);
+                } else {
+                    // In the outbox and not pulled, so unchanged in Firestore since the watermark: the local change wins
+                    toUpdateInFirestore.add(local);
+                }
+            } else if (local.getUpdatedAt() != null && remote.getUpdatedAt() != null) {
+                if (local.getUpdatedAt().isAfter(remote.getUpdatedAt()) && !sameContent(local, remote)) {
+                    // Local newer and data different
+                    toUpdateInFirestore.add(local);
+                } else if (remote.getUpdatedAt().isAfter(local.getUpdatedAt()) && !sameContent(local, remote)) {
+                    // Firestore newer and data different
+                    ensureUserExistsLocally(remote.getUser().getFbId());
+                    overwriteLocalPoint(remote);
+                    stats.setPointsUpdatedLocally(stats.getPointsUpdatedLocally() + 1);
+                } else {
+                    // identical timestamps or identical data: no op
+                }
+            } else {
+                // Handle cases where updatedAt is null
+                if (local.getUpdatedAt() == null && remote.getUpdatedAt() != null && !sameContent(local, remote)) {
+                    ensureUserExistsLocally(remote.getUser().getFbId());
+                    overwriteLocalPoint(remote);
+                    stats.setPointsUpdatedLocally(stats.getPointsUpdatedLocally() + 1);
+                } else if (local.getUpdatedAt() != null && remote.getUpdatedAt() == null && !sameContent(local, remote)) {
+                    toUpdateInFirestore.add(local);
+                }
+                // if both null or data same, no op
+            }
+        } catch (Exception e) {
+            stats.addError("Failed to sync point " + fbId + ": " + e.getMessage());
+            logger.warn("Failed to sync point {}", fbId, e);
+            if (local != null) failures.put(local.getId(), String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * Pushes every created / overwritten point in WriteBatches (see FirestoreBatchWriter), then stores the
+     * fbIds given to the previously unsynced points. Failures are reported per fbId and returned by point id.
+     */
+    private Map<Integer, String> pushPointsToFirestore(List<Point> toCreate, List<Point> toUpdate, List<Point> unsynced,
+                                                       Map<String, FieldMask.RemoteState> remoteStates, SyncStatistics stats) {
+        Map<Integer, String> failedIds = new HashMap<>();
+        if (toCreate.isEmpty() && toUpdate.isEmpty()) return failedIds;
+
+        Set<String> createFbIds = toCreate.stream().map(Point::getFbId).filter(Objects::nonNull).collect(Collectors.toSet());
+        List<Point> writes = new ArrayList<>(toCreate.size() + toUpdate.size());
+        writes.addAll(toCreate);
+        writes.addAll(toUpdate);
+        for (Point local : writes) {
+            if (local.getUser() != null) {
+                Hibernate.initialize(local.getUser());
+            }
+        }
+
+        Map<String, String> failures = firebasePointRepository.saveAll(writes, createFbIds, remoteStates, maxBatchesInFlight);
+
+        for (Point local : toCreate) {
+            String error = failures.get(local.getFbId());
+            if (error != null) {
+                stats.addError("Failed to sync point " + local.getFbId() + ": " + error);
+                failedIds.put(local.getId(), error);
+            } else {
+                stats.setPointsPushedToFirestore(stats.getPointsPushedToFirestore() + 1);
+            }
+        }
+        for (Point local : toUpdate) {
+            String error = failures.get(local.getFbId());
+            if (error != null) {
+                stats.addError("Failed to sync point " + local.getFbId() + ": " + error);
+                failedIds.put(local.getId(), error);
+            } else {
+                stats.setPointsUpdatedInFirestore(stats.getPointsUpdatedInFirestore() + 1);
+            }
+        }
+
+        List<Point> pushed = new ArrayList<>();
+        for (Point local : unsynced) {
+            if (failures.containsKey(local.getFbId())) {
+                local.setFbId(null); // not in Firestore, a new fbId will be given on the next sync
+            } else {
+                pushed.add(local);
+            }
+        }
+        // Points repriced in bulk SQL have no local hash: store the one just written to Firestore
+        for (Point local : writes) {
+            if (local.getId() != null && local.getContentHash() == null && !failures.containsKey(local.getFbId()) && !pushed.contains(local)) {
+                RepositoryProvider.jpaPointRepository.updateContentHash(local.getId(), local.computeContentHash());
+            }
+        }
+        if (!pushed.isEmpty()) {
+            try {
+                RepositoryProvider.jpaPointRepository.saveAll(pushed);
+            } catch (Exception e) {
+                stats.addError("Failed to store the fbIds of " + pushed.size() + " pushed points: " + e.getMessage());
+                logger.warn("Failed to store fbIds of pushed points", e);
+                pushed.forEach(p -> failedIds.put(p.getId(), "fbId not stored locally"));
+            }
+        }
+        logger.info("Pushed {} points to Firestore ({} failed)", writes.size() - failures.size(), failures.size());
+        return failedIds;
+    }
+
+    /**
+     * Applies points received from the Firestore listener: unknown points are created, points that are newer in
+     * Firestore are overwritten, with the same mapping as syncPoints. Local-newer points are left to the next push.
+     */
+    public SyncStatistics applyRemotePoints(List<Point> remotePoints) {
+        SyncStatistics stats = new SyncStatistics();
+        Map<String, Point> localByFbId = RepositoryProvider.jpaPointRepository
+            .findByFbIdIn(remotePoints.stream().map(Point::getFbId).collect(Collectors.toSet()))
+            .stream().collect(Collectors.toMap(Point::getFbId, p -> p, (a, b) -> a));
+        for (Point remote : remotePoints) {
+            try {
+                Point local = localByFbId.get(remote.getFbId());
+                if (local == null) {
+                    ensureUserExistsLocally(remote.getUser().getFbId());
+                    createLocalPoint(remote);
+                    stats.setPointsCreatedLocally(stats.getPointsCreatedLocally() + 1);
+                } else if (remote.getUpdatedAt() != null
+                        && (local.getUpdatedAt() == null || remote.getUpdatedAt().isAfter(local.getUpdatedAt()))
+                        && !sameContent(local, remote)) {
+                    ensureUserExistsLocally(remote.getUser().getFbId());
+                    overwriteLocalPoint(remote);
+                    stats.setPointsUpdatedLocally(stats.getPointsUpdatedLocally() + 1);
+                }
+            } catch (Exception e) {
+                stats.addError("Failed to apply point " + remote.getFbId() + ": " + e.getMessage());
+                logger.warn("Failed to apply point {}", remote.getFbId(), e);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Applies history entries received from the Firestore listener (insert or overwrite by fbId).
+     */
+    public SyncStatistics applyRemoteHistory(List<FirebasePointHistoricRepository.RemoteHistoric> remoteHistory) {
+        SyncStatistics stats = new SyncStatistics();
+        Map<String, Point> pointsByFbId = RepositoryProvider.jpaPointRepository
+            .findByFbIdIn(remoteHistory.stream().map(FirebasePointHistoricRepository.RemoteHistoric::pointFbId).collect(Collectors.toSet()))
+            .stream().collect(Collectors.toMap(Point::getFbId, p -> p, (a, b) -> a));
+        Map<String, PointHistoric> localByFbId = RepositoryProvider.pointHistoricRepository
+            .findByFbIdIn(remoteHistory.stream().map(r -> r.historic().getFbId()).collect(Collectors.toSet()))
+            .stream().collect(Collectors.toMap(PointHistoric::getFbId, h -> h, (a, b) -> a));
+        for (FirebasePointHistoricRepository.RemoteHistoric remote : remoteHistory) {
+            PointHistoric remoteHistoric = remote.historic();
+            try {
+                PointHistoric local = localByFbId.get(remoteHistoric.getFbId());
+                if (local == null) {
+                    Point point = pointsByFbId.get(remote.pointFbId());
+                    if (point == null) {
+                        throw new BusinessLogicException("Point " + remote.pointFbId() + " does not exist locally");
+                    }
+                    insertLocalPointHistoric(remoteHistoric, point.getId());
+                    stats.setPointHistoricCreatedLocally(stats.getPointHistoricCreatedLocally() + 1);
+                } else if (!historicDataEquals(local, remoteHistoric)) {
+                    local.setDate(remoteHistoric.getDate());
+                    local.setSurface(remoteHistoric.getSurface());
+                    local.setBudget(remoteHistoric.getBudget());
+                    local.setCoordinates(remoteHistoric.getCoordinates().getX(), remoteHistoric.getCoordinates().getY());
+                    local.setPointState(remoteHistoric.getPointState());
+                    RepositoryProvider.pointHistoricRepository.save(local);
+                    stats.setPointHistoricUpdatedLocally(stats.getPointHistoricUpdatedLocally() + 1);
+                }
+            } catch (Exception e) {
+                stats.addError("Failed to apply history " + remoteHistoric.getFbId() + " of point " + remote.pointFbId() + ": " + e.getMessage());
+                logger.warn("Failed to apply history {} of point {}", remoteHistoric.getFbId(), remote.pointFbId(), e);
+            }
+        }
+        return stats;
+    }
+
     private void ensureUserExistsLocally(String userFbId) throws BusinessLogicException {
         Optional<User> existingUser = RepositoryProvider.jpaUserRepository.findByFbId(userFbId);
         if (existingUser.isEmpty()) {
@@ -139,24 +492,6 @@ public class PointSyncService {
         return local;
     }
 
-    private Point pushPointToFirestore(Point local) {
-        if (local.getUser() != null) {
-            Hibernate.initialize(local.getUser());
-        }
-        Point newPoint = firebasePointRepository.save(local);
-        logger.info("Pushed point to Firestore: {}", local.getFbId());
-        return newPoint;
-    }
-
-    private Point overwriteFirestorePoint(Point local) {
-        if (local.getUser() != null) {
-            Hibernate.initialize(local.getUser());
-        }
-        Point updatedPoint = firebasePointRepository.save(local);
-        logger.info("Overwrote Firestore point: {}", local.getFbId());
-        return updatedPoint;
-    }
-
     private Point overwriteLocalPoint(Point remote) throws BusinessLogicException {
         Point local = RepositoryProvider.jpaPointRepository.findByFbId(remote.getFbId()).orElseThrow(() -> new BusinessLogicException("Local point not found"));
         if (remote.getDate() != null) {
@@ -182,62 +517,125 @@ public class PointSyncService {
     }
 
     public ApiResponse syncPointHistoric() {
+        return syncPointHistoric(false);
+    }
+
+    /**
+     * History sync with a constant number of reads: one collectionGroup("history") query (entries dated after the
+     * watermark, unless fullScan) and one local query by point id, reconciled through maps keyed by history fbId.
+     * Points are read as [id, fbId] pairs only: all of them for a full scan, the ones the run touches otherwise.
+     */
+    public ApiResponse syncPointHistoric(boolean fullScan) {
         try {
-            List<Point> allPoints = RepositoryProvider.jpaPointRepository.findAll();
             SyncStatistics stats = new SyncStatistics();
 
-            for (Point point : allPoints) {
-                if (point.getFbId() == null) continue; // TODO: To check if there are problems in firestore later
+            LocalDateTime watermark = fullScan ? null : syncWatermarkService.get(POINT_HISTORY_COLLECTION);
+            CompletableFuture<List<FirebasePointHistoricRepository.RemoteHistoric>> remotePull =
+                firebasePointHistoricRepository.findAllSinceAsync(watermark != null ? syncWatermarkService.pullFrom(watermark) : null);
+
+            // Points are only needed as id <-> fbId pairs
+            Map<String, Integer> pointIdsByFbId = new HashMap<>();
+            Map<Integer, String> pointFbIdsById = new HashMap<>();
+
+            List<FirebasePointHistoricRepository.RemoteHistoric> remoteHistory = null;
+            if (watermark == null) {
+                remoteHistory = FirestoreFutures.await(remotePull);
+            } else {
                 try {
-                    List<PointHistoric> localHistory = RepositoryProvider.pointHistoricRepository.findByPointId(point.getId());
-                    List<PointHistoric> remoteHistory = firebasePointHistoricRepository.findByPointFbId(point.getFbId());
-
-                    // Find missing local historic entries or update existing
-                    for (PointHistoric remoteHistoric : remoteHistory) {
-                        Optional<PointHistoric> existing = localHistory.stream()
-                            .filter(local -> Objects.equals(local.getFbId(), remoteHistoric.getFbId()))
-                            .findFirst();
-                        if (existing.isPresent()) {
-                            // Update existing local historic
-                            PointHistoric local = existing.get();
-                            local.setDate(remoteHistoric.getDate());
-                            local.setSurface(remoteHistoric.getSurface());
-                            local.setBudget(remoteHistoric.getBudget());
-                            local.setCoordinates(remoteHistoric.getCoordinates().getX(), remoteHistoric.getCoordinates().getY());
-                            local.setPointState(remoteHistoric.getPointState());
-                            RepositoryProvider.pointHistoricRepository.save(local);
-                            stats.setPointHistoricUpdatedLocally(stats.getPointHistoricUpdatedLocally() + 1);
-                        } else {
-                            insertLocalPointHistoric(remoteHistoric, point);
-                            stats.setPointHistoricCreatedLocally(stats.getPointHistoricCreatedLocally() + 1);
-                        }
-                    }
+                    remoteHistory = FirestoreFutures.await(remotePull);
+                } catch (Exception e) {
+                    logger.warn("Delta pull of point history failed, falling back to a full scan", e);
+                    watermark = null;
+                }
+            }
+            boolean delta = watermark != null;
+            if (remoteHistory == null) {
+                remoteHistory = firebasePointHistoricRepository.findAllSince(null);
+            }
 
-                    // Find missing remote historic entries
-                    for (PointHistoric localHistoric : localHistory) {
-                        if (localHistoric.getFbId() == null || localHistoric.getFbId().isEmpty()) {
-                            // Push to Firestore to get fb_id
-                            PointHistoric savedRemote = insertRemotePointHistoric(localHistoric, point.getFbId());
-                            if (savedRemote != null && savedRemote.getFbId() != null) {
-                                localHistoric.setFbId(savedRemote.getFbId());
-                                RepositoryProvider.pointHistoricRepository.save(localHistoric);
-                                stats.setPointHistoricPushedToFirestore(stats.getPointHistoricPushedToFirestore() + 1);
-                            }
-                        } else {
-                            boolean existsRemotely = remoteHistory.stream().anyMatch(remote -> Objects.equals(remote.getFbId(), localHistoric.getFbId()));
-                            if (!existsRemotely) {
-                                insertRemotePointHistoric(localHistoric, point.getFbId());
-                                stats.setPointHistoricPushedToFirestore(stats.getPointHistoricPushedToFirestore() + 1);
-                            }
-                        }
-                    }
+            List<PointHistoric> localHistory;
+            if (delta) {
+                // Only the points of the pulled entries are resolved
+                Set<String> pulledPointFbIds = remoteHistory.stream()
+                    .map(FirebasePointHistoricRepository.RemoteHistoric::pointFbId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+                if (!pulledPointFbIds.isEmpty()) {
+                    addPointRefs(RepositoryProvider.jpaPointRepository.findFbIdRefsByFbIdIn(pulledPointFbIds), pointIdsByFbId, pointFbIdsById);
+                }
+                localHistory = pointIdsByFbId.isEmpty() ? List.of()
+                    : RepositoryProvider.pointHistoricRepository.findByPointIdIn(pointIdsByFbId.values());
+            } else {
+                addPointRefs(RepositoryProvider.jpaPointRepository.findFbIdRefs(), pointIdsByFbId, pointFbIdsById);
+                localHistory = RepositoryProvider.pointHistoricRepository.findAllByOrderByPointIdAscIdAsc();
+            }
+            HistoryReconciler.Plan<PointHistoric, FirebasePointHistoricRepository.RemoteHistoric> plan =
+                new HistoryReconciler<PointHistoric, FirebasePointHistoricRepository.RemoteHistoric>(PointHistoric::getFbId, r -> r.historic().getFbId())
+                    .diff(localHistory, remoteHistory, !delta); // entries already pushed can only be checked by a full scan
+
+            // Update existing local historic
+            for (HistoryReconciler.Match<PointHistoric, FirebasePointHistoricRepository.RemoteHistoric> match : plan.toUpdateLocally) {
+                PointHistoric local = match.local();
+                PointHistoric remoteHistoric = match.remote().historic();
+                if (historicDataEquals(local, remoteHistoric)) continue; // already applied, e.g. by an interrupted run
+                try {
+                    local.setDate(remoteHistoric.getDate());
+                    local.setSurface(remoteHistoric.getSurface());
+                    local.setBudget(remoteHistoric.getBudget());
+                    local.setCoordinates(remoteHistoric.getCoordinates().getX(), remoteHistoric.getCoordinates().getY());
+                    local.setPointState(remoteHistoric.getPointState());
+                    RepositoryProvider.pointHistoricRepository.save(local);
+                    stats.setPointHistoricUpdatedLocally(stats.getPointHistoricUpdatedLocally() + 1);
+                } catch (Exception e) {
+                    stats.addError("Failed to sync history " + remoteHistoric.getFbId() + " of point " + match.remote().pointFbId() + ": " + e.getMessage());
+                    logger.warn("Failed to sync history {} of point {}", remoteHistoric.getFbId(), match.remote().pointFbId(), e);
+                }
+            }
 
-                    logger.info("Synced history for point: {}", point.getFbId());
+            // Find missing local historic entries
+            for (FirebasePointHistoricRepository.RemoteHistoric remote : plan.toCreateLocally) {
+                PointHistoric remoteHistoric = remote.historic();
+                try {
+                    Integer pointId = pointIdsByFbId.get(remote.pointFbId());
+                    if (pointId == null) {
+                        throw new BusinessLogicException("Point " + remote.pointFbId() + " does not exist locally");
+                    }
+                    insertLocalPointHistoric(remoteHistoric, pointId);
+                    stats.setPointHistoricCreatedLocally(stats.getPointHistoricCreatedLocally() + 1);
                 } catch (Exception e) {
-                    stats.addError("Failed to sync history for point " + point.getFbId() + ": " + e.getMessage());
-                    logger.warn("Failed to sync history for point {}", point.getFbId(), e);
+                    stats.addError("Failed to sync history " + remoteHistoric.getFbId() + " of point " + remote.pointFbId() + ": " + e.getMessage());
+                    logger.warn("Failed to sync history {} of point {}", remoteHistoric.getFbId(), remote.pointFbId(), e);
+                }
+            }
+
+            // Find missing remote historic entries
+            Map<Integer, String> pushFailures = new HashMap<>();
+            pushHistory(plan.toPush, pointIdsByFbId, pointFbIdsById, stats, pushFailures);
+
+            // Outbox, a page at a time: entries recorded here and not loaded above (a full scan loaded them all)
+            Set<Integer> handled = localHistory.stream().map(PointHistoric::getId).collect(Collectors.toSet());
+            syncOutboxService.drain(SyncOutbox.POINT_HISTORIC, page -> {
+                Set<Integer> ids = SyncOutboxService.entityIds(page);
+                ids.removeAll(handled);
+                if (!ids.isEmpty()) {
+                    List<PointHistoric> neverPushed = RepositoryProvider.pointHistoricRepository.findAllById(ids).stream()
+                        .filter(h -> h.getFbId() == null)
+                        .collect(Collectors.toList());
+                    handled.addAll(ids);
+                    pushHistory(neverPushed, pointIdsByFbId, pointFbIdsById, stats, pushFailures);
                 }
+                return pushFailures;
+            });
+
+            // With errors the watermark stays put, so the failed entries are pulled again next time
+            if (stats.getTotalErrors() == 0) {
+                syncWatermarkService.advance(POINT_HISTORY_COLLECTION, remoteHistory.stream()
+                    .map(r -> r.historic().getDate())
+                    .filter(Objects::nonNull)
+                    .max(Comparator.naturalOrder())
+                    .orElse(null));
             }
+            logger.info("Point history sync ({}) pulled {} remote entries", delta ? "delta" : "full scan", remoteHistory.size());
 
             return new ApiResponse("success", stats, stats.generateSummaryMessage());
         } catch (Exception e) {
@@ -246,20 +644,88 @@ public class PointSyncService {
         }
     }
 
-    private PointHistoric insertLocalPointHistoric(PointHistoric remoteHistoric, Point point) {
+    /**
+     * Up to app.sync.max-writes-in-flight entries are written at once; each is saved locally once written.
+     */
+    private void pushHistory(List<PointHistoric> toPush, Map<String, Integer> pointIdsByFbId, Map<Integer, String> pointFbIdsById,
+                             SyncStatistics stats, Map<Integer, String> pushFailures) {
+        Set<Integer> unresolved = toPush.stream()
+            .map(PointHistoric::getPointId)
+            .filter(id -> id != null && !pointFbIdsById.containsKey(id))
+            .collect(Collectors.toSet());
+        if (!unresolved.isEmpty()) {
+            addPointRefs(RepositoryProvider.jpaPointRepository.findFbIdRefsByIdIn(unresolved), pointIdsByFbId, pointFbIdsById);
+        }
+        Deque<PendingHistoricPush> inFlight = new ArrayDeque<>();
+        for (PointHistoric localHistoric : toPush) {
+            String pointFbId = pointFbIdsById.get(localHistoric.getPointId());
+            if (pointFbId == null) {
+                pushFailures.put(localHistoric.getId(), "Point not pushed yet");
+                continue; // TODO: To check if there are problems in firestore later
+            }
+            if (inFlight.size() >= maxWritesInFlight) {
+                completeHistoricPush(inFlight.poll(), stats, pushFailures);
+            }
+            inFlight.add(new PendingHistoricPush(localHistoric, pointFbId, insertRemotePointHistoric(localHistoric, pointFbId)));
+        }
+        while (!inFlight.isEmpty()) {
+            completeHistoricPush(inFlight.poll(), stats, pushFailures);
+        }
+    }
+
+    private static void addPointRefs(List<Object[]> rows, Map<String, Integer> idsByFbId, Map<Integer, String> fbIdsById) {
+        for (Object[] row : rows) {
+            if (row[1] == null) continue;
+            idsByFbId.put((String) row[1], (Integer) row[0]);
+            fbIdsById.put((Integer) row[0], (String) row[1]);
+        }
+    }
+
+    private PointHistoric insertLocalPointHistoric(PointHistoric remoteHistoric, Integer pointId) {
         PointHistoric localHistoric = new PointHistoric();
         localHistoric.setDate(remoteHistoric.getDate());
         localHistoric.setSurface(remoteHistoric.getSurface());
         localHistoric.setBudget(remoteHistoric.getBudget());
         localHistoric.setCoordinates(remoteHistoric.getCoordinates().getX(), remoteHistoric.getCoordinates().getY());
-        localHistoric.setPointId(point.getId());
+        localHistoric.setPointId(pointId);
         localHistoric.setPointState(remoteHistoric.getPointState());
         localHistoric.setFbId(remoteHistoric.getFbId());
         return RepositoryProvider.pointHistoricRepository.save(localHistoric);
     }
 
-    private PointHistoric insertRemotePointHistoric(PointHistoric localHistoric, String pointFbId) {
-        return firebasePointHistoricRepository.save(localHistoric, pointFbId);
+    private record PendingHistoricPush(PointHistoric local, String pointFbId, CompletableFuture<PointHistoric> write) {}
+
+    private CompletableFuture<PointHistoric> insertRemotePointHistoric(PointHistoric localHistoric, String pointFbId) {
+        try {
+            return firebasePointHistoricRepository.saveAsync(localHistoric, pointFbId);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void completeHistoricPush(PendingHistoricPush push, SyncStatistics stats, Map<Integer, String> pushFailures) {
+        try {
+            PointHistoric savedRemote = FirestoreFutures.await(push.write());
+            if (savedRemote != null && savedRemote.getFbId() != null) {
+                push.local().setFbId(savedRemote.getFbId());
+                RepositoryProvider.pointHistoricRepository.save(push.local());
+                stats.setPointHistoricPushedToFirestore(stats.getPointHistoricPushedToFirestore() + 1);
+            }
+        } catch (Exception e) {
+            stats.addError("Failed to push history of point " + push.pointFbId() + ": " + e.getMessage());
+            logger.warn("Failed to push history of point {}", push.pointFbId(), e);
+            pushFailures.put(push.local().getId(), String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * Compares content hashes when both sides have a trusted one, field by field otherwise.
+     */
+    private boolean sameContent(Point local, Point remote) {
+        if (local.getContentHash() != null && remote.getContentHash() != null) {
+            return local.getContentHash().equals(remote.getContentHash());
+        }
+        return pointDataEquals(local, remote);
     }
 
     private boolean pointDataEquals(Point p1, Point p2) {
@@ -278,6 +744,19 @@ public class PointSyncService {
                 p1.getCoordinates().getY() == p2.getCoordinates().getY());
     }
 
+    // Listener echoes of our own pushes are not written again
+    private boolean historicDataEquals(PointHistoric h1, PointHistoric h2) {
+        Integer state1 = h1.getPointState() != null ? h1.getPointState().getId() : null;
+        Integer state2 = h2.getPointState() != null ? h2.getPointState().getId() : null;
+        return Objects.equals(h1.getDate(), h2.getDate()) &&
+               Objects.equals(h1.getSurface(), h2.getSurface()) &&
+               Objects.equals(h1.getBudget(), h2.getBudget()) &&
+               Objects.equals(state1, state2) &&
+               h1.getCoordinates() != null && h2.getCoordinates() != null &&
+               h1.getCoordinates().getX() == h2.getCoordinates().getX() &&
+               h1.getCoordinates().getY() == h2.getCoordinates().getY();
+    }
+
     public static PointType getPointTypeByLevel(int level) {
         String label;
         if (level >= 1 && level <= 3) {
@@ -0,0 +1,97 @@
+package mg.serve.vlc.service;
+
+import mg.serve.vlc.util.RepositoryProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the point layer as Mapbox Vector Tiles, with a bounded LRU cache of encoded tiles.
+ * Cached tiles are dropped by {@link #invalidate(org.locationtech.jts.geom.Point)} once a write to a point
+ * located in them has committed (see the lifecycle callbacks of Point).
+ *
+ * A tile read from the database before an invalidation may hold the old rows: every invalidation bumps a
+ * generation, and a tile is only cached if no invalidation happened since its read started.
+ */
+@Service
+public class PointTileService {
+    private static final Logger logger = LoggerFactory.getLogger(PointTileService.class);
+    public static final int MAX_ZOOM = 22;
+    private static final int MAX_CACHED_TILES = 4096;
+
+    public record Tile(byte[] data, String etag) {}
+
+    private static final Map<String, Tile> cache = Collections.synchronizedMap(
+        new LinkedHashMap<String, Tile>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Tile> eldest) {
+                return size() > MAX_CACHED_TILES;
+            }
+        }
+    );
+    private static final AtomicLong generation = new AtomicLong();
+
+    public Tile getTile(int z, int x, int y) {
+        String key = key(z, x, y);
+        Tile tile = cache.get(key);
+        if (tile != null) {
+            return tile;
+        }
+        long readGeneration = generation.get();
+        byte[] data = RepositoryProvider.jpaPointRepository.findLiveTile(z, x, y);
+        if (data == null) {
+            data = new byte[0];
+        }
+        tile = new Tile(data, "\"" + DigestUtils.md5DigestAsHex(data) + "\"");
+        synchronized (cache) {
+            if (generation.get() == readGeneration) {
+                cache.put(key, tile);
+            }
+        }
+        return tile;
+    }
+
+    public static boolean isValidTile(int z, int x, int y) {
+        if (z < 0 || z > MAX_ZOOM) return false;
+        long n = 1L << z;
+        return x >= 0 && x < n && y >= 0 && y < n;
+    }
+
+    /**
+     * Drops every cached tile (bulk writes that bypass the Point callbacks).
+     */
+    public static void invalidateAll() {
+        synchronized (cache) {
+            generation.incrementAndGet();
+            cache.clear();
+        }
+    }
+
+    /**
+     * Drops the cached tiles containing the given coordinates, at every zoom level.
+     */
+    public static void invalidate(org.locationtech.jts.geom.Point coordinates) {
+        if (coordinates == null) return;
+        double lon = coordinates.getX();
+        double lat = Math.max(-85.05112878, Math.min(85.05112878, coordinates.getY()));
+        double latRad = Math.toRadians(lat);
+        synchronized (cache) {
+            generation.incrementAndGet(); // even when nothing is cached: a tile may be being read
+            for (int z = 0; z <= MAX_ZOOM; z++) {
+                long n = 1L << z;
+                long x = Math.min(n - 1, Math.max(0, (long) Math.floor((lon + 180.0) / 360.0 * n)));
+                long y = Math.min(n - 1, Math.max(0, (long) Math.floor((1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * n)));
+                cache.remove(key(z, (int) x, (int) y));
+            }
+        }
+        logger.debug("Invalidated cached tiles around ({}, {})", lon, lat);
+    }
+
+    private static String key(int z, int x, int y) {
+        return z + "/" + x + "/" + y;
+    }
+}
@@ -0,0 +1,41 @@
+package mg.serve.vlc.service;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import mg.serve.vlc.model.map.Point;
+import mg.serve.vlc.util.AfterCommit;
+
+/**
+ * Invalidates the data derived from points (tiles, dashboard summary) on every JPA write of a Point.
+ */
+public class PointWriteListener {
+    @PostLoad
+    public void rememberLoadedCoordinates(Point point) {
+        point.setLoadedCoordinates(point.getCoordinates());
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void afterWrite(Point point) {
+        PointsSummaryService.markDirty();
+        invalidateTiles(point);
+    }
+
+    /**
+     * The tiles are dropped after the commit: dropped earlier, a tile request could reload and cache the old rows
+     * before the write is visible. A moved point also invalidates the tile it left.
+     */
+    private static void invalidateTiles(Point point) {
+        org.locationtech.jts.geom.Point current = point.getCoordinates();
+        org.locationtech.jts.geom.Point loaded = point.getLoadedCoordinates();
+        org.locationtech.jts.geom.Point previous = loaded != null && (current == null || !loaded.equalsExact(current)) ? loaded : null;
+        point.setLoadedCoordinates(current);
+        AfterCommit.run(() -> {
+            PointTileService.invalidate(current);
+            PointTileService.invalidate(previous);
+        });
+    }
+}
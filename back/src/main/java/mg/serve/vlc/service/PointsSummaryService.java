@@ -0,0 +1,79 @@
+package mg.serve.vlc.service;
+
+import mg.serve.vlc.dto.PointsSummaryDTO;
+import mg.serve.vlc.util.AfterCommit;
+import mg.serve.vlc.util.RepositoryProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Dashboard summary served from the point_summary materialized view instead of an aggregate scan per request.
+ * Point / PointHistoric writes mark the snapshot dirty once committed (a refresh before the commit would not see
+ * them); the view is refreshed CONCURRENTLY (readers are not blocked) shortly after, and on a slower fixed schedule
+ * to catch writes made outside JPA.
+ */
+@Service
+public class PointsSummaryService {
+    private static final Logger logger = LoggerFactory.getLogger(PointsSummaryService.class);
+    private static final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public static void markDirty() {
+        AfterCommit.run(() -> dirty.set(true));
+    }
+
+    public PointsSummaryDTO getSummary() {
+        try {
+            List<Object[]> rows = RepositoryProvider.pointsSummaryRepository.getSnapshotRows();
+            if (!rows.isEmpty()) {
+                Object[] row = rows.get(0);
+                PointsSummaryDTO dto = new PointsSummaryDTO(
+                    ((Number) row[0]).longValue(),
+                    ((Number) row[1]).doubleValue(),
+                    ((Number) row[2]).doubleValue(),
+                    ((Number) row[3]).doubleValue()
+                );
+                LocalDateTime refreshedAt = row[4] != null ? ((Timestamp) row[4]).toLocalDateTime() : null;
+                dto.setSnapshotAt(refreshedAt);
+                dto.setSnapshotAgeMs(refreshedAt != null ? Duration.between(refreshedAt, LocalDateTime.now()).toMillis() : null);
+                return dto;
+            }
+        } catch (Exception e) {
+            logger.warn("Summary snapshot unavailable, computing it live", e);
+        }
+
+        PointsSummaryDTO live = RepositoryProvider.pointsSummaryRepository.getSummary();
+        live.setSnapshotAt(LocalDateTime.now());
+        live.setSnapshotAgeMs(0L);
+        return live;
+    }
+
+    @Scheduled(fixedDelayString = "${app.summary.refresh-on-write-delay-ms:5000}")
+    public void refreshIfDirty() {
+        if (dirty.compareAndSet(true, false)) {
+            refresh();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.summary.refresh-interval-ms:300000}")
+    public void refreshPeriodically() {
+        dirty.set(false);
+        refresh();
+    }
+
+    public void refresh() {
+        try {
+            RepositoryProvider.pointsSummaryRepository.refreshSnapshot();
+        } catch (Exception e) {
+            dirty.set(true); // retry on next tick
+            logger.warn("Failed to refresh point_summary", e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package mg.serve.vlc.service;
+
+import mg.serve.vlc.model.Config;
+import mg.serve.vlc.util.RepositoryProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory price history (config rows with key PRICE), sorted by date so that the price in force at a date
+ * is a floorEntry lookup (O(log n)) instead of a scan of the config table.
+ * Loaded lazily, dropped by {@link #invalidate()} when a price is inserted. If it cannot be loaded,
+ * lookups go to the indexed (key, date_ DESC) query.
+ *
+ * Several prices can share a date: the map keeps the last inserted one per date (the one ORDER BY date_ DESC,
+ * id DESC finds), while {@link #history()} lists every row in the database order.
+ * A load that raced with an invalidate() is returned to its caller but not kept (see generation).
+ */
+public class PriceTimeline {
+    private static final Logger logger = LoggerFactory.getLogger(PriceTimeline.class);
+    public static final String PRICE_KEY = "PRICE";
+
+    private record Snapshot(NavigableMap<LocalDateTime, Config> byDate, List<Config> ascending) {}
+
+    private static volatile Snapshot timeline;
+    private static final AtomicLong generation = new AtomicLong(); // bumped by invalidate()
+    private static final ReentrantLock LOAD_LOCK = new ReentrantLock(); // held across a query: no synchronized (virtual thread pinning)
+
+    public static void invalidate() {
+        generation.incrementAndGet();
+        timeline = null;
+    }
+
+    /**
+     * Price in force at the given date (latest price dated on or before it), or null.
+     */
+    public static Config priceAt(LocalDateTime date) {
+        Snapshot current = load();
+        if (current == null) {
+            return RepositoryProvider.configRepository.findLastByKeyAtOrBefore(PRICE_KEY, date);
+        }
+        Map.Entry<LocalDateTime, Config> entry = current.byDate().floorEntry(date);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    public static Config latest() {
+        Snapshot current = load();
+        if (current == null) {
+            return RepositoryProvider.configRepository.findFirstByKeyOrderByDateDescIdDesc(PRICE_KEY);
+        }
+        Map.Entry<LocalDateTime, Config> entry = current.byDate().lastEntry();
+        return entry != null ? entry.getValue() : null;
+    }
+
+    public static Config earliest() {
+        Snapshot current = load();
+        if (current == null) {
+            return RepositoryProvider.configRepository.findFirstByKeyOrderByDateAscIdAsc(PRICE_KEY);
+        }
+        return current.ascending().isEmpty() ? null : current.ascending().get(0);
+    }
+
+    /**
+     * Every price, most recent first.
+     */
+    public static List<Config> history() {
+        Snapshot current = load();
+        if (current == null) {
+            return RepositoryProvider.configRepository.findByKeyOrderByDateDescIdDesc(PRICE_KEY);
+        }
+        List<Config> descending = new ArrayList<>(current.ascending());
+        Collections.reverse(descending);
+        return descending;
+    }
+
+    private static Snapshot load() {
+        Snapshot current = timeline;
+        if (current != null) {
+            return current;
+        }
+        LOAD_LOCK.lock();
+        try {
+            if (timeline != null) {
+                return timeline;
+            }
+            long loadGeneration = generation.get();
+            try {
+                // Ascending (date, id): for two prices with the same date the last inserted wins, like ORDER BY date_ DESC
+                List<Config> ascending = RepositoryProvider.configRepository.findByKeyOrderByDateAscIdAsc(PRICE_KEY);
+                TreeMap<LocalDateTime, Config> byDate = new TreeMap<>();
+                for (Config c : ascending) {
+                    if (c.getDate() != null) {
+                        byDate.put(c.getDate(), c);
+                    }
+                }
+                Snapshot fresh = new Snapshot(Collections.unmodifiableNavigableMap(byDate), List.copyOf(ascending));
+                if (generation.get() == loadGeneration) {
+                    timeline = fresh; // otherwise a price was inserted during the query: the next call reloads
+                }
+                return fresh;
+            } catch (Exception e) {
+                logger.warn("Failed to load the price timeline, using the indexed query", e);
+                return null;
+            }
+        } finally {
+            LOAD_LOCK.unlock();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package mg.serve.vlc.service;
+
+import jakarta.annotation.PostConstruct;
+import mg.serve.vlc.dto.RepriceJobDTO;
+import mg.serve.vlc.exception.BusinessLogicException;
+import mg.serve.vlc.model.Config;
+import mg.serve.vlc.util.RepositoryProvider;
+import mg.serve.vlc.util.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recomputes point budgets (surface * level * price) after a new price is published; finished works keep theirs.
+ * Jobs run one at a time in the background; each chunk of candidate ids is repriced by a single set-based UPDATE
+ * that also writes the point_historic rows, so repricing does not go through one save() per point.
+ * Only the latest price can be applied: repricing with an older one would overwrite the current budgets.
+ * The last app.reprice.jobs.keep finished jobs stay available for polling.
+ */
+@Service
+public class RepriceJobService {
+    private static final Logger logger = LoggerFactory.getLogger(RepriceJobService.class);
+
+    private final Map<String, RepriceJobDTO> jobs = new ConcurrentHashMap<>();
+    private final ReentrantLock startLock = new ReentrantLock(); // start() reads the price under it: no synchronized
+    private ExecutorService executor;
+
+    @Autowired
+    private WorkDelayAggregator workDelayAggregator;
+
+    @Value("${app.reprice.jobs.keep:20}")
+    private int keep;
+
+    @Value("${app.reprice.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadExecutor(Threads.factory("reprice-job", virtualThreads));
+    }
+
+    public RepriceJobDTO start(Long priceId) throws BusinessLogicException {
+        startLock.lock();
+        try {
+            return startLocked(priceId);
+        } finally {
+            startLock.unlock();
+        }
+    }
+
+    private RepriceJobDTO startLocked(Long priceId) throws BusinessLogicException {
+        Config config = RepositoryProvider.configRepository.findById(priceId).orElse(null);
+        if (config == null || !PriceTimeline.PRICE_KEY.equals(config.getKey())) {
+            throw new BusinessLogicException("Price not found");
+        }
+        Config latest = PriceTimeline.latest();
+        if (latest == null || !priceId.equals(latest.getId())) {
+            throw new BusinessLogicException("Only the latest price" + (latest != null ? " (" + latest.getId() + ")" : "") + " can be applied");
+        }
+        double price;
+        try {
+            price = Double.parseDouble(config.getValue());
+        } catch (Exception e) {
+            throw new BusinessLogicException("Invalid price value: " + config.getValue());
+        }
+
+        for (RepriceJobDTO job : jobs.values()) {
+            if ("RUNNING".equals(job.status)) {
+                if (priceId.equals(job.priceId)) {
+                    return job;
+                }
+                throw new BusinessLogicException("A reprice job is already running (" + job.id + ")");
+            }
+        }
+
+        prune();
+        RepriceJobDTO job = new RepriceJobDTO(UUID.randomUUID().toString(), priceId, price);
+        jobs.put(job.id, job);
+        executor.submit(() -> run(job));
+        return job;
+    }
+
+    public RepriceJobDTO get(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    private void run(RepriceJobDTO job) {
+        try {
+            LocalDateTime date = LocalDateTime.now();
+            job.total = RepositoryProvider.jpaPointRepository.countRepriceCandidates(job.price);
+            int afterId = 0;
+            while (true) {
+                List<Integer> ids = RepositoryProvider.jpaPointRepository.findRepriceChunk(job.price, afterId, chunkSize);
+                if (ids.isEmpty()) break;
+                afterId = ids.get(ids.size() - 1);
+                job.processed += RepositoryProvider.jpaPointRepository.repriceChunk(ids, job.price, date);
+            }
+            job.status = "DONE";
+            logger.info("Reprice job {} done: {} points at price {}", job.id, job.processed, job.price);
+        } catch (Exception e) {
+            job.status = "FAILED";
+            job.error = e.getMessage();
+            logger.error("Reprice job {} failed after {} points", job.id, job.processed, e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            // Bulk SQL bypasses the entity callbacks: refresh the derived data ourselves
+            if (job.processed > 0) {
+                PointsSummaryService.markDirty();
+                PointTileService.invalidateAll();
+                try {
+                    workDelayAggregator.rebuild(); // new point_historic rows
+                } catch (Exception e) {
+                    logger.error("Work-delay rebuild after reprice job {} failed", job.id, e);
+                }
+            }
+        }
+    }
+
+    private void prune() {
+        List<RepriceJobDTO> finished = new ArrayList<>();
+        for (RepriceJobDTO job : jobs.values()) {
+            if (!"RUNNING".equals(job.status)) finished.add(job);
+        }
+        if (finished.size() < keep) return;
+        finished.sort(Comparator.comparing(j -> j.startedAt));
+        for (int i = 0; i <= finished.size() - keep; i++) {
+            jobs.remove(finished.get(i).id);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package mg.serve.vlc.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import mg.serve.vlc.controller.response.ApiResponse;
+import mg.serve.vlc.controller.response.SyncStatistics;
+import mg.serve.vlc.dto.SyncBenchmarkDTO;
+import mg.serve.vlc.exception.BusinessLogicException;
+import mg.serve.vlc.repository.store.CountingDocumentStore;
+import mg.serve.vlc.repository.store.DocumentStore;
+import mg.serve.vlc.repository.store.InMemoryDocumentStore;
+import mg.serve.vlc.repository.store.InMemoryUserAccounts;
+import mg.serve.vlc.repository.store.UserAccounts;
+import mg.serve.vlc.util.SyntheticDataset;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Loads synthetic data sets (see SyntheticDataset) and measures the full sync phase by phase, so sync regressions
+ * show up before a release. Disabled unless app.sync.benchmark.enabled is set: loading a data set writes to the
+ * database, and the remote side can only be seeded with app.firestore.store=memory.
+ *
+ * The phases run one after the other (not as the job's dependency graph) so every counter belongs to one phase;
+ * do not run a benchmark while a sync job is running.
+ */
+@Service
+public class SyncBenchmarkService {
+    private static final Logger logger = LoggerFactory.getLogger(SyncBenchmarkService.class);
+    private static final long MB = 1024 * 1024;
+
+    @Autowired
+    private SyncJobService syncJobService;
+
+    @Autowired
+    private DocumentStore documentStore;
+
+    @Autowired
+    private UserAccounts userAccounts;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${app.sync.benchmark.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.sync.benchmark.dir:target/benchmark}")
+    private String dir;
+
+    /**
+     * Generates a data set, writes its SQL script under app.sync.benchmark.dir, runs it against the database and
+     * seeds the in-memory document store with its remote side.
+     */
+    public synchronized Map<String, Object> loadDataset(long seed, int users, int points) throws BusinessLogicException {
+        checkEnabled();
+        SyntheticDataset dataset = new SyntheticDataset(seed).users(users).points(points);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        try {
+            long start = System.nanoTime();
+            Path script = Path.of(dir, "dataset-" + seed + "-" + users + "-" + points + ".sql");
+            Files.createDirectories(script.getParent());
+            try (Writer out = Files.newBufferedWriter(script)) {
+                dataset.writeSql(out);
+            }
+            try (Connection connection = dataSource.getConnection()) {
+                ScriptUtils.executeSqlScript(connection, new FileSystemResource(script));
+            }
+            summary.put("script", script.toAbsolutePath().toString());
+            summary.put("localMs", (System.nanoTime() - start) / 1_000_000);
+
+            DocumentStore store = documentStore instanceof CountingDocumentStore counting ? counting.delegate() : documentStore;
+            if (store instanceof InMemoryDocumentStore memory && userAccounts instanceof InMemoryUserAccounts accounts) {
+                start = System.nanoTime();
+                dataset.seedRemote(memory, accounts);
+                summary.put("remoteDocuments", memory.size());
+                summary.put("remoteMs", (System.nanoTime() - start) / 1_000_000);
+            } else {
+                summary.put("remoteDocuments", null); // Firestore itself is never seeded
+            }
+            logger.info("Benchmark data set loaded: {}", summary);
+            return summary;
+        } catch (Exception e) {
+            logger.error("Failed to load the benchmark data set", e);
+            throw new BusinessLogicException("Failed to load the benchmark data set: " + e.getMessage());
+        }
+    }
+
+    public synchronized SyncBenchmarkDTO run(boolean full) throws BusinessLogicException {
+        checkEnabled();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        boolean statisticsWereEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        SyncBenchmarkDTO result = new SyncBenchmarkDTO(full);
+        try {
+            for (String name : SyncJobService.PHASES) {
+                SyncBenchmarkDTO.Phase phase = measure(name, full, statistics);
+                result.phases.add(phase);
+                result.wallMs += phase.wallMs;
+                result.firestoreCalls += phase.firestoreCalls;
+                result.documentsRead += phase.documentsRead;
+                result.documentsWritten += phase.documentsWritten;
+                result.sqlStatements += phase.sqlStatements;
+                result.heapPeakMb = Math.max(result.heapPeakMb, phase.heapPeakMb);
+                logger.info("Benchmark phase {}: {} ms, {} Firestore calls, {} SQL statements, {} MB heap peak",
+                    name, phase.wallMs, phase.firestoreCalls, phase.sqlStatements, phase.heapPeakMb);
+            }
+            return result;
+        } finally {
+            statistics.setStatisticsEnabled(statisticsWereEnabled);
+        }
+    }
+
+    private SyncBenchmarkDTO.Phase measure(String name, boolean full, Statistics statistics) {
+        SyncBenchmarkDTO.Phase phase = new SyncBenchmarkDTO.Phase(name);
+        System.gc(); // comparable heap baselines between phases and runs
+        phase.heapBeforeMb = heapUsed() / MB;
+        resetHeapPeaks();
+        CountingDocumentStore.Counts opsBefore = counts();
+        long statementsBefore = statistics.getPrepareStatementCount();
+        long start = System.nanoTime();
+
+        ApiResponse response = syncJobService.phaseCall(name, full).get();
+
+        phase.wallMs = (System.nanoTime() - start) / 1_000_000;
+        phase.sqlStatements = statistics.getPrepareStatementCount() - statementsBefore;
+        CountingDocumentStore.Counts ops = counts().minus(opsBefore);
+        phase.firestoreCalls = ops.calls();
+        phase.documentsRead = ops.documentsRead();
+        phase.documentsWritten = ops.documentsWritten();
+        phase.heapPeakMb = heapPeak() / MB;
+        if ("success".equals(response.getStatus()) && response.getData() instanceof SyncStatistics stats) {
+            phase.status = "DONE";
+            phase.stats = stats;
+        } else {
+            phase.status = "FAILED";
+            phase.error = String.valueOf(response.getError());
+        }
+        return phase;
+    }
+
+    /**
+     * Zero when the store is not counted; ops made outside the DocumentStore (listeners, dashboard) are not seen.
+     */
+    private CountingDocumentStore.Counts counts() {
+        return documentStore instanceof CountingDocumentStore counting ? counting.counts() : new CountingDocumentStore.Counts(0, 0, 0);
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static void resetHeapPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    private static long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private void checkEnabled() throws BusinessLogicException {
+        if (!enabled) {
+            throw new BusinessLogicException("Sync benchmarks are disabled (app.sync.benchmark.enabled)");
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package mg.serve.vlc.service;
+
+import jakarta.annotation.PostConstruct;
+import mg.serve.vlc.controller.response.ApiResponse;
+import mg.serve.vlc.controller.response.SyncStatistics;
+import mg.serve.vlc.dto.SyncJobDTO;
+import mg.serve.vlc.util.PhaseGraph;
+import mg.serve.vlc.util.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs the full sync (users, user history, points, point history, dashboard) off the request thread.
+ * Only one job runs at a time: a request made while a job of the same mode (full or delta) and phases is running
+ * joins it instead of starting another. Other requests are queued behind the running job, and later requests of
+ * the same kind join the queued one. The single-phase endpoints (POST /sync/users...) run as one-phase jobs, so
+ * they never overlap a background sync either.
+ * The last app.sync.jobs.keep finished jobs stay available for polling.
+ *
+ * Within a job the phases run as a dependency graph on a pool of app.sync.phase-parallelism threads:
+ * users -> (user history, points -> point history -> dashboard). The dashboard only reads local data, but that
+ * data is what the point phases just pulled, so it waits for them.
+ */
+@Service
+public class SyncJobService {
+    private static final Logger logger = LoggerFactory.getLogger(SyncJobService.class);
+    static final List<String> PHASES = List.of("users", "userHistoric", "points", "pointHistoric", "dashboard");
+    private static final Map<String, String[]> DEPENDENCIES = Map.of(
+        "users", new String[0],
+        "userHistoric", new String[] {"users"},
+        "points", new String[] {"users"}, // ensureUserExistsLocally needs the pulled users
+        "pointHistoric", new String[] {"points"},
+        "dashboard", new String[] {"points", "pointHistoric"} // summarizes the points and history pulled above
+    );
+
+    @Autowired
+    private UserSyncService userSyncService;
+
+    @Autowired
+    private PointSyncService pointSyncService;
+
+    @Autowired
+    private DashboardSyncService dashboardSyncService;
+
+    @Value("${app.sync.jobs.keep:20}")
+    private int keep;
+
+    @Value("${app.sync.phase-parallelism:3}")
+    private int phaseParallelism;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ExecutorService executor;
+    private final Map<String, SyncJobDTO> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Future<?>> futures = new ConcurrentHashMap<>();
+    private SyncJobDTO running;
+    private final List<SyncJobDTO> queued = new ArrayList<>();
+    private final ReentrantLock runLock = new ReentrantLock(); // held by the job thread for a whole job
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadExecutor(Threads.factory("sync-job", virtualThreads));
+    }
+
+    /**
+     * Starts a sync job, or returns the running or queued job of the same mode (coalesced) if there is one.
+     * A job of the other mode cannot stand in for this one: a delta run skips what only a full scan finds, and a
+     * full scan is far more expensive than the delta that was asked for.
+     */
+    public SyncJobDTO start(boolean full) {
+        return start(full, PHASES);
+    }
+
+    /**
+     * Same as above for a subset of PHASES (dependencies outside the subset are not run).
+     */
+    public synchronized SyncJobDTO start(boolean full, List<String> phaseNames) {
+        for (String name : phaseNames) {
+            if (!DEPENDENCIES.containsKey(name)) throw new IllegalArgumentException("Unknown sync phase " + name);
+        }
+        boolean busy = running != null && "RUNNING".equals(running.status);
+        if (busy && sameKind(running, full, phaseNames)) {
+            running.coalescedRequests++;
+            return running;
+        }
+        for (SyncJobDTO waiting : queued) {
+            if (sameKind(waiting, full, phaseNames)) {
+                waiting.coalescedRequests++;
+                return waiting;
+            }
+        }
+        prune();
+        SyncJobDTO job = new SyncJobDTO(UUID.randomUUID().toString(), full, phaseNames);
+        if (busy || !queued.isEmpty()) {
+            job.status = "QUEUED"; // the single-thread executor runs it after the current job
+            queued.add(job);
+        } else {
+            running = job;
+        }
+        jobs.put(job.id, job);
+        futures.put(job.id, executor.submit(() -> run(job)));
+        return job;
+    }
+
+    public SyncJobDTO get(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Blocks until the job is finished (used by the synchronous POST /sync/all).
+     */
+    public SyncJobDTO await(SyncJobDTO job) throws InterruptedException, ExecutionException {
+        Future<?> future = futures.get(job.id);
+        if (future != null) future.get();
+        return job;
+    }
+
+    private static boolean sameKind(SyncJobDTO job, boolean full, List<String> phaseNames) {
+        return job.full == full && job.phases.stream().map(p -> p.name).toList().equals(phaseNames);
+    }
+
+    /**
+     * Runs work unless a sync job is running, in which case nothing is run and false is returned. A job that starts
+     * meanwhile waits for work to finish. The Firestore listener applies its batches through this, so they never
+     * race the reconciliation of a job.
+     */
+    public boolean runUnlessSyncing(Runnable work) {
+        if (!runLock.tryLock()) return false;
+        try {
+            work.run();
+            return true;
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private synchronized void begin(SyncJobDTO job) {
+        queued.remove(job);
+        running = job;
+        if ("QUEUED".equals(job.status)) {
+            job.status = "RUNNING";
+            job.startedAt = LocalDateTime.now();
+        }
+    }
+
+    private void run(SyncJobDTO job) {
+        runLock.lock();
+        begin(job);
+        ExecutorService phasePool = Executors.newFixedThreadPool(Math.max(1, phaseParallelism), Threads.factory("sync-phase", virtualThreads));
+        try {
+            PhaseGraph graph = new PhaseGraph();
+            for (SyncJobDTO.Phase phase : job.phases) {
+                String[] dependsOn = Arrays.stream(DEPENDENCIES.get(phase.name))
+                    .filter(graph.names()::contains)
+                    .toArray(String[]::new);
+                graph.add(phase.name, () -> runPhase(job, phase), dependsOn);
+            }
+            Map<String, Throwable> failures = graph.run(phasePool);
+            if (!failures.isEmpty()) {
+                Map.Entry<String, Throwable> first = failures.entrySet().iterator().next();
+                throw new IllegalStateException("Phase " + first.getKey() + " failed: " + first.getValue().getMessage(), first.getValue());
+            }
+            job.status = "DONE";
+            logger.info("Sync job {} done ({} errors)", job.id, job.stats.getTotalErrors());
+        } catch (Exception e) {
+            job.status = "FAILED";
+            job.error = e.getMessage();
+            logger.error("Sync job {} failed", job.id, e);
+        } finally {
+            phasePool.shutdown();
+            job.currentPhase = null;
+            job.finishedAt = LocalDateTime.now();
+            futures.remove(job.id);
+            runLock.unlock();
+        }
+    }
+
+    private void runPhase(SyncJobDTO job, SyncJobDTO.Phase phase) {
+        phase.startedAt = LocalDateTime.now();
+        phase.status = "RUNNING";
+        updateTotals(job);
+        ApiResponse response = phaseCall(phase.name, job.full).get();
+        phase.finishedAt = LocalDateTime.now();
+        if ("success".equals(response.getStatus()) && response.getData() instanceof SyncStatistics) {
+            phase.stats = (SyncStatistics) response.getData();
+            phase.status = "DONE";
+        } else {
+            // A failed phase does not stop the next ones, as with the former inline /sync/all
+            phase.stats = new SyncStatistics();
+            phase.error = String.valueOf(response.getError());
+            phase.stats.addError(phase.name + " sync failed: " + phase.error);
+            phase.status = "FAILED";
+        }
+        updateTotals(job);
+    }
+
+    /**
+     * Phases finish concurrently: totals are rebuilt from the finished phases under the job lock and published
+     * as a new object, so readers never see a half-merged SyncStatistics.
+     */
+    private void updateTotals(SyncJobDTO job) {
+        synchronized (job) {
+            SyncStatistics totals = new SyncStatistics();
+            StringJoiner runningPhases = new StringJoiner(",");
+            for (SyncJobDTO.Phase p : job.phases) {
+                if (p.stats != null) totals.merge(p.stats);
+                if ("RUNNING".equals(p.status)) runningPhases.add(p.name);
+            }
+            job.stats = totals;
+            job.currentPhase = runningPhases.length() > 0 ? runningPhases.toString() : null;
+        }
+    }
+
+    Supplier<ApiResponse> phaseCall(String name, boolean full) {
+        return switch (name) {
+            case "users" -> () -> userSyncService.syncUsers(full);
+            case "userHistoric" -> userSyncService::syncUserHistoric;
+            case "points" -> () -> pointSyncService.syncPoints(full);
+            case "pointHistoric" -> () -> pointSyncService.syncPointHistoric(full);
+            case "dashboard" -> dashboardSyncService::syncDashboard;
+            default -> throw new IllegalArgumentException("Unknown sync phase " + name);
+        };
+    }
+
+    private void prune() {
+        List<SyncJobDTO> finished = new ArrayList<>();
+        for (SyncJobDTO job : jobs.values()) {
+            if ("DONE".equals(job.status) || "FAILED".equals(job.status)) finished.add(job);
+        }
+        if (finished.size() < keep) return;
+        finished.sort(Comparator.comparing(j -> j.startedAt));
+        for (int i = 0; i <= finished.size() - keep; i++) {
+            jobs.remove(finished.get(i).id);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package mg.serve.vlc.service;
+
+import jakarta.annotation.PostConstruct;
+import mg.serve.vlc.model.sync.SyncOutboxEntry;
+import mg.serve.vlc.util.RepositoryProvider;
+import mg.serve.vlc.util.SyncOutbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Transactional outbox of the local changes to push to Firestore.
+ *
+ * Entries are written along with the changes through {@link SyncOutbox}. The sync push phases {@link #drain} the
+ * pending entries a page at a time: push the entities, then acknowledge (delete) the entries that made it.
+ */
+@Service
+public class SyncOutboxService {
+    private static final Logger logger = LoggerFactory.getLogger(SyncOutboxService.class);
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.sync.outbox-batch-size:500}")
+    private int batchSize;
+
+    public SyncOutboxService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void register() {
+        SyncOutbox.register(transactionTemplate);
+    }
+
+    /**
+     * Pushes one page of outbox entries and returns the failures (entity id to error message) of the page.
+     */
+    @FunctionalInterface
+    public interface PagePush {
+        Map<Integer, String> push(List<SyncOutboxEntry> page) throws Exception;
+    }
+
+    /**
+     * Drains the pending entries of a type in pages of app.sync.outbox-batch-size (keyset on id): each page is
+     * pushed, then completed, before the next one is read. If a push throws, its page stays pending as a whole.
+     * Returns the number of entries read.
+     */
+    public int drain(String entityType, PagePush push) throws Exception {
+        int read = 0;
+        long afterId = 0;
+        while (true) {
+            List<SyncOutboxEntry> page = RepositoryProvider.syncOutboxRepository
+                .findByEntityTypeAndIdGreaterThanOrderByIdAsc(entityType, afterId, PageRequest.of(0, batchSize));
+            if (page.isEmpty()) break;
+            complete(page, push.push(page));
+            read += page.size();
+            if (page.size() < batchSize) break;
+            afterId = page.get(page.size() - 1).getId();
+        }
+        return read;
+    }
+
+    public static Set<Integer> entityIds(Collection<SyncOutboxEntry> entries) {
+        Set<Integer> ids = new HashSet<>();
+        for (SyncOutboxEntry entry : entries) ids.add(entry.getEntityId());
+        return ids;
+    }
+
+    /**
+     * Deletes the entries of the pushed entities and keeps (attempts + 1, last error) those whose push failed.
+     * failures maps an entity id to its error message.
+     */
+    public void complete(Collection<SyncOutboxEntry> entries, Map<Integer, String> failures) {
+        List<Long> done = new ArrayList<>();
+        Map<String, List<Long>> failedByError = new HashMap<>();
+        for (SyncOutboxEntry entry : entries) {
+            String error = failures.get(entry.getEntityId());
+            if (error == null) {
+                done.add(entry.getId());
+            } else {
+                String message = error.length() > 255 ? error.substring(0, 255) : error;
+                failedByError.computeIfAbsent(message, e -> new ArrayList<>()).add(entry.getId());
+            }
+        }
+        for (int from = 0; from < done.size(); from += batchSize) {
+            RepositoryProvider.syncOutboxRepository.deleteByIdIn(done.subList(from, Math.min(from + batchSize, done.size())));
+        }
+        for (Map.Entry<String, List<Long>> failed : failedByError.entrySet()) {
+            RepositoryProvider.syncOutboxRepository.markFailed(failed.getValue(), failed.getKey());
+        }
+        if (!entries.isEmpty()) {
+            logger.info("Outbox: {} entries acknowledged, {} kept for retry", done.size(), entries.size() - done.size());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package mg.serve.vlc.service;
+
+import mg.serve.vlc.model.sync.SyncWatermark;
+import mg.serve.vlc.util.RepositoryProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Reads and advances the per-collection watermarks of the Firestore delta pull.
+ */
+@Service
+public class SyncWatermarkService {
+    private static final Logger logger = LoggerFactory.getLogger(SyncWatermarkService.class);
+
+    // Documents written by clients with a slightly late clock are still picked up by the next pull
+    @Value("${app.sync.watermark-overlap-ms:60000}")
+    private long overlapMs;
+
+    /**
+     * Progress of an interrupted run. Keys up to cursor were reconciled by a run started at "at".
+     */
+    public record Checkpoint(String cursor, boolean full, LocalDateTime at, long overlapMs) {
+        /**
+         * The interrupted run already reconciled this key and its remote document has not changed since
+         * (allowing for the same clock overlap as the delta pull).
+         */
+        public boolean covers(String key, LocalDateTime remoteUpdatedAt) {
+            return key != null && key.compareTo(cursor) <= 0
+                && remoteUpdatedAt != null && remoteUpdatedAt.isBefore(at.minus(Duration.ofMillis(overlapMs)));
+        }
+    }
+
+    /**
+     * Watermark of the collection, null when it has never been synced (full scan needed).
+     */
+    public LocalDateTime get(String collection) {
+        return RepositoryProvider.syncWatermarkRepository.findById(collection)
+            .map(SyncWatermark::getRemoteUpdatedAt)
+            .orElse(null);
+    }
+
+    /**
+     * Lower bound of the next delta query: the watermark minus the overlap window.
+     */
+    public LocalDateTime pullFrom(LocalDateTime watermark) {
+        return watermark.minus(Duration.ofMillis(overlapMs));
+    }
+
+    public Checkpoint checkpoint(String collection) {
+        return RepositoryProvider.syncWatermarkRepository.findById(collection)
+            .filter(w -> w.getCheckpointCursor() != null && w.getCheckpointAt() != null)
+            .map(w -> new Checkpoint(w.getCheckpointCursor(), Boolean.TRUE.equals(w.getCheckpointFull()), w.getCheckpointAt(), overlapMs))
+            .orElse(null);
+    }
+
+    public void saveCheckpoint(String collection, String cursor, boolean full, LocalDateTime runStartedAt) {
+        SyncWatermark watermark = findOrCreate(collection);
+        watermark.setCheckpointCursor(cursor);
+        watermark.setCheckpointFull(full);
+        watermark.setCheckpointAt(runStartedAt);
+        watermark.setUpdatedAt(LocalDateTime.now());
+        RepositoryProvider.syncWatermarkRepository.save(watermark);
+    }
+
+    public void clearCheckpoint(String collection) {
+        RepositoryProvider.syncWatermarkRepository.findById(collection).ifPresent(watermark -> {
+            if (watermark.getCheckpointCursor() == null) return;
+            watermark.setCheckpointCursor(null);
+            watermark.setCheckpointFull(null);
+            watermark.setCheckpointAt(null);
+            RepositoryProvider.syncWatermarkRepository.save(watermark);
+        });
+    }
+
+    /**
+     * Moves the watermark forward to the greatest updatedAt pulled (never backwards, never past now).
+     */
+    public void advance(String collection, LocalDateTime maxPulledUpdatedAt) {
+        if (maxPulledUpdatedAt == null) return;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime value = maxPulledUpdatedAt.isAfter(now) ? now : maxPulledUpdatedAt;
+
+        SyncWatermark watermark = findOrCreate(collection);
+        if (watermark.getRemoteUpdatedAt() != null && !value.isAfter(watermark.getRemoteUpdatedAt())) return;
+        watermark.setRemoteUpdatedAt(value);
+        watermark.setUpdatedAt(now);
+        RepositoryProvider.syncWatermarkRepository.save(watermark);
+        logger.info("Watermark of {} moved to {}", collection, value);
+    }
+
+    private SyncWatermark findOrCreate(String collection) {
+        return RepositoryProvider.syncWatermarkRepository.findById(collection).orElseGet(() -> {
+            SyncWatermark w = new SyncWatermark();
+            w.setCollectionName(collection);
+            return w;
+        });
+    }
+}
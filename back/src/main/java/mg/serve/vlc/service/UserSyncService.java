@@ -3,25 +3,66 @@ package mg.serve.vlc.service;
 import mg.serve.vlc.controller.response.ApiResponse;
 import mg.serve.vlc.controller.response.SyncStatistics;
 import mg.serve.vlc.exception.BusinessLogicException;
+import mg.serve.vlc.model.sync.SyncOutboxEntry;
 import mg.serve.vlc.model.user.User;
 import mg.serve.vlc.model.user.UserHistoric;
 import mg.serve.vlc.repository.user.FirebaseUserRepository;
 import mg.serve.vlc.repository.userHistoric.FirebaseUserHistoricRepository;
 import mg.serve.vlc.repository.user.UserRepository;
 import mg.serve.vlc.repository.userHistoric.UserHistoricRepository;
+import mg.serve.vlc.repository.store.DocumentStore;
+import mg.serve.vlc.repository.store.UserAccounts;
+import mg.serve.vlc.util.ContentHash;
+import mg.serve.vlc.util.FirestoreFutures;
+import mg.serve.vlc.util.HistoryReconciler;
 import mg.serve.vlc.util.RepositoryProvider;
+import mg.serve.vlc.util.SyncOutbox;
+import jakarta.annotation.PostConstruct;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
 public class UserSyncService {
     private static final Logger logger = LoggerFactory.getLogger(UserSyncService.class);
-    FirebaseUserRepository firebaseUserRepository = new FirebaseUserRepository();
-    FirebaseUserHistoricRepository firebaseUserHistoricRepository = new FirebaseUserHistoricRepository();
+    public static final String USERS_COLLECTION = "users";
+    FirebaseUserRepository firebaseUserRepository;
+    FirebaseUserHistoricRepository firebaseUserHistoricRepository;
+
+    @Autowired
+    private DocumentStore documentStore;
+
+    @Autowired
+    private UserAccounts userAccounts;
+
+    @Autowired
+    private SyncWatermarkService syncWatermarkService;
+
+    @Autowired
+    private SyncOutboxService syncOutboxService;
+
+    @Value("${app.sync.read-chunk-size:300}")
+    private int readChunkSize;
+
+    @Value("${app.sync.max-reads-in-flight:4}")
+    private int maxReadsInFlight;
+
+    private final HistoryReconciler<UserHistoric, UserHistoric> historyReconciler =
+        new HistoryReconciler<>(UserHistoric::getFbId, UserHistoric::getFbId);
+
+    @PostConstruct
+    void init() {
+        firebaseUserRepository = new FirebaseUserRepository(documentStore, userAccounts);
+        firebaseUserHistoricRepository = new FirebaseUserHistoricRepository(documentStore);
+    }
 
     /*
         syncUsers():
@@ -59,9 +100,76 @@ public class UserSyncService {
                     continue
     */
     public ApiResponse syncUsers() {
+        return syncUsers(false);
+    }
+
+    /**
+     * Same as above, but unless fullScan is asked (or users were never synced) only the Firestore users
+     * updated after the stored watermark are pulled and only the users of the sync outbox are pushed.
+     */
+    public ApiResponse syncUsers(boolean fullScan) {
         try {
-            List<User> localUsers = RepositoryProvider.jpaUserRepository.findAll();
-            List<User> remoteUsers = firebaseUserRepository.findAll();
+            LocalDateTime watermark = fullScan ? null : syncWatermarkService.get(USERS_COLLECTION);
+            List<User> remoteUsers = null;
+            if (watermark != null) {
+                try {
+                    remoteUsers = firebaseUserRepository.findUpdatedSince(syncWatermarkService.pullFrom(watermark));
+                } catch (Exception e) {
+                    logger.warn("Delta pull of users failed, falling back to a full scan", e);
+                    watermark = null;
+                }
+            }
+            boolean delta = watermark != null;
+            LocalDateTime pulledUpTo = null;
+            int scanned;
+
+            // Local side: the outbox tells what changed here (drained below); only a full scan still compares every user
+            List<User> localUsers;
+            if (!delta) {
+                // Full scan on (email, content hash) pairs first: full documents and entities are only loaded for the
+                // users whose hashes differ or are unknown
+                CompletableFuture<List<ContentHash.Stamp>> remoteStampsPull = firebaseUserRepository.findContentStampsAsync();
+                List<Object[]> localStamps = RepositoryProvider.jpaUserRepository.findSyncStamps(); // while Firestore answers
+                List<ContentHash.Stamp> remoteStamps = FirestoreFutures.await(remoteStampsPull);
+                Map<String, String> remoteHashes = new HashMap<>();
+                Map<String, String> remoteFbIds = new HashMap<>();
+                for (ContentHash.Stamp stamp : remoteStamps) {
+                    if (stamp.key() == null) continue;
+                    remoteHashes.put(stamp.key(), stamp.hash());
+                    remoteFbIds.put(stamp.key(), stamp.documentId());
+                    if (stamp.updatedAt() != null && (pulledUpTo == null || stamp.updatedAt().isAfter(pulledUpTo))) {
+                        pulledUpTo = stamp.updatedAt();
+                    }
+                }
+                Map<String, String> localHashes = new HashMap<>();
+                for (Object[] row : localStamps) {
+                    localHashes.put((String) row[1], (String) row[2]);
+                }
+                Set<String> differing = ContentHash.differing(localHashes, remoteHashes);
+                Set<Integer> localIds = new HashSet<>();
+                for (Object[] row : localStamps) {
+                    if (differing.contains((String) row[1])) localIds.add((Integer) row[0]);
+                }
+                List<User> differingRemote = new ArrayList<>();
+                firebaseUserRepository.forEachByFbIds(differing.stream()
+                    .map(remoteFbIds::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet()), readChunkSize, maxReadsInFlight, differingRemote::add);
+                remoteUsers = differingRemote;
+                localUsers = RepositoryProvider.jpaUserRepository.findAllById(localIds);
+                scanned = remoteStamps.size();
+                logger.info("User full scan: {} of {} remote / {} local users differ by hash", differing.size(), remoteStamps.size(), localStamps.size());
+            } else {
+                scanned = remoteUsers.size();
+                pulledUpTo = remoteUsers.stream()
+                    .map(User::getUpdatedAt)
+                    .filter(Objects::nonNull)
+                    .max(Comparator.naturalOrder())
+                    .orElse(null);
+                Set<String> pulledEmails = remoteUsers.stream().map(User::getEmail).filter(Objects::nonNull).collect(Collectors.toSet());
+                localUsers = pulledEmails.isEmpty() ? List.of() : RepositoryProvider.jpaUserRepository.findByEmailIn(pulledEmails);
+            }
+            Map<Integer, String> failures = new HashMap<>();
 
             Map<String, User> localMap = localUsers.stream().collect(Collectors.toMap(User::getEmail, u -> u));
             Map<String, User> remoteMap = remoteUsers.stream().collect(Collectors.toMap(User::getEmail, u -> u));
@@ -71,48 +179,33 @@ public class UserSyncService {
 
             SyncStatistics stats = new SyncStatistics();
 
+            Set<Integer> handled = new HashSet<>();
             for (String email : allUserEmails) {
                 User local = localMap.get(email);
-                User remote = remoteMap.get(email);
+                if (local != null) handled.add(local.getId());
+                reconcileUser(email, local, remoteMap.get(email), delta, stats, failures);
+            }
 
-                try {
-                    if (local == null && remote != null) {
-                        // Firestore only
-                        createLocalUser(remote);
-                        stats.setUsersCreatedLocally(stats.getUsersCreatedLocally() + 1);
-                    } else if (local != null && remote == null) {
-                        // Local only
-                        User updatedLocal = pushUserToFirestore(local);
-                        ((UserRepository) RepositoryProvider.jpaUserRepository).save(updatedLocal); // To get fbId
-                        stats.setUsersPushedToFirestore(stats.getUsersPushedToFirestore() + 1);
-                    } else if (local.getUpdatedAt() != null && remote.getUpdatedAt() != null) {
-                        if (local.getUpdatedAt().isAfter(remote.getUpdatedAt()) && !userDataEquals(local, remote)) {
-                            // Local newer and data different
-                            overwriteFirestoreUser(local);
-                            stats.setUsersUpdatedInFirestore(stats.getUsersUpdatedInFirestore() + 1);
-                        } else if (remote.getUpdatedAt().isAfter(local.getUpdatedAt()) && !userDataEquals(local, remote)) {
-                            // Firestore newer and data different
-                            overwriteLocalUser(remote);
-                            stats.setUsersUpdatedLocally(stats.getUsersUpdatedLocally() + 1);
-                        } else {
-                            // identical timestamps or identical data: no op, thank you chatgpt
-                        }
-                    } else {
-                        // Handle cases where updatedAt is null
-                        if (local.getUpdatedAt() == null && remote.getUpdatedAt() != null) {
-                            overwriteLocalUser(remote);
-                            stats.setUsersUpdatedLocally(stats.getUsersUpdatedLocally() + 1);
-                        } else if (local.getUpdatedAt() != null && remote.getUpdatedAt() == null) {
-                            overwriteFirestoreUser(local);
-                            stats.setUsersUpdatedInFirestore(stats.getUsersUpdatedInFirestore() + 1);
-                        }
-                        // if both null, no op
+            // Outbox, a page at a time. A full scan already compared every user; a delta run pushes the users
+            // changed here that were not pulled. At-least-once: an entry is only removed once its user is in
+            // Firestore (or was found up to date)
+            syncOutboxService.drain(SyncOutbox.USER, page -> {
+                Set<Integer> ids = SyncOutboxService.entityIds(page);
+                ids.removeAll(handled);
+                if (delta && !ids.isEmpty()) {
+                    for (User local : RepositoryProvider.jpaUserRepository.findAllById(ids)) {
+                        handled.add(local.getId());
+                        reconcileUser(local.getEmail(), local, null, true, stats, failures);
                     }
-                } catch (Exception e) {
-                    stats.addError("Failed to sync user " + email + ": " + e.getMessage());
-                    logger.warn("Failed to sync user {}", email, e);
                 }
+                return failures;
+            });
+
+            // With errors the watermark stays put, so the failed documents are pulled again next time
+            if (stats.getTotalErrors() == 0) {
+                syncWatermarkService.advance(USERS_COLLECTION, pulledUpTo);
             }
+            logger.info("User sync ({}) checked {} remote documents, fetched {}", delta ? "delta" : "full scan", scanned, remoteUsers.size());
 
             return new ApiResponse("success", stats, stats.generateSummaryMessage());
         } catch (Exception e) {
@@ -121,6 +214,86 @@ public class UserSyncService {
         }
     }
 
+    /**
+     * Decides one user (see the pseudo code above); failures are recorded by local user id.
+     */
+    private void reconcileUser(String email, User local, User remote, boolean delta, SyncStatistics stats, Map<Integer, String> failures) {
+        try {
+            if (local == null && remote != null) {
+                // Firestore only
+                createLocalUser(remote);
+                stats.setUsersCreatedLocally(stats.getUsersCreatedLocally() + 1);
+            } else if (local != null && remote == null) {
+                if (!delta || local.getFbId() == null) {
+                    // Local only
+                    User updatedLocal = pushUserToFirestore(local);
+                    ((UserRepository) RepositoryProvider.jpaUserRepository).save(updatedLocal); // To get fbId
+                    stats.setUsersPushedToFirestore(stats.getUsersPushedToFirestore() + 1);
+                } else {
+                    // In the outbox and not pulled, so unchanged in Firestore since the watermark: the local change wins
+                    overwriteFirestoreUser(local, null);
+                    stats.setUsersUpdatedInFirestore(stats.getUsersUpdatedInFirestore() + 1);
+                }
+            } else if (local.getUpdatedAt() != null && remote.getUpdatedAt() != null) {
+                if (local.getUpdatedAt().isAfter(remote.getUpdatedAt()) && !sameContent(local, remote)) {
+                    // Local newer and data different
+                    overwriteFirestoreUser(local, remote);
+                    stats.setUsersUpdatedInFirestore(stats.getUsersUpdatedInFirestore() + 1);
+                } else if (remote.getUpdatedAt().isAfter(local.getUpdatedAt()) && !sameContent(local, remote)) {
+                    // Firestore newer and data different
+                    overwriteLocalUser(remote);
+                    stats.setUsersUpdatedLocally(stats.getUsersUpdatedLocally() + 1);
+                } else {
+                    // identical timestamps or identical data: no op, thank you chatgpt
+                }
+            } else {
+                // Handle cases where updatedAt is null
+                if (local.getUpdatedAt() == null && remote.getUpdatedAt() != null) {
+                    overwriteLocalUser(remote);
+                    stats.setUsersUpdatedLocally(stats.getUsersUpdatedLocally() + 1);
+                } else if (local.getUpdatedAt() != null && remote.getUpdatedAt() == null) {
+                    overwriteFirestoreUser(local, remote);
+                    stats.setUsersUpdatedInFirestore(stats.getUsersUpdatedInFirestore() + 1);
+                }
+                // if both null, no op
+            }
+        } catch (Exception e) {
+            stats.addError("Failed to sync user " + email + ": " + e.getMessage());
+            logger.warn("Failed to sync user {}", email, e);
+            if (local != null) failures.put(local.getId(), String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * Applies users received from the Firestore listener: unknown users are created, users that are newer in
+     * Firestore are overwritten. Local-newer users are left to the next push.
+     */
+    public SyncStatistics applyRemoteUsers(List<User> remoteUsers) {
+        SyncStatistics stats = new SyncStatistics();
+        Map<String, User> localByEmail = RepositoryProvider.jpaUserRepository
+            .findByEmailIn(remoteUsers.stream().map(User::getEmail).filter(Objects::nonNull).collect(Collectors.toSet()))
+            .stream().collect(Collectors.toMap(User::getEmail, u -> u, (a, b) -> a));
+        for (User remote : remoteUsers) {
+            try {
+                if (remote.getEmail() == null) continue;
+                User local = localByEmail.get(remote.getEmail());
+                if (local == null) {
+                    createLocalUser(remote);
+                    stats.setUsersCreatedLocally(stats.getUsersCreatedLocally() + 1);
+                } else if (remote.getUpdatedAt() != null
+                        && (local.getUpdatedAt() == null || remote.getUpdatedAt().isAfter(local.getUpdatedAt()))
+                        && !sameContent(local, remote)) {
+                    overwriteLocalUser(remote);
+                    stats.setUsersUpdatedLocally(stats.getUsersUpdatedLocally() + 1);
+                }
+            } catch (Exception e) {
+                stats.addError("Failed to apply user " + remote.getEmail() + ": " + e.getMessage());
+                logger.warn("Failed to apply user {}", remote.getEmail(), e);
+            }
+        }
+        return stats;
+    }
+
     private User createLocalUser(User remote) throws BusinessLogicException {
         User local = new User();
         local.setEmail(remote.getEmail());
@@ -141,9 +314,11 @@ public class UserSyncService {
         return newUser;
     }
 
-    private User overwriteFirestoreUser(User local) {
-        // Save method already updates
-        User updatedUser = firebaseUserRepository.save(local);
+    /**
+     * remote: the Firestore user compared with, if it was pulled in this sync; only the changed fields are then sent.
+     */
+    private User overwriteFirestoreUser(User local, User remote) {
+        User updatedUser = firebaseUserRepository.update(local, remote != null ? remote.getRemoteState() : null);
         logger.info("Overwrote Firestore user: {}", local.getEmail());
         return updatedUser;
     }
@@ -170,29 +345,29 @@ public class UserSyncService {
                     List<UserHistoric> localHistory = RepositoryProvider.jpaUserHistoricRepository.findByUserId(user.getId());
                     List<UserHistoric> remoteHistory = firebaseUserHistoricRepository.findByUserFbId(user.getFbId());
 
-                    // Find missing local historic entries or update existing
-                    for (UserHistoric remoteHistoric : remoteHistory) {
-                        Optional<UserHistoric> existing = localHistory.stream()
-                            .filter(local -> Objects.equals(local.getFbId(), remoteHistoric.getFbId()))
-                            .findFirst();
-                        if (existing.isPresent()) {
-                            // Update existing local historic
-                            UserHistoric local = existing.get();
-                            local.setEmail(remoteHistoric.getEmail());
-                            local.setPassword(remoteHistoric.getPassword());
-                            local.setUsername(remoteHistoric.getUsername());
-                            local.setDate(remoteHistoric.getDate());
-                            local.setUserStateId(remoteHistoric.getUserStateId());
-                            ((UserHistoricRepository) RepositoryProvider.jpaUserHistoricRepository).save(local);
-                            stats.setHistoricUpdatedLocally(stats.getHistoricUpdatedLocally() + 1);
-                        } else {
-                            insertLocalUserHistoric(remoteHistoric, user);
-                            stats.setHistoricCreatedLocally(stats.getHistoricCreatedLocally() + 1);
-                        }
+                    HistoryReconciler.Plan<UserHistoric, UserHistoric> plan = historyReconciler.diff(localHistory, remoteHistory, true);
+
+                    // Update existing local historic
+                    for (HistoryReconciler.Match<UserHistoric, UserHistoric> match : plan.toUpdateLocally) {
+                        UserHistoric local = match.local();
+                        UserHistoric remoteHistoric = match.remote();
+                        local.setEmail(remoteHistoric.getEmail());
+                        local.setPassword(remoteHistoric.getPassword());
+                        local.setUsername(remoteHistoric.getUsername());
+                        local.setDate(remoteHistoric.getDate());
+                        local.setUserStateId(remoteHistoric.getUserStateId());
+                        ((UserHistoricRepository) RepositoryProvider.jpaUserHistoricRepository).save(local);
+                        stats.setHistoricUpdatedLocally(stats.getHistoricUpdatedLocally() + 1);
+                    }
+
+                    // Find missing local historic entries
+                    for (UserHistoric remoteHistoric : plan.toCreateLocally) {
+                        insertLocalUserHistoric(remoteHistoric, user);
+                        stats.setHistoricCreatedLocally(stats.getHistoricCreatedLocally() + 1);
                     }
 
                     // Find missing remote historic entries
-                    for (UserHistoric localHistoric : localHistory) {
+                    for (UserHistoric localHistoric : plan.toPush) {
                         if (localHistoric.getFbId() == null || localHistoric.getFbId().isEmpty()) {
                             // Push to Firestore to get fb_id
                             UserHistoric savedRemote = insertRemoteUserHistoric(localHistoric);
@@ -202,11 +377,8 @@ public class UserSyncService {
                                 stats.setHistoricPushedToFirestore(stats.getHistoricPushedToFirestore() + 1);
                             }
                         } else {
-                            boolean existsRemotely = remoteHistory.stream().anyMatch(remote -> Objects.equals(remote.getFbId(), localHistoric.getFbId()));
-                            if (!existsRemotely) {
-                                insertRemoteUserHistoric(localHistoric);
-                                stats.setHistoricPushedToFirestore(stats.getHistoricPushedToFirestore() + 1);
-                            }
+                            insertRemoteUserHistoric(localHistoric);
+                            stats.setHistoricPushedToFirestore(stats.getHistoricPushedToFirestore() + 1);
                         }
                     }
 
@@ -244,6 +416,16 @@ public class UserSyncService {
         return firebaseUserHistoricRepository.save(localHistoric, localHistoric.getUser().getFbId());
     }
 
+    /**
+     * Compares content hashes when both sides have a trusted one, field by field otherwise.
+     */
+    private boolean sameContent(User local, User remote) {
+        if (local.getContentHash() != null && remote.getContentHash() != null) {
+            return local.getContentHash().equals(remote.getContentHash());
+        }
+        return userDataEquals(local, remote);
+    }
+
     private boolean userDataEquals(User u1, User u2) {
         return Objects.equals(u1.getEmail(), u2.getEmail()) &&
                Objects.equals(u1.getUsername(), u2.getUsername()) &&
@@ -0,0 +1,310 @@
+package mg.serve.vlc.service;
+
+import jakarta.annotation.PostConstruct;
+import mg.serve.vlc.dto.PointDTO;
+import mg.serve.vlc.dto.PointListItemDTO;
+import mg.serve.vlc.dto.PointWorkDelayDTO;
+import mg.serve.vlc.dto.WorkTreatmentDTO;
+import mg.serve.vlc.model.map.PointHistoric;
+import mg.serve.vlc.model.map.PointState;
+import mg.serve.vlc.util.AfterCommit;
+import mg.serve.vlc.util.RepositoryProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Work-delay figures shared by GET /points/work-delay and the dashboard sync.
+ *
+ * Keeps, per point, the first date it reached progress 0, 0.5 and 1, plus running sums/counts of the
+ * 0 -> 0.5, 0.5 -> 1 and 0 -> 1 delays. Every PointHistoric write updates the concerned point only
+ * (after commit), so averages are read in O(1) and the per-point list in O(page).
+ * {@link #rebuild()} recomputes everything from the database (startup, recovery) without blocking readers:
+ * the query runs outside the lock and the result is swapped in, then the points written meanwhile are redone.
+ */
+@Component
+public class WorkDelayAggregator {
+    private static final Logger logger = LoggerFactory.getLogger(WorkDelayAggregator.class);
+    private static WorkDelayAggregator instance;
+
+    private static class Phases {
+        LocalDateTime date0;
+        LocalDateTime date05;
+        LocalDateTime date1;
+
+        Long newDelayMs() {
+            return date0 != null && date05 != null ? Duration.between(date0, date05).toMillis() : null;
+        }
+
+        Long inProgressDelayMs() {
+            return date05 != null && date1 != null ? Duration.between(date05, date1).toMillis() : null;
+        }
+
+        Long totalDelayMs() {
+            Long n = newDelayMs();
+            Long i = inProgressDelayMs();
+            return n != null && i != null ? n + i : null;
+        }
+
+        void record(Double progress, LocalDateTime date) {
+            if (progress == null || date == null) return;
+            if (progress.equals(0.0) && (date0 == null || date.isBefore(date0))) date0 = date;
+            if (progress.equals(0.5) && (date05 == null || date.isBefore(date05))) date05 = date;
+            if (progress.equals(1.0) && (date1 == null || date.isBefore(date1))) date1 = date;
+        }
+    }
+
+    private static class Totals {
+        long sumNew;
+        int countNew;
+        long sumInProgress;
+        int countInProgress;
+        long sumTotal;
+        int countTotal;
+
+        void add(Phases phases, int sign) {
+            Long n = phases.newDelayMs();
+            Long i = phases.inProgressDelayMs();
+            Long t = phases.totalDelayMs();
+            if (n != null) { sumNew += sign * n; countNew += sign; }
+            if (i != null) { sumInProgress += sign * i; countInProgress += sign; }
+            if (t != null) { sumTotal += sign * t; countTotal += sign; }
+        }
+    }
+
+    // Replaced as a whole by rebuild; entries change under lock
+    private volatile ConcurrentSkipListMap<Integer, Phases> phasesByPoint = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Double> progressByStateId = new ConcurrentHashMap<>();
+
+    // Guarded by lock, which is never held across a database call
+    private Totals totals = new Totals();
+    private Set<Integer> writtenDuringRebuild; // non-null while a rebuild runs
+    private volatile boolean ready = false;
+    private final ReentrantLock lock = new ReentrantLock();
+    // One rebuild at a time; held during the query, readers and writers only take lock
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    @PostConstruct
+    public void register() {
+        WorkDelayAggregator.instance = this;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Initial work-delay rebuild failed, it will be retried on next read", e);
+        }
+    }
+
+    /**
+     * Recomputes every point from the database with the single work-delay query.
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            lock.lock();
+            try {
+                writtenDuringRebuild = new HashSet<>();
+            } finally {
+                lock.unlock();
+            }
+
+            ConcurrentSkipListMap<Integer, Phases> fresh = new ConcurrentSkipListMap<>();
+            Totals freshTotals = new Totals();
+            for (PointWorkDelayDTO row : RepositoryProvider.workTreatmentRepository.getWorkDelays()) {
+                Phases phases = new Phases();
+                phases.date0 = row.date0;
+                phases.date05 = row.date05;
+                phases.date1 = row.date1;
+                fresh.put(row.point.id, phases);
+                freshTotals.add(phases, 1);
+            }
+            progressByStateId.clear();
+
+            Set<Integer> written;
+            lock.lock();
+            try {
+                phasesByPoint = fresh;
+                totals = freshTotals;
+                written = writtenDuringRebuild;
+                writtenDuringRebuild = null;
+                ready = true;
+            } finally {
+                lock.unlock();
+            }
+            // The query may not have seen them
+            written.forEach(this::recomputePoint);
+            logger.info("Work-delay aggregate rebuilt for {} points", fresh.size());
+        } finally {
+            lock.lock();
+            try {
+                writtenDuringRebuild = null; // a failed rebuild stops collecting
+            } finally {
+                lock.unlock();
+            }
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Called from the PointHistoric lifecycle callbacks. Applied once the surrounding transaction commits.
+     */
+    public static void onHistoricWritten(PointHistoric historic, boolean inserted) {
+        WorkDelayAggregator aggregator = instance;
+        if (aggregator == null || historic.getPointId() == null) return;
+
+        Integer pointId = historic.getPointId();
+        PointState state = historic.getPointState();
+        Integer stateId = state != null ? state.getId() : null;
+        Double progress = state != null ? state.getProgress() : null;
+        LocalDateTime date = historic.getDate();
+
+        AfterCommit.run(() -> {
+            try {
+                if (inserted) {
+                    aggregator.recordInsert(pointId, stateId, progress, date);
+                } else {
+                    aggregator.recomputePoint(pointId);
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to update work-delay aggregate for point {}, rebuilding", pointId, e);
+                aggregator.ready = false;
+            }
+        });
+    }
+
+    private void recordInsert(Integer pointId, Integer stateId, Double progress, LocalDateTime date) {
+        Double resolved = progress != null ? progress : resolveProgress(stateId);
+        lock.lock();
+        try {
+            if (writtenDuringRebuild != null) writtenDuringRebuild.add(pointId);
+            if (!ready) return; // next rebuild picks it up
+            Phases phases = phasesByPoint.computeIfAbsent(pointId, id -> new Phases());
+            totals.add(phases, -1);
+            phases.record(resolved, date);
+            totals.add(phases, 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * An existing history row changed: the first dates may move later, so the point is recomputed from its own rows.
+     */
+    private void recomputePoint(Integer pointId) {
+        Phases fresh = new Phases();
+        for (PointHistoric h : RepositoryProvider.pointHistoricRepository.findByPointId(pointId)) {
+            PointState state = h.getPointState();
+            if (state == null) continue;
+            fresh.record(state.getProgress() != null ? state.getProgress() : resolveProgress(state.getId()), h.getDate());
+        }
+        lock.lock();
+        try {
+            if (writtenDuringRebuild != null) writtenDuringRebuild.add(pointId);
+            if (!ready) return;
+            Phases old = phasesByPoint.put(pointId, fresh);
+            if (old != null) totals.add(old, -1);
+            totals.add(fresh, 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Double resolveProgress(Integer stateId) {
+        if (stateId == null) return null;
+        if (!progressByStateId.containsKey(stateId)) {
+            for (PointState ps : RepositoryProvider.pointStateRepository.findAll()) {
+                if (ps.getProgress() != null) progressByStateId.put(ps.getId(), ps.getProgress());
+            }
+        }
+        return progressByStateId.get(stateId);
+    }
+
+    private void ensureReady() {
+        if (!ready) rebuild();
+    }
+
+    /**
+     * Payload of GET /points/work-delay: workTreatments (one page when limit is given) and the global averages.
+     */
+    public Map<String, Object> toResponse(Integer afterId, Integer limit) {
+        ensureReady();
+
+        Long avgNew;
+        Long avgInProg;
+        Long avgTotal;
+        NavigableMap<Integer, Phases> current;
+        lock.lock();
+        try {
+            avgNew = totals.countNew > 0 ? Math.round((double) totals.sumNew / totals.countNew) : null;
+            avgInProg = totals.countInProgress > 0 ? Math.round((double) totals.sumInProgress / totals.countInProgress) : null;
+            avgTotal = totals.countTotal > 0 ? Math.round((double) totals.sumTotal / totals.countTotal) : null;
+            current = phasesByPoint;
+        } finally {
+            lock.unlock();
+        }
+
+        NavigableMap<Integer, Phases> view = afterId != null ? current.tailMap(afterId, false) : current;
+        List<Map.Entry<Integer, Phases>> page = view.entrySet().stream()
+                .limit(limit != null ? Math.max(1, limit) : Long.MAX_VALUE)
+                .collect(Collectors.toList());
+
+        Map<Integer, PointListItemDTO> points = new HashMap<>();
+        if (!page.isEmpty()) {
+            List<Integer> ids = page.stream().map(Map.Entry::getKey).collect(Collectors.toList());
+            for (PointListItemDTO p : RepositoryProvider.jpaPointRepository.findListItemsByIds(ids)) {
+                points.put(p.id, p);
+            }
+        }
+
+        List<WorkTreatmentDTO> payload = new ArrayList<>();
+        for (Map.Entry<Integer, Phases> entry : page) {
+            PointListItemDTO p = points.get(entry.getKey());
+            if (p == null) continue;
+            PointDTO pointDTO = new PointDTO(p.id, p.date, p.surface, p.budget, p.lat, p.lon, p.stateId, p.stateLabel, p.typeId, p.typeLabel);
+            Phases phases = entry.getValue();
+            Long newDelay = phases.newDelayMs();
+            Long inProgressDelay = phases.inProgressDelayMs();
+            Long total = phases.totalDelayMs();
+            payload.add(new WorkTreatmentDTO(pointDTO, newDelay, inProgressDelay, formatDelay(newDelay), formatDelay(inProgressDelay), total, formatDelay(total)));
+        }
+
+        Map<String, Object> out = new HashMap<>();
+        out.put("workTreatments", payload);
+        out.put("average0to05Ms", avgNew);
+        out.put("average0to05Label", formatDelay(avgNew));
+        out.put("average05to1Ms", avgInProg);
+        out.put("average05to1Label", formatDelay(avgInProg));
+        out.put("average0to1Ms", avgTotal);
+        out.put("average0to1Label", formatDelay(avgTotal));
+        return out;
+    }
+
+    /**
+     * Formats ms into a human readable string
+     */
+    public static String formatDelay(Long ms) {
+        if (ms == null) return null;
+        Duration d = Duration.ofMillis(ms);
+        long days = d.toDays();
+        long hours = d.toHours() % 24;
+        long minutes = d.toMinutes() % 60;
+        long seconds = d.getSeconds() % 60;
+        if (days > 0) return String.format("%dd %dh %dm", days, hours, minutes);
+        if (hours > 0) return String.format("%dh %dm", hours, minutes);
+        if (minutes > 0) return String.format("%dm %ds", minutes, seconds);
+        return String.format("%ds", seconds);
+    }
+}
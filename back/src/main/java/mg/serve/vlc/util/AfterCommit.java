@@ -0,0 +1,26 @@
+package mg.serve.vlc.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs cache invalidations once the current transaction has committed, so a reader cannot reload and cache the
+ * old rows between the invalidation and the commit (nor see data of a transaction that is then rolled back).
+ * Without a transaction the action runs right away.
+ */
+public final class AfterCommit {
+    private AfterCommit() {}
+
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package mg.serve.vlc.util;
+
+import com.google.cloud.Timestamp;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Stable SHA-256 of the canonical fields of a synced document (see Point / User computeContentHash).
+ * Keys are sorted, integral numbers are written the same whether they are Integer (JPA) or Long (Firestore),
+ * and Timestamps as seconds.nanos, so a point loaded from Postgres and the same point read back from Firestore
+ * hash identically.
+ */
+public final class ContentHash {
+    private ContentHash() {}
+
+    public static String of(Map<String, ?> canonical) {
+        StringBuilder sb = new StringBuilder();
+        append(sb, canonical);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * (key, hash) of a remote document read through a projection query, without its other fields.
+     */
+    public record Stamp(String key, String documentId, String hash, LocalDateTime updatedAt) {}
+
+    /**
+     * The contentHash stored in a Firestore document, or null when it cannot be trusted: it is only valid if it was
+     * written together with the document's current updatedAt (contentHashAt), which clients that do not maintain
+     * the hash leave behind.
+     */
+    public static String trusted(Map<String, Object> data) {
+        if (data == null) return null;
+        Object hash = data.get("contentHash");
+        Object updatedAt = data.get("updatedAt");
+        if (!(hash instanceof String) || updatedAt == null || !updatedAt.equals(data.get("contentHashAt"))) {
+            return null;
+        }
+        return (String) hash;
+    }
+
+    /**
+     * Keys present on only one side, or whose hashes are unknown (null) or differ: the only entries whose full
+     * documents need to be fetched and compared.
+     */
+    public static Set<String> differing(Map<String, String> localHashes, Map<String, String> remoteHashes) {
+        Set<String> keys = new HashSet<>();
+        for (Map.Entry<String, String> local : localHashes.entrySet()) {
+            String remote = remoteHashes.get(local.getKey());
+            if (local.getValue() == null || remote == null || !remote.equals(local.getValue())) {
+                keys.add(local.getKey());
+            }
+        }
+        for (String key : remoteHashes.keySet()) {
+            if (!localHashes.containsKey(key)) keys.add(key);
+        }
+        return keys;
+    }
+
+    /**
+     * Same canonical value, e.g. an Integer read from JPA and the Long Firestore returns for it.
+     */
+    public static boolean sameValue(Object a, Object b) {
+        StringBuilder left = new StringBuilder();
+        StringBuilder right = new StringBuilder();
+        append(left, a);
+        append(right, b);
+        return left.toString().equals(right.toString());
+    }
+
+    private static void append(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((k, v) -> sorted.put(String.valueOf(k), v));
+            sb.append('{');
+            sorted.forEach((k, v) -> {
+                sb.append(k).append('=');
+                append(sb, v);
+                sb.append(';');
+            });
+            sb.append('}');
+        } else if (value instanceof Collection<?> list) {
+            sb.append('[');
+            for (Object item : list) {
+                append(sb, item);
+                sb.append(',');
+            }
+            sb.append(']');
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            sb.append(((Number) value).longValue());
+        } else if (value instanceof Number number) {
+            sb.append(number.doubleValue());
+        } else if (value instanceof Timestamp ts) {
+            sb.append(ts.getSeconds()).append('.').append(ts.getNanos());
+        } else {
+            sb.append('"').append(value.toString().replace("\"", "\\\"")).append('"');
+        }
+    }
+}
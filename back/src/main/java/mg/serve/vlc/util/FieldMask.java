@@ -0,0 +1,93 @@
+package mg.serve.vlc.util;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+
+import java.util.*;
+
+/**
+ * Field-level diff between the last read state of a Firestore document and the map about to be written, so an
+ * overwrite sends only the changed fields (e.g. pointStateId and pointState) instead of the whole document.
+ *
+ * Nested maps are diffed one level deep (user.username); a nested map that lost keys is replaced as a whole, like
+ * a full update would. Top-level fields absent from the new map are left untouched, as update(toMap()) did.
+ * Updates carry an updatedAt precondition on the read state: if the document changed in between, the write is
+ * rejected rather than applied to a state that was never compared.
+ */
+public final class FieldMask {
+    private FieldMask() {}
+
+    /**
+     * A document as it was read: its data and Firestore update time.
+     */
+    public record RemoteState(Map<String, Object> data, Timestamp updateTime) {
+        public static RemoteState of(DocumentSnapshot doc) {
+            return doc.exists() && doc.getData() != null ? new RemoteState(doc.getData(), doc.getUpdateTime()) : null;
+        }
+    }
+
+    public static Map<FieldPath, Object> diff(Map<String, Object> previous, Map<String, Object> next) {
+        Map<FieldPath, Object> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : next.entrySet()) {
+            String key = entry.getKey();
+            Object before = previous.get(key);
+            Object after = entry.getValue();
+            if (previous.containsKey(key) && ContentHash.sameValue(before, after)) continue;
+
+            if (before instanceof Map<?, ?> beforeMap && after instanceof Map<?, ?> afterMap
+                    && afterMap.keySet().containsAll(beforeMap.keySet())) {
+                for (Map.Entry<?, ?> sub : afterMap.entrySet()) {
+                    if (!beforeMap.containsKey(sub.getKey()) || !ContentHash.sameValue(beforeMap.get(sub.getKey()), sub.getValue())) {
+                        changes.put(FieldPath.of(key, String.valueOf(sub.getKey())), sub.getValue());
+                    }
+                }
+            } else {
+                changes.put(FieldPath.of(key), after);
+            }
+        }
+        return changes;
+    }
+
+    public static Precondition precondition(Timestamp readAt) {
+        return readAt != null ? Precondition.updatedAt(readAt) : Precondition.NONE;
+    }
+
+    public static void update(WriteBatch batch, DocumentReference doc, Map<FieldPath, Object> fields, Timestamp readAt) {
+        Iterator<Map.Entry<FieldPath, Object>> it = fields.entrySet().iterator();
+        Map.Entry<FieldPath, Object> first = it.next();
+        batch.update(doc, precondition(readAt), first.getKey(), first.getValue(), rest(it));
+    }
+
+    /**
+     * Blocking single-document variant; does nothing when there is no changed field.
+     */
+    public static void update(DocumentReference doc, Map<FieldPath, Object> fields, Timestamp readAt) throws Exception {
+        if (fields.isEmpty()) return;
+        updateAsync(doc, fields, readAt).get();
+    }
+
+    /**
+     * Non-blocking single-document variant; fields must not be empty.
+     */
+    public static ApiFuture<WriteResult> updateAsync(DocumentReference doc, Map<FieldPath, Object> fields, Timestamp readAt) {
+        Iterator<Map.Entry<FieldPath, Object>> it = fields.entrySet().iterator();
+        Map.Entry<FieldPath, Object> first = it.next();
+        return doc.update(precondition(readAt), first.getKey(), first.getValue(), rest(it));
+    }
+
+    private static Object[] rest(Iterator<Map.Entry<FieldPath, Object>> it) {
+        List<Object> fieldsAndValues = new ArrayList<>();
+        while (it.hasNext()) {
+            Map.Entry<FieldPath, Object> e = it.next();
+            fieldsAndValues.add(e.getKey());
+            fieldsAndValues.add(e.getValue());
+        }
+        return fieldsAndValues.toArray();
+    }
+}
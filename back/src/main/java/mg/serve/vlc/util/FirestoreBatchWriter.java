@@ -0,0 +1,94 @@
+package mg.serve.vlc.util;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Writes many documents of one collection with WriteBatches of up to {@link #MAX_BATCH_SIZE} documents,
+ * keeping at most maxInFlight batch commits running at once.
+ *
+ * A batch is atomic, so when one fails its documents are retried one by one: the returned map then only
+ * holds the documents that really could not be written (fbId -> error message).
+ */
+public class FirestoreBatchWriter {
+    private static final Logger logger = LoggerFactory.getLogger(FirestoreBatchWriter.class);
+    public static final int MAX_BATCH_SIZE = 500;
+
+    /**
+     * One document write. create = true uses set() (creates or replaces), false uses update() (document must exist).
+     * With fields, only those paths are updated, provided the document was not changed since readAt (see FieldMask).
+     */
+    public record Write(String fbId, Map<String, Object> data, boolean create, Map<FieldPath, Object> fields, Timestamp readAt) {
+        public Write(String fbId, Map<String, Object> data, boolean create) {
+            this(fbId, data, create, null, null);
+        }
+
+        public static Write fields(String fbId, Map<FieldPath, Object> fields, Timestamp readAt) {
+            return new Write(fbId, null, false, fields, readAt);
+        }
+    }
+
+    private record Chunk(List<Write> writes, ApiFuture<List<WriteResult>> commit) {}
+
+    public static Map<String, String> write(CollectionReference collection, List<Write> writes, int maxInFlight) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        writes = writes.stream().filter(w -> w.fields() == null || !w.fields().isEmpty()).toList(); // nothing changed
+        Deque<Chunk> inFlight = new ArrayDeque<>();
+        int parallelism = Math.max(1, maxInFlight);
+
+        for (int from = 0; from < writes.size(); from += MAX_BATCH_SIZE) {
+            List<Write> chunk = writes.subList(from, Math.min(from + MAX_BATCH_SIZE, writes.size()));
+            WriteBatch batch = collection.getFirestore().batch();
+            for (Write w : chunk) {
+                DocumentReference doc = collection.document(w.fbId());
+                if (w.create()) {
+                    batch.set(doc, w.data());
+                } else if (w.fields() != null) {
+                    FieldMask.update(batch, doc, w.fields(), w.readAt());
+                } else {
+                    batch.update(doc, w.data());
+                }
+            }
+            if (inFlight.size() >= parallelism) {
+                await(collection, inFlight.poll(), failures);
+            }
+            inFlight.add(new Chunk(chunk, batch.commit()));
+        }
+        while (!inFlight.isEmpty()) {
+            await(collection, inFlight.poll(), failures);
+        }
+        return failures;
+    }
+
+    private static void await(CollectionReference collection, Chunk chunk, Map<String, String> failures) {
+        try {
+            chunk.commit().get();
+        } catch (Exception e) {
+            logger.warn("Batch of {} writes to {} failed, retrying one by one", chunk.writes().size(), collection.getId(), e);
+            for (Write w : chunk.writes()) {
+                try {
+                    DocumentReference doc = collection.document(w.fbId());
+                    if (w.create()) {
+                        doc.set(w.data()).get();
+                    } else if (w.fields() != null) {
+                        FieldMask.update(doc, w.fields(), w.readAt());
+                    } else {
+                        doc.update(w.data()).get();
+                    }
+                } catch (Exception single) {
+                    Throwable cause = single.getCause() != null ? single.getCause() : single;
+                    failures.put(w.fbId(), cause.getMessage());
+                }
+            }
+        }
+    }
+}
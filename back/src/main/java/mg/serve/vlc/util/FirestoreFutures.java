@@ -0,0 +1,65 @@
+package mg.serve.vlc.util;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bridges the ApiFutures returned by the Firestore client to CompletableFuture, so async repository methods can be
+ * composed (thenCompose / thenCombine) without parking a thread per call. Callbacks run on the gRPC thread that
+ * completes the call: continuations must stay short and never block.
+ */
+public final class FirestoreFutures {
+    private FirestoreFutures() {}
+
+    public static <T> CompletableFuture<T> toCompletable(ApiFuture<T> apiFuture) {
+        CompletableFuture<T> future = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                apiFuture.cancel(mayInterruptIfRunning);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    /**
+     * Blocking wait for the blocking variants of the repositories: rethrows the original failure instead of the
+     * CompletionException wrapper, so their error messages stay the same.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * The real failure behind CompletionException / ExecutionException wrappers.
+     */
+    public static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
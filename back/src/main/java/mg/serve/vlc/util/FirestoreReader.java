@@ -0,0 +1,57 @@
+package mg.serve.vlc.util;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Reads many known documents with Firestore.getAll, chunkSize references per call and at most maxInFlight calls
+ * running at once, instead of one get() per document. Snapshots are handed to the consumer chunk by chunk, in
+ * request order, so callers never hold more than maxInFlight chunks in memory.
+ *
+ * Missing documents are skipped. A failed chunk fails the whole read (getAll has no partial results).
+ */
+public final class FirestoreReader {
+    public static final int DEFAULT_CHUNK_SIZE = 300;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private FirestoreReader() {}
+
+    public static void read(Firestore firestore, List<DocumentReference> refs, Consumer<DocumentSnapshot> consumer) {
+        read(firestore, refs, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_IN_FLIGHT, consumer);
+    }
+
+    public static void read(Firestore firestore, List<DocumentReference> refs, int chunkSize, int maxInFlight,
+                            Consumer<DocumentSnapshot> consumer) {
+        int size = Math.max(1, chunkSize);
+        int parallelism = Math.max(1, maxInFlight);
+        Deque<ApiFuture<List<DocumentSnapshot>>> inFlight = new ArrayDeque<>();
+        try {
+            for (int from = 0; from < refs.size(); from += size) {
+                List<DocumentReference> chunk = refs.subList(from, Math.min(from + size, refs.size()));
+                if (inFlight.size() >= parallelism) {
+                    deliver(inFlight.poll(), consumer);
+                }
+                inFlight.add(firestore.getAll(chunk.toArray(DocumentReference[]::new)));
+            }
+            while (!inFlight.isEmpty()) {
+                deliver(inFlight.poll(), consumer);
+            }
+        } catch (Exception e) {
+            inFlight.forEach(future -> future.cancel(true));
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            if (e instanceof RuntimeException runtime) throw runtime;
+            throw new RuntimeException("Failed to read " + refs.size() + " documents from Firestore", e);
+        }
+    }
+
+    private static void deliver(ApiFuture<List<DocumentSnapshot>> chunk, Consumer<DocumentSnapshot> consumer) throws Exception {
+        for (DocumentSnapshot doc : chunk.get()) {
+            if (doc.exists()) consumer.accept(doc);
+        }
+    }
+}
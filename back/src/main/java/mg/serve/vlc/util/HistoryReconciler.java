@@ -0,0 +1,73 @@
+package mg.serve.vlc.util;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Diffs a local and a remote list of history entries by fbId in linear time.
+ * Each side is indexed once in a HashMap; the resulting plan says which remote entries update a local one,
+ * which ones must be created locally and which local entries must be pushed.
+ *
+ * @param <L> local entry type
+ * @param <R> remote entry type
+ */
+public class HistoryReconciler<L, R> {
+    private final Function<L, String> localFbId;
+    private final Function<R, String> remoteFbId;
+
+    public record Match<L, R>(L local, R remote) {}
+
+    public static class Plan<L, R> {
+        public final List<Match<L, R>> toUpdateLocally = new ArrayList<>();
+        public final List<R> toCreateLocally = new ArrayList<>();
+        public final List<L> toPush = new ArrayList<>();
+    }
+
+    public HistoryReconciler(Function<L, String> localFbId, Function<R, String> remoteFbId) {
+        this.localFbId = localFbId;
+        this.remoteFbId = remoteFbId;
+    }
+
+    /**
+     * remoteIsComplete: the remote list holds every remote entry (full scan), so a local entry whose fbId is not in it
+     * is missing remotely and is pushed again. With a partial (delta) remote list only never-pushed entries are pushed.
+     */
+    public Plan<L, R> diff(Collection<L> local, Collection<R> remote, boolean remoteIsComplete) {
+        Plan<L, R> plan = new Plan<>();
+
+        Map<String, L> localByFbId = new HashMap<>(capacity(local.size()));
+        for (L l : local) {
+            String fbId = localFbId.apply(l);
+            if (fbId == null || fbId.isEmpty()) {
+                plan.toPush.add(l);
+            } else {
+                localByFbId.put(fbId, l);
+            }
+        }
+
+        Set<String> remoteFbIds = new HashSet<>(capacity(remote.size()));
+        for (R r : remote) {
+            String fbId = remoteFbId.apply(r);
+            remoteFbIds.add(fbId);
+            L match = localByFbId.get(fbId);
+            if (match != null) {
+                plan.toUpdateLocally.add(new Match<>(match, r));
+            } else {
+                plan.toCreateLocally.add(r);
+            }
+        }
+
+        if (remoteIsComplete) {
+            for (Map.Entry<String, L> entry : localByFbId.entrySet()) {
+                if (!remoteFbIds.contains(entry.getKey())) {
+                    plan.toPush.add(entry.getValue());
+                }
+            }
+        }
+        return plan;
+    }
+
+    private static int capacity(int size) {
+        return Math.max(16, (int) (size / 0.75f) + 1);
+    }
+}
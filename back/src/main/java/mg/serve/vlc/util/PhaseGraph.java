@@ -0,0 +1,61 @@
+package mg.serve.vlc.util;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Small dependency graph of named phases. Each phase starts on the executor as soon as all of its dependencies
+ * have finished (whether they succeeded or not), so independent phases run in parallel and the total time is that
+ * of the longest dependency chain. Phases must be added after their dependencies, which rules out cycles.
+ */
+public class PhaseGraph {
+    private record Phase(String name, List<String> dependsOn, Runnable work) {}
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    public PhaseGraph add(String name, Runnable work, String... dependsOn) {
+        for (String dependency : dependsOn) {
+            if (!phases.containsKey(dependency)) {
+                throw new IllegalArgumentException("Phase " + name + " depends on unknown phase " + dependency);
+            }
+        }
+        if (phases.putIfAbsent(name, new Phase(name, List.of(dependsOn), work)) != null) {
+            throw new IllegalArgumentException("Duplicate phase " + name);
+        }
+        return this;
+    }
+
+    public Set<String> names() {
+        return Collections.unmodifiableSet(phases.keySet());
+    }
+
+    /**
+     * Runs every phase and waits for all of them. Returns the failure of each phase that threw, by phase name.
+     */
+    public Map<String, Throwable> run(Executor executor) {
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+        Map<String, Throwable> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+        for (Phase phase : phases.values()) {
+            CompletableFuture<?>[] dependencies = phase.dependsOn().stream().map(futures::get).toArray(CompletableFuture[]::new);
+            CompletableFuture<Void> future = CompletableFuture.allOf(dependencies)
+                .handle((ignored, error) -> null) // a failed dependency does not cancel its dependents
+                .thenRunAsync(() -> {
+                    try {
+                        phase.work().run();
+                    } catch (RuntimeException e) {
+                        failures.put(phase.name(), e);
+                        throw e;
+                    }
+                }, executor);
+            futures.put(phase.name(), future);
+        }
+        try {
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            // failures are reported per phase
+        }
+        return failures;
+    }
+}
@@ -35,6 +35,8 @@ public class RepositoryProvider {
     public static FactoryRepository factoryRepository;
     public static PointInProgressRepository pointInProgressRepository;
     public static WorkTreatmentRepository workTreatmentRepository;
+    public static SyncWatermarkRepository syncWatermarkRepository;
+    public static SyncOutboxRepository syncOutboxRepository;
 
     @Autowired
     public RepositoryProvider(
@@ -51,7 +53,9 @@ public class RepositoryProvider {
             FactoryRepository factoryRepository,
             PointInProgressRepository pointInProgressRepository
             ,
-            WorkTreatmentRepository workTreatmentRepository
+            WorkTreatmentRepository workTreatmentRepository,
+            SyncWatermarkRepository syncWatermarkRepository,
+            SyncOutboxRepository syncOutboxRepository
         ) {
         RepositoryProvider.jpaExampleRepository = jpaExampleRepository;
         RepositoryProvider.jpaUserHistoricRepository = jpaUserHistoricRepository;
@@ -68,6 +72,8 @@ public class RepositoryProvider {
         RepositoryProvider.factoryRepository = factoryRepository;
         RepositoryProvider.pointInProgressRepository=pointInProgressRepository;
         RepositoryProvider.workTreatmentRepository = workTreatmentRepository;
+        RepositoryProvider.syncWatermarkRepository = syncWatermarkRepository;
+        RepositoryProvider.syncOutboxRepository = syncOutboxRepository;
     }
 
     private static final Map<Class<?>, Object> firebaseRepositories = new HashMap<>();
@@ -0,0 +1,70 @@
+package mg.serve.vlc.util;
+
+import mg.serve.vlc.exception.BusinessLogicException;
+import mg.serve.vlc.model.sync.SyncOutboxEntry;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.Callable;
+
+/**
+ * What the models need of the sync outbox (see SyncOutboxService), reachable statically like RepositoryProvider:
+ * the methods that change synced data (Point.save/delete/saveHistoric, User.signUp/update/delete...) run their
+ * writes and {@link #record} in one transaction through {@link #inTransaction}.
+ */
+public final class SyncOutbox {
+    public static final String POINT = "POINT";
+    public static final String POINT_HISTORIC = "POINT_HISTORIC";
+    public static final String USER = "USER";
+
+    public static final String SAVE = "SAVE";
+    public static final String DELETE = "DELETE";
+
+    private static TransactionTemplate transactionTemplate;
+
+    private SyncOutbox() {}
+
+    public static void register(TransactionTemplate template) {
+        SyncOutbox.transactionTemplate = template;
+    }
+
+    private static class WorkFailedException extends RuntimeException {
+        WorkFailedException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Runs work in a transaction (joined if one is already open); checked exceptions roll it back and are rethrown.
+     */
+    public static <T> T inTransaction(Callable<T> work) throws BusinessLogicException {
+        try {
+            if (transactionTemplate == null) {
+                return work.call();
+            }
+            return transactionTemplate.execute(status -> {
+                try {
+                    return work.call();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new WorkFailedException(e);
+                }
+            });
+        } catch (WorkFailedException e) {
+            if (e.getCause() instanceof BusinessLogicException b) throw b;
+            throw new RuntimeException(e.getCause());
+        } catch (BusinessLogicException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Adds an entry to the outbox; call it inside the transaction of the change.
+     */
+    public static void record(String entityType, Integer entityId, String operation) {
+        if (entityId == null || RepositoryProvider.syncOutboxRepository == null) return;
+        RepositoryProvider.syncOutboxRepository.save(new SyncOutboxEntry(entityType, entityId, operation));
+    }
+}
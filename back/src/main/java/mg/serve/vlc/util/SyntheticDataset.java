@@ -0,0 +1,345 @@
+package mg.serve.vlc.util;
+
+import mg.serve.vlc.exception.BusinessLogicException;
+import mg.serve.vlc.model.Role;
+import mg.serve.vlc.model.map.Factory;
+import mg.serve.vlc.model.map.Point;
+import mg.serve.vlc.model.map.PointHistoric;
+import mg.serve.vlc.model.map.PointState;
+import mg.serve.vlc.model.map.PointType;
+import mg.serve.vlc.model.user.User;
+import mg.serve.vlc.repository.store.InMemoryDocumentStore;
+import mg.serve.vlc.repository.store.InMemoryUserAccounts;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Deterministic users, points around Antananarivo, point state transitions and factory assignments for sync
+ * benchmarks: the same seed and sizes always give the same data, so runs can be compared.
+ *
+ * The local side is a SQL script (writeSql) to load after schema.sql and data.sql: it relies on their reference
+ * rows (user_state 1, role 1, point_state 1-3, point_type 1-3). Generated rows get explicit ids above idOffset so
+ * they never collide with the seed data. The remote side (seedRemote) fills the in-memory document store:
+ * syncedRate of the users and points are already in Firestore, remoteEditRate of those were edited there since the
+ * last sync, and points * remoteOnlyRate points only exist in Firestore (created by the mobile app).
+ *
+ * Entities are generated one at a time from their index, so scales up to 1M points stream without being held in
+ * memory (the in-memory document store itself still needs a large heap at that size).
+ */
+public class SyntheticDataset {
+    private static final double CENTER_LONGITUDE = 47.5079;
+    private static final double CENTER_LATITUDE = -18.8792;
+    private static final double SPREAD = 0.04; // about 4 km, one standard deviation
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 8, 0);
+    private static final String[] STATES = {"nouveau", "en cours", "termine"};
+    private static final String[] TYPES = {"peu grave", "grave", "tres grave"};
+    private static final DateTimeFormatter SQL_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int ROWS_PER_INSERT = 1000;
+
+    private final long seed;
+    private int users = 100;
+    private int points = 1000;
+    private int factories = 20;
+    private int idOffset = 1_000_000;
+    private double syncedRate = 0.8;
+    private double remoteEditRate = 0.05;
+    private double remoteOnlyRate = 0.02;
+
+    public SyntheticDataset(long seed) {
+        this.seed = seed;
+    }
+
+    public SyntheticDataset users(int users) {
+        this.users = Math.max(1, users);
+        return this;
+    }
+
+    public SyntheticDataset points(int points) {
+        this.points = Math.max(0, points);
+        return this;
+    }
+
+    public SyntheticDataset factories(int factories) {
+        this.factories = Math.max(1, factories);
+        return this;
+    }
+
+    public SyntheticDataset idOffset(int idOffset) {
+        this.idOffset = idOffset;
+        return this;
+    }
+
+    public SyntheticDataset syncedRate(double syncedRate) {
+        this.syncedRate = syncedRate;
+        return this;
+    }
+
+    public SyntheticDataset remoteEditRate(double remoteEditRate) {
+        this.remoteEditRate = remoteEditRate;
+        return this;
+    }
+
+    public SyntheticDataset remoteOnlyRate(double remoteOnlyRate) {
+        this.remoteOnlyRate = remoteOnlyRate;
+        return this;
+    }
+
+    public int userCount() {
+        return users;
+    }
+
+    public int pointCount() {
+        return points;
+    }
+
+    public int remoteOnlyCount() {
+        return (int) Math.round(points * remoteOnlyRate);
+    }
+
+    /**
+     * The i-th user (0-based), as stored locally.
+     */
+    public User user(int i) {
+        Random random = random(1, i);
+        int id = idOffset + i + 1;
+        User user = new User();
+        user.setId(id);
+        try {
+            user.setEmail("bench" + id + "@vlc.test");
+            user.setPassword("pass" + (100 + random.nextInt(900)));
+        } catch (BusinessLogicException e) {
+            throw new IllegalStateException("Invalid generated user " + id, e); // generated values are always valid
+        }
+        user.setUsername("bench" + id);
+        user.setUserStateId(1);
+        user.setUpdatedAt(START.plusMinutes(random.nextInt(60 * 24 * 30)));
+        user.setRoles(new HashSet<>(Set.of(new Role(1, "USER", null))));
+        if (random.nextDouble() < syncedRate) {
+            user.setFbId("bench-uid-" + id);
+        }
+        return user;
+    }
+
+    /**
+     * The i-th point (0-based), as stored locally: its state is the last one of history(point), its updatedAt the date
+     * of that transition.
+     */
+    public Point point(int i) {
+        Random random = random(2, i);
+        int id = idOffset + i + 1;
+        Point point = new Point();
+        point.setId(id);
+        point.setDate(START.plusMinutes(random.nextInt(60 * 24 * 365)));
+        point.setCoordinates(CENTER_LONGITUDE + random.nextGaussian() * SPREAD, CENTER_LATITUDE + random.nextGaussian() * SPREAD);
+        point.setLevel(1 + random.nextInt(10));
+        double surface = Math.round(5 + random.nextDouble() * 495);
+        point.setSurface(surface);
+        point.setBudget(surface * 2500);
+        point.setPointType(pointType(1 + random.nextInt(TYPES.length)));
+        User owner = user(random.nextInt(users));
+        point.setUser(owner);
+        List<Factory> assigned = new ArrayList<>();
+        int factoryCount = random.nextInt(3);
+        for (int f = 0; f < factoryCount; f++) {
+            int factoryId = idOffset + 1 + random.nextInt(factories);
+            if (assigned.stream().noneMatch(a -> a.getId() == factoryId)) {
+                assigned.add(new Factory(factoryId, factoryLabel(factoryId), null));
+            }
+        }
+        point.setFactories(assigned);
+        List<PointHistoric> history = history(point);
+        PointHistoric last = history.get(history.size() - 1);
+        point.setPointState(last.getPointState());
+        point.setUpdatedAt(last.getDate());
+        if (random.nextDouble() < syncedRate) {
+            point.setFbId("pt-" + id);
+        }
+        return point;
+    }
+
+    /**
+     * State transitions of the point: always "nouveau", then "en cours" and "termine" for part of them, a few days
+     * apart, with the remaining surface shrinking to 0.
+     */
+    public List<PointHistoric> history(Point point) {
+        Random random = random(4, point.getId() - idOffset - 1);
+        double draw = random.nextDouble();
+        int transitions = draw < 0.5 ? 1 : draw < 0.8 ? 2 : 3;
+        List<PointHistoric> history = new ArrayList<>(transitions);
+        LocalDateTime date = point.getDate();
+        for (int s = 0; s < transitions; s++) {
+            PointHistoric historic = new PointHistoric();
+            historic.setId(idOffset + (point.getId() - idOffset - 1) * STATES.length + s + 1);
+            historic.setPointId(point.getId());
+            historic.setPointState(pointState(s + 1));
+            historic.setDate(date);
+            double remaining = s == STATES.length - 1 ? 0 : point.getSurface() * (1 - s * 0.5);
+            historic.setSurface(remaining);
+            historic.setBudget(remaining * 2500);
+            historic.setCoordinates(point.getCoordinates());
+            if (point.getFbId() != null) {
+                historic.setFbId("ph-" + historic.getId());
+            }
+            history.add(historic);
+            date = date.plusDays(1 + random.nextInt(30));
+        }
+        return history;
+    }
+
+    /**
+     * Writes the local side as multi-row INSERTs, then moves the id sequences past the generated ids.
+     */
+    public void writeSql(Writer out) throws IOException {
+        out.write("-- Synthetic benchmark data: seed " + seed + ", " + users + " users, " + points + " points\n");
+        Rows rows = new Rows(out, "INSERT INTO factory (id, label) VALUES");
+        for (int f = 1; f <= factories; f++) {
+            rows.add("(" + (idOffset + f) + ", " + quote(factoryLabel(idOffset + f)) + ")");
+        }
+        rows.end();
+
+        // Parents first: a table's rows only reference rows of the tables written before it
+        Rows userRows = new Rows(out, "INSERT INTO user_ (id, email, password, username, fb_id, updated_at, user_state_id, content_hash) VALUES");
+        for (int i = 0; i < users; i++) {
+            User user = user(i);
+            userRows.add("(" + user.getId() + ", " + quote(user.getEmail()) + ", " + quote(user.getPassword()) + ", "
+                + quote(user.getUsername()) + ", " + quote(user.getFbId()) + ", " + quote(user.getUpdatedAt()) + ", "
+                + user.getUserStateId() + ", " + quote(user.computeContentHash()) + ")");
+        }
+        userRows.end();
+
+        Rows userHistoricRows = new Rows(out, "INSERT INTO user_historic (email, password, username, date_, user_state_id, user_id) VALUES");
+        Rows userRoleRows = new Rows(out, "INSERT INTO user_role (role_id, user_id) VALUES");
+        for (int i = 0; i < users; i++) {
+            User user = user(i);
+            userHistoricRows.add("(" + quote(user.getEmail()) + ", " + quote(user.getPassword()) + ", " + quote(user.getUsername())
+                + ", " + quote(user.getUpdatedAt()) + ", " + user.getUserStateId() + ", " + user.getId() + ")");
+            userRoleRows.add("(1, " + user.getId() + ")");
+        }
+        userHistoricRows.end();
+        userRoleRows.end();
+
+        Rows pointRows = new Rows(out, "INSERT INTO point (id, date_, surface, budget, coordinates, updated_at, fb_id, user_id, point_state_id, level_, point_type_id, content_hash) VALUES");
+        for (int i = 0; i < points; i++) {
+            Point point = point(i);
+            pointRows.add("(" + point.getId() + ", " + quote(point.getDate()) + ", " + point.getSurface() + ", " + point.getBudget()
+                + ", " + geometry(point.getCoordinates()) + ", " + quote(point.getUpdatedAt()) + ", " + quote(point.getFbId())
+                + ", " + point.getUser().getId() + ", " + point.getPointState().getId() + ", " + point.getLevel()
+                + ", " + point.getPointType().getId() + ", " + quote(point.computeContentHash()) + ")");
+        }
+        pointRows.end();
+
+        Rows historicRows = new Rows(out, "INSERT INTO point_historic (id, date_, surface, budget, coordinates, fb_id, point_id, point_state_id) VALUES");
+        Rows factoryRows = new Rows(out, "INSERT INTO point_factory (factory_id, point_id) VALUES");
+        for (int i = 0; i < points; i++) {
+            Point point = point(i);
+            for (PointHistoric historic : history(point)) {
+                historicRows.add("(" + historic.getId() + ", " + quote(historic.getDate()) + ", " + historic.getSurface() + ", "
+                    + historic.getBudget() + ", " + geometry(historic.getCoordinates()) + ", " + quote(historic.getFbId()) + ", "
+                    + point.getId() + ", " + historic.getPointState().getId() + ")");
+            }
+            for (Factory factory : point.getFactories()) {
+                factoryRows.add("(" + factory.getId() + ", " + point.getId() + ")");
+            }
+        }
+        historicRows.end();
+        factoryRows.end();
+
+        for (String table : List.of("factory", "user_", "point", "point_historic")) {
+            out.write("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), (SELECT MAX(id) FROM " + table + "));\n");
+        }
+        out.write("REFRESH MATERIALIZED VIEW point_summary;\n");
+    }
+
+    /**
+     * Writes the Firestore side: the synced users (with their auth accounts), points and point history, the remote
+     * edits made since the last sync and the points created remotely.
+     */
+    public void seedRemote(InMemoryDocumentStore store, InMemoryUserAccounts accounts) {
+        for (int i = 0; i < users; i++) {
+            User user = user(i);
+            if (user.getFbId() == null) continue;
+            accounts.put(user.getFbId(), user.getEmail(), user.getUsername());
+            store.put("users", user.getFbId(), user.toMap());
+        }
+        for (int i = 0; i < points; i++) {
+            Point point = point(i);
+            if (point.getFbId() == null) continue;
+            List<PointHistoric> history = history(point);
+            if (random(3, i).nextDouble() < remoteEditRate) {
+                point.setBudget(point.getBudget() * 1.1);
+                point.setUpdatedAt(point.getUpdatedAt().plusDays(1));
+            }
+            store.put("points", point.getFbId(), point.toMap());
+            for (PointHistoric historic : history) {
+                store.put("points/" + point.getFbId() + "/history", historic.getFbId(), historic.toMap());
+            }
+        }
+        for (int i = 0; i < remoteOnlyCount(); i++) {
+            Point point = point(i % Math.max(1, points));
+            point.setId(null);
+            point.setFbId("m-" + i);
+            point.setUpdatedAt(point.getUpdatedAt().plusDays(2));
+            User owner = point.getUser();
+            if (owner.getFbId() == null) continue; // the owner must be known remotely
+            store.put("points", point.getFbId(), point.toMap());
+        }
+    }
+
+    private Random random(int kind, int index) {
+        return new Random(seed * 1_000_003L + kind * 7_919L * 1_000_000_007L + index);
+    }
+
+    private static PointState pointState(int id) {
+        return new PointState(id, STATES[id - 1], (double) id, null, null);
+    }
+
+    private static PointType pointType(int id) {
+        return new PointType(id, TYPES[id - 1], null);
+    }
+
+    private static String factoryLabel(int factoryId) {
+        return "Bench factory " + factoryId;
+    }
+
+    private static String geometry(org.locationtech.jts.geom.Point coordinates) {
+        return "ST_GeomFromText('POINT(" + coordinates.getX() + " " + coordinates.getY() + ")', 4326)";
+    }
+
+    private static String quote(Object value) {
+        if (value == null) return "NULL";
+        String text = value instanceof LocalDateTime date ? date.format(SQL_DATE) : value.toString();
+        return "'" + text.replace("'", "''") + "'";
+    }
+
+    /**
+     * One INSERT statement per ROWS_PER_INSERT rows, written out whole so two tables can be filled in one loop.
+     */
+    private static class Rows {
+        private final Writer out;
+        private final String insert;
+        private final StringBuilder statement = new StringBuilder();
+        private int count;
+
+        Rows(Writer out, String insert) {
+            this.out = out;
+            this.insert = insert;
+        }
+
+        void add(String row) throws IOException {
+            statement.append(count == 0 ? insert + "\n" : ",\n").append(row);
+            if (++count == ROWS_PER_INSERT) end();
+        }
+
+        void end() throws IOException {
+            if (count > 0) {
+                out.write(statement.append(";\n").toString());
+            }
+            statement.setLength(0);
+            count = 0;
+        }
+    }
+}
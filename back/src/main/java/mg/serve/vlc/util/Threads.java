@@ -0,0 +1,22 @@
+package mg.serve.vlc.util;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread factories of the background executors (sync jobs and phases, reprice jobs, listener ingest).
+ * With spring.threads.virtual.enabled, which also moves Tomcat's request handling to virtual threads, they
+ * create virtual threads: a phase blocked on Firestore or JDBC then no longer holds a platform thread.
+ *
+ * Virtual threads are pinned to their carrier while blocking inside a synchronized block, so code running on
+ * them guards I/O with a ReentrantLock instead (see WorkDelayAggregator, PriceTimeline, RepriceJobService).
+ */
+public final class Threads {
+    private Threads() {}
+
+    public static ThreadFactory factory(String name, boolean virtual) {
+        if (virtual) {
+            return Thread.ofVirtual().name(name + "-", 0).factory();
+        }
+        return Thread.ofPlatform().name(name + "-", 0).daemon(true).factory();
+    }
+}
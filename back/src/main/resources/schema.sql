@@ -82,6 +82,7 @@ CREATE TABLE user_(
    username VARCHAR(50),
    fb_id VARCHAR(50),
    updated_at TIMESTAMP,
+   content_hash VARCHAR(64), -- hash of the synced fields (see ContentHash)
    user_state_id INTEGER NOT NULL,
    PRIMARY KEY(id),
    UNIQUE(email),
@@ -137,6 +138,7 @@ CREATE TABLE point(
    updated_at TIMESTAMP,
    deleted_at TIMESTAMP,
    fb_id VARCHAR(50),
+   content_hash VARCHAR(64), -- hash of the synced fields (see ContentHash)
    user_id INTEGER NOT NULL,
    point_state_id INTEGER,
    level_ INTEGER NOT NULL,
@@ -172,3 +174,60 @@ CREATE TABLE point_factory(
    FOREIGN KEY(factory_id) REFERENCES factory(id),
    FOREIGN KEY(point_id) REFERENCES point(id)
 );
+
+-- Indexes for the paginated GET /points listing (filters + keyset on id)
+CREATE INDEX point_live_id_idx ON point(id) WHERE deleted_at IS NULL;
+CREATE INDEX point_state_id_idx ON point(point_state_id, id) WHERE deleted_at IS NULL;
+CREATE INDEX point_type_id_idx ON point(point_type_id, id) WHERE deleted_at IS NULL;
+CREATE INDEX point_updated_at_idx ON point((COALESCE(updated_at, date_)));
+CREATE INDEX point_factory_point_id_idx ON point_factory(point_id);
+
+-- Spatial indexes for GET /points/within (geometry) and GET /points/near (geography, meters)
+CREATE INDEX point_coordinates_gist_idx ON point USING GIST (coordinates);
+CREATE INDEX point_coordinates_geog_gist_idx ON point USING GIST ((CAST(coordinates AS geography)));
+
+-- Per-point history lookups (work-delay phases, countByPointId, findByPointId)
+CREATE INDEX point_historic_point_id_idx ON point_historic(point_id, date_);
+
+-- Dashboard summary snapshot, refreshed CONCURRENTLY by PointsSummaryService (needs the unique index)
+CREATE MATERIALIZED VIEW point_summary AS
+SELECT 1 AS id,
+       COUNT(p.id) AS nb_points,
+       (SELECT COALESCE(SUM(ph.surface), 0)
+          FROM point_historic ph
+          JOIN point_state hs ON hs.id = ph.point_state_id
+         WHERE hs.label = 'nouveau') AS total_surface,
+       COALESCE(AVG(ps.progress), 0) AS avg_progress,
+       COALESCE(SUM(p.budget), 0) AS total_budget,
+       NOW()::timestamp AS refreshed_at
+FROM point p
+JOIN point_state ps ON ps.id = p.point_state_id;
+CREATE UNIQUE INDEX point_summary_id_idx ON point_summary(id);
+
+-- Price lookups by date (PriceTimeline fallback, getLastValueByKey)
+CREATE INDEX config_key_date_idx ON config(key, date_ DESC);
+
+-- Per-collection high-water mark of the Firestore delta pull (see SyncWatermarkService)
+CREATE TABLE sync_watermark(
+   collection_name VARCHAR(50),
+   remote_updated_at TIMESTAMP,
+   updated_at TIMESTAMP NOT NULL DEFAULT NOW(),
+   -- checkpoint of an interrupted sync run, resumed by the next one (see SyncWatermarkService.Checkpoint)
+   checkpoint_cursor VARCHAR(100),
+   checkpoint_full BOOLEAN,
+   checkpoint_at TIMESTAMP,
+   PRIMARY KEY(collection_name)
+);
+
+-- Local changes waiting to be pushed to Firestore, written in the same transaction as the change (see SyncOutboxService)
+CREATE TABLE sync_outbox(
+   id BIGSERIAL,
+   entity_type VARCHAR(30) NOT NULL,
+   entity_id INTEGER NOT NULL,
+   operation VARCHAR(20) NOT NULL,
+   created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+   attempts INTEGER NOT NULL DEFAULT 0,
+   last_error VARCHAR(255),
+   PRIMARY KEY(id)
+);
+CREATE INDEX sync_outbox_entity_type_idx ON sync_outbox(entity_type, id);
@@ -0,0 +1,83 @@
+package mg.serve.vlc.controller;
+
+import mg.serve.vlc.controller.auth.SignInController;
+import mg.serve.vlc.controller.user.UserController;
+import mg.serve.vlc.model.user.User;
+import mg.serve.vlc.security.JwtService;
+import mg.serve.vlc.security.SecurityConfig;
+import mg.serve.vlc.service.FirestoreUserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Endpoints returning a CompletableFuture write their response on an ASYNC dispatch, which carries no
+ * authentication (the JWT filter only runs on the original request): the security chain must let it through.
+ */
+@WebMvcTest(controllers = {UserController.class, SignInController.class})
+@Import(SecurityConfig.class)
+class AsyncDispatchSecurityTest {
+    private static final String AUTHORIZATION = "Bearer admin-token";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private JwtService jwtService;
+
+    @MockitoBean
+    private FirestoreUserService firestoreUserService;
+
+    @BeforeEach
+    void signInAsAdmin() throws Exception {
+        User admin = mock(User.class);
+        when(admin.isAdmin()).thenReturn(true);
+        when(jwtService.validateAndGetSubject("admin-token")).thenReturn("admin@vlc.test");
+        when(jwtService.getUserFromAuthHeader(AUTHORIZATION)).thenReturn(admin);
+    }
+
+    @Test
+    void blockedUsersAreWrittenOnTheAsyncDispatch() throws Exception {
+        when(firestoreUserService.getBlockedUsersAsync())
+            .thenReturn(CompletableFuture.completedFuture(List.of(Map.of("email", "blocked@vlc.test", "attempt", 3L))));
+
+        MvcResult result = mockMvc.perform(get("/users/blocked").header("Authorization", AUTHORIZATION))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("success"))
+            .andExpect(jsonPath("$.data[0].email").value("blocked@vlc.test"));
+    }
+
+    @Test
+    void resetBlockIsWrittenOnTheAsyncDispatch() throws Exception {
+        when(firestoreUserService.getUserByFbIdAsync("fb-1"))
+            .thenReturn(CompletableFuture.completedFuture(Map.of("attempt", 3L)));
+        when(firestoreUserService.deblockUserAsync(anyString())).thenReturn(CompletableFuture.completedFuture(null));
+
+        MvcResult result = mockMvc.perform(post("/auth/reset-block/fb-1").header("Authorization", AUTHORIZATION))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("success"));
+        verify(firestoreUserService).deblockUserAsync("fb-1");
+    }
+}
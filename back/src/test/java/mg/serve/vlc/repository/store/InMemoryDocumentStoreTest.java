@@ -0,0 +1,172 @@
+package mg.serve.vlc.repository.store;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.FieldPath;
+import mg.serve.vlc.model.map.Point;
+import mg.serve.vlc.repository.point.FirebasePointRepository;
+import mg.serve.vlc.util.ContentHash;
+import mg.serve.vlc.util.FirestoreBatchWriter;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryDocumentStoreTest {
+
+    @Test
+    void queryFiltersProjectsAndOrders() {
+        InMemoryDocumentStore store = new InMemoryDocumentStore();
+        store.put("users", "a", Map.of("email", "a@x", "userStateId", 1, "rank", 3));
+        store.put("users", "b", Map.of("email", "b@x", "userStateId", 2, "rank", 1));
+        store.put("users", "c", Map.of("email", "c@x", "userStateId", 1L, "rank", 2));
+        store.put("users", "d", Map.of("email", "d@x"));
+        store.put("users/a/history", "h1", Map.of("email", "a@x", "userStateId", 1));
+
+        List<DocumentStore.StoredDocument> equal = store.query(DocumentQuery.collection("users").whereEqualTo("userStateId", 1L)).join();
+        assertEquals(List.of("a", "c"), equal.stream().map(DocumentStore.StoredDocument::id).toList());
+        assertInstanceOf(Long.class, equal.get(0).data().get("userStateId"));
+
+        // Ordered by the filtered field; documents without it are left out
+        List<DocumentStore.StoredDocument> greater = store.query(DocumentQuery.collection("users").whereGreaterThan("rank", 1)).join();
+        assertEquals(List.of("c", "a"), greater.stream().map(DocumentStore.StoredDocument::id).toList());
+
+        DocumentStore.StoredDocument projected = store.query(DocumentQuery.collection("users").select("email")).join().get(0);
+        assertEquals(Map.of("email", "a@x"), projected.data());
+
+        List<DocumentStore.StoredDocument> history = store.query(DocumentQuery.group("history")).join();
+        assertEquals(1, history.size());
+        assertEquals("users/a/history", history.get(0).collection());
+    }
+
+    @Test
+    void updatesHonourExistenceAndPreconditions() {
+        InMemoryDocumentStore store = new InMemoryDocumentStore();
+        DocumentStore.StoredDocument seeded = store.put("points", "p1", Map.of("budget", 10.0, "coordinates", Map.of("latitude", 1.0)));
+
+        CompletionException missing = assertThrows(CompletionException.class,
+            () -> store.writeAsync("points", new FirestoreBatchWriter.Write("p2", Map.of("budget", 1.0), false)).join());
+        assertTrue(missing.getCause().getMessage().startsWith("NOT_FOUND"));
+
+        store.writeAsync("points", FirestoreBatchWriter.Write.fields("p1",
+            Map.of(FieldPath.of("coordinates", "latitude"), 2.0), seeded.updateTime())).join();
+        DocumentStore.StoredDocument updated = store.get("points", "p1").orElseThrow();
+        assertEquals(Map.of("latitude", 2.0), updated.data().get("coordinates"));
+        assertEquals(10.0, updated.data().get("budget"));
+        assertTrue(updated.updateTime().compareTo(seeded.updateTime()) > 0);
+
+        // Written against the state read before the last update
+        CompletionException stale = assertThrows(CompletionException.class,
+            () -> store.writeAsync("points", FirestoreBatchWriter.Write.fields("p1",
+                Map.of(FieldPath.of("budget"), 20.0), seeded.updateTime())).join());
+        assertTrue(stale.getCause().getMessage().startsWith("FAILED_PRECONDITION"));
+        assertEquals(10.0, store.get("points", "p1").orElseThrow().data().get("budget"));
+    }
+
+    @Test
+    void failedBatchesAreRetriedDocumentByDocument() {
+        InMemoryDocumentStore store = new InMemoryDocumentStore().failingOn(path -> path.equals("points/p7"));
+        List<FirestoreBatchWriter.Write> writes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            writes.add(new FirestoreBatchWriter.Write("p" + i, Map.of("budget", (double) i), true));
+        }
+
+        Map<String, String> failed = store.write("points", writes, 2);
+
+        assertEquals(Set.of("p7"), failed.keySet());
+        assertEquals(9, store.size());
+        // One batch, then one RPC per document of the failed batch
+        assertEquals(1 + writes.size(), store.rpcCount());
+    }
+
+    @Test
+    void seededFailuresAreReproducible() {
+        assertEquals(failuresWithSeed(7), failuresWithSeed(7));
+        int failures = failuresWithSeed(7).size();
+        assertTrue(failures > 100 && failures < 400, "about a fifth of 1000 writes should fail, got " + failures);
+    }
+
+    private Set<String> failuresWithSeed(long seed) {
+        InMemoryDocumentStore store = new InMemoryDocumentStore().withFailureRate(0.2, seed);
+        Set<String> failed = new TreeSet<>();
+        for (int i = 0; i < 1000; i++) {
+            try {
+                store.writeAsync("points", new FirestoreBatchWriter.Write("p" + i, Map.of("budget", 1.0), true)).join();
+            } catch (CompletionException e) {
+                failed.add("p" + i);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * With a simulated round trip, reading 3000 documents 300 at a time with 4 calls in flight takes about
+     * 3 round trips instead of the 10 a sequential read would.
+     */
+    @Test
+    void readsOverlapUnderLatency() {
+        InMemoryDocumentStore store = new InMemoryDocumentStore();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            store.put("points", "p" + i, Map.of("budget", (double) i));
+            ids.add("p" + i);
+        }
+        store.withLatency(50);
+
+        long start = System.nanoTime();
+        List<DocumentStore.StoredDocument> read = new ArrayList<>();
+        store.getAll("points", ids, 300, 4, read::add);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(3000, read.size());
+        assertEquals(10, store.rpcCount());
+        assertTrue(elapsedMs < 400, "expected overlapping reads, took " + elapsedMs + " ms");
+    }
+
+    /**
+     * 100k points pushed, stamped, read back and delta-pulled through FirebasePointRepository, without Firestore.
+     */
+    @Test
+    void pointRepositoryRoundTrip() {
+        InMemoryDocumentStore store = new InMemoryDocumentStore();
+        FirebasePointRepository repository = new FirebasePointRepository(store);
+        LocalDateTime old = LocalDateTime.of(2020, 1, 1, 0, 0);
+        LocalDateTime recent = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            Point point = new Point();
+            point.setId(i + 1);
+            point.setDate(old);
+            point.setUpdatedAt(i % 10 == 0 ? recent : old);
+            point.setBudget(1000.0 + i);
+            point.setSurface(10.0);
+            point.setLevel(i % 5);
+            point.setCoordinates(47.5 + i * 1e-6, -18.9);
+            points.add(point);
+        }
+
+        Map<String, String> failed = repository.saveAll(points, Set.of(), 4);
+        assertTrue(failed.isEmpty());
+        assertEquals(100_000, store.size());
+
+        List<ContentHash.Stamp> stamps = repository.findContentStamps();
+        assertEquals(100_000, stamps.size());
+        Map<String, String> hashes = new HashMap<>();
+        stamps.forEach(stamp -> hashes.put(stamp.documentId(), stamp.hash()));
+        for (Point point : points) {
+            assertEquals(point.computeContentHash(), hashes.get(point.getFbId()));
+        }
+
+        List<String> fbIds = points.stream().map(Point::getFbId).toList();
+        List<Point> read = new ArrayList<>();
+        repository.forEachByFbIds(fbIds, 300, 4, read::add);
+        assertEquals(100_000, read.size());
+        Point first = read.stream().filter(p -> "pt-1".equals(p.getFbId())).findFirst().orElseThrow();
+        assertEquals(1000.0, first.getBudget());
+        assertInstanceOf(Timestamp.class, first.getRemoteState().updateTime());
+
+        assertEquals(10_000, repository.findUpdatedSince(LocalDateTime.of(2024, 1, 1, 0, 0)).size());
+    }
+}
@@ -0,0 +1,60 @@
+package mg.serve.vlc.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryReconcilerTest {
+
+    record Entry(String fbId) {}
+
+    @Test
+    void diffBuildsUpdateCreateAndPushActions() {
+        List<Entry> local = List.of(new Entry("a"), new Entry("b"), new Entry(null), new Entry(""));
+        List<Entry> remote = List.of(new Entry("a"), new Entry("c"));
+        HistoryReconciler<Entry, Entry> reconciler = new HistoryReconciler<>(Entry::fbId, Entry::fbId);
+
+        HistoryReconciler.Plan<Entry, Entry> full = reconciler.diff(local, remote, true);
+        assertEquals(1, full.toUpdateLocally.size());
+        assertSame(local.get(0), full.toUpdateLocally.get(0).local());
+        assertSame(remote.get(0), full.toUpdateLocally.get(0).remote());
+        assertEquals(List.of(remote.get(1)), full.toCreateLocally);
+        // never pushed (null / empty fbId) + missing remotely ("b")
+        assertEquals(Set.of(local.get(1), local.get(2), local.get(3)), new HashSet<>(full.toPush));
+
+        // A delta remote list says nothing about "b": only never-pushed entries are pushed
+        HistoryReconciler.Plan<Entry, Entry> delta = reconciler.diff(local, remote, false);
+        assertEquals(Set.of(local.get(2), local.get(3)), new HashSet<>(delta.toPush));
+    }
+
+    /**
+     * The work done (fbId lookups) must grow linearly with the history size,
+     * where the former stream().filter() inside the remote loop was n * m.
+     */
+    @Test
+    void diffScalesLinearly() {
+        for (int size = 1_000; size <= 64_000; size *= 4) {
+            List<Entry> local = new ArrayList<>(size);
+            List<Entry> remote = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                local.add(new Entry("h" + i));
+                remote.add(new Entry("h" + (i + size / 2))); // half shared, half remote only
+            }
+            AtomicLong lookups = new AtomicLong();
+            HistoryReconciler<Entry, Entry> reconciler = new HistoryReconciler<>(
+                e -> { lookups.incrementAndGet(); return e.fbId(); },
+                e -> { lookups.incrementAndGet(); return e.fbId(); }
+            );
+
+            HistoryReconciler.Plan<Entry, Entry> plan = reconciler.diff(local, remote, true);
+
+            assertEquals(size / 2, plan.toUpdateLocally.size());
+            assertEquals(size / 2, plan.toCreateLocally.size());
+            assertEquals(size / 2, plan.toPush.size());
+            assertEquals(2L * size, lookups.get());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package mg.serve.vlc.util;
+
+import mg.serve.vlc.model.map.Factory;
+import mg.serve.vlc.model.map.Point;
+import mg.serve.vlc.model.map.PointHistoric;
+import mg.serve.vlc.repository.point.FirebasePointRepository;
+import mg.serve.vlc.repository.store.CountingDocumentStore;
+import mg.serve.vlc.repository.store.InMemoryDocumentStore;
+import mg.serve.vlc.repository.store.InMemoryUserAccounts;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticDatasetTest {
+
+    // Small by default so the suite stays fast; -Dbenchmark.points=1000000 for a full-scale run
+    private static final int POINTS = Integer.getInteger("benchmark.points", 1_000);
+
+    @Test
+    void sameSeedGivesSameData() throws IOException {
+        assertEquals(sql(new SyntheticDataset(7).users(50).points(2_500)), sql(new SyntheticDataset(7).users(50).points(2_500)));
+        assertNotEquals(sql(new SyntheticDataset(7).users(50).points(2_500)), sql(new SyntheticDataset(8).users(50).points(2_500)));
+    }
+
+    @Test
+    void pointsLookLikeAntananarivoWorkSites() {
+        SyntheticDataset dataset = new SyntheticDataset(1).users(20).points(5_000).factories(5);
+        for (int i = 0; i < dataset.pointCount(); i++) {
+            Point point = dataset.point(i);
+            assertEquals(47.5, point.getCoordinates().getX(), 0.5);
+            assertEquals(-18.9, point.getCoordinates().getY(), 0.5);
+            assertTrue(point.getUser().getId() > 1_000_000 && point.getUser().getId() <= 1_000_020);
+
+            List<PointHistoric> history = dataset.history(point);
+            assertEquals("nouveau", history.get(0).getPointState().getLabel());
+            for (int s = 1; s < history.size(); s++) {
+                assertEquals(history.get(s - 1).getPointState().getId() + 1, history.get(s).getPointState().getId().intValue());
+                assertTrue(history.get(s).getDate().isAfter(history.get(s - 1).getDate()));
+            }
+            PointHistoric last = history.get(history.size() - 1);
+            assertEquals(last.getPointState().getId(), point.getPointState().getId());
+            assertEquals(last.getDate(), point.getUpdatedAt());
+
+            Set<Integer> factoryIds = new HashSet<>();
+            for (Factory factory : point.getFactories()) {
+                assertTrue(factoryIds.add(factory.getId()), "a factory is assigned once per point");
+                assertTrue(factory.getId() > 1_000_000 && factory.getId() <= 1_000_005);
+            }
+        }
+    }
+
+    @Test
+    void sqlIsWrittenInThousandRowStatements() throws IOException {
+        String sql = sql(new SyntheticDataset(3).users(100).points(2_500));
+        assertEquals(3, count(sql, "INSERT INTO point ("));
+        assertEquals(1, count(sql, "INSERT INTO user_ ("));
+        assertTrue(sql.indexOf("INSERT INTO user_ (") < sql.indexOf("INSERT INTO point ("));
+        assertTrue(sql.lastIndexOf("INSERT INTO point (") < sql.indexOf("INSERT INTO point_historic ("));
+        assertFalse(sql.contains("'null'"));
+        assertTrue(sql.endsWith("REFRESH MATERIALIZED VIEW point_summary;\n"));
+    }
+
+    /**
+     * Firestore op budget of the remote side of a point sync at POINTS points: a change that adds calls per point
+     * (instead of per batch or chunk) fails here before it reaches a release.
+     */
+    @Test
+    void remoteSyncOpsStayWithinBudget() {
+        SyntheticDataset dataset = new SyntheticDataset(42).users(Math.max(1, POINTS / 10)).points(POINTS);
+        InMemoryDocumentStore memory = new InMemoryDocumentStore();
+        dataset.seedRemote(memory, new InMemoryUserAccounts());
+        CountingDocumentStore store = new CountingDocumentStore(memory);
+        FirebasePointRepository repository = new FirebasePointRepository(store);
+
+        List<ContentHash.Stamp> stamps = repository.findContentStamps();
+        List<String> fbIds = stamps.stream().map(ContentHash.Stamp::documentId).toList();
+        int[] read = {0};
+        repository.forEachByFbIds(fbIds, FirestoreReader.DEFAULT_CHUNK_SIZE, FirestoreReader.DEFAULT_MAX_IN_FLIGHT, point -> read[0]++);
+        List<Point> local = new ArrayList<>();
+        for (int i = 0; i < dataset.pointCount(); i++) {
+            Point point = dataset.point(i);
+            if (point.getFbId() == null) local.add(point);
+        }
+        Map<String, String> failed = repository.saveAll(local, Set.of(), 4);
+        CountingDocumentStore.Counts counts = store.counts();
+
+        assertTrue(failed.isEmpty());
+        assertEquals(stamps.size(), read[0]);
+        long expectedCalls = 1
+            + ceil(stamps.size(), FirestoreReader.DEFAULT_CHUNK_SIZE)
+            + ceil(local.size(), FirestoreBatchWriter.MAX_BATCH_SIZE);
+        assertEquals(expectedCalls, counts.calls());
+        assertEquals(2L * stamps.size(), counts.documentsRead());
+        assertEquals(local.size(), counts.documentsWritten());
+    }
+
+    private static long ceil(long n, long size) {
+        return (n + size - 1) / size;
+    }
+
+    private static String sql(SyntheticDataset dataset) throws IOException {
+        StringWriter out = new StringWriter();
+        dataset.writeSql(out);
+        return out.toString();
+    }
+
+    private static int count(String text, String needle) {
+        int count = 0;
+        for (int at = text.indexOf(needle); at >= 0; at = text.indexOf(needle, at + 1)) count++;
+        return count;
+    }
+}
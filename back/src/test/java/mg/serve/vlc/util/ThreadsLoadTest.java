@@ -0,0 +1,75 @@
+package mg.serve.vlc.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreadsLoadTest {
+
+    private static final int REQUESTS = 2_000;
+    private static final int TOMCAT_MAX_THREADS = 200; // server.tomcat.threads.max default
+    private static final long ROUND_TRIP_MS = 50;
+
+    record Result(long elapsedMs, int maxInFlight) {}
+
+    /**
+     * Load test: REQUESTS concurrent Firestore-bound requests, each blocked ROUND_TRIP_MS on the network and then
+     * briefly holding a shared lock (as WorkDelayAggregator does), served by Tomcat's fixed pool of platform
+     * threads versus one virtual thread per request. Tagged "load": timing-sensitive, so not part of the default
+     * build (see test.excludedGroups in the pom).
+     */
+    @Test
+    @Tag("load")
+    void virtualThreadsServeMoreConcurrentBlockingRequests() throws Exception {
+        Result platform;
+        try (ExecutorService pool = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS, Threads.factory("load-platform", false))) {
+            platform = serve(pool);
+        }
+        Result virtual;
+        try (ExecutorService pool = Executors.newThreadPerTaskExecutor(Threads.factory("load-virtual", true))) {
+            virtual = serve(pool);
+        }
+        assertTrue(platform.maxInFlight() <= TOMCAT_MAX_THREADS);
+        assertTrue(virtual.maxInFlight() > TOMCAT_MAX_THREADS * 2, "virtual threads should not be capped by the pool size");
+        assertTrue(virtual.elapsedMs() * 3 < platform.elapsedMs(), "virtual threads should serve the burst at least 3x faster");
+    }
+
+    private Result serve(ExecutorService pool) throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ReentrantLock shared = new ReentrantLock();
+        int[] counter = {0};
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(ROUND_TRIP_MS); // Firestore / Firebase Auth round trip
+                inFlight.decrementAndGet();
+                shared.lock();
+                try {
+                    counter[0]++;
+                } finally {
+                    shared.unlock();
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        assertEquals(REQUESTS, counter[0]);
+        return new Result(elapsedMs, maxInFlight.get());
+    }
+}
@@ -137,16 +137,23 @@ const MapPage: React.FC = () => {
   const fetchPoints = async () => {
     setError(null);
     try {
-      const res = await fetch(`${backendURL}/points`);
-      if (!res.ok) {
-        const text = await res.text();
-        throw new Error(`HTTP ${res.status}: ${text}`);
-      }
-      const json = await res.json();
-      const payload = json && (json.payload ?? json.data ?? json);
-      if (!Array.isArray(payload)) {
-        throw new Error('Unexpected points response format');
-      }
+      // GET /points is paginated: follow the X-Next-After-Id cursor until the last page
+      const payload: any[] = [];
+      let afterId: string | null = null;
+      do {
+        const res = await fetch(`${backendURL}/points${afterId ? `?after_id=${afterId}` : ''}`);
+        if (!res.ok) {
+          const text = await res.text();
+          throw new Error(`HTTP ${res.status}: ${text}`);
+        }
+        const json = await res.json();
+        const page = json && (json.payload ?? json.data ?? json);
+        if (!Array.isArray(page)) {
+          throw new Error('Unexpected points response format');
+        }
+        payload.push(...page);
+        afterId = res.headers.get('X-Next-After-Id');
+      } while (afterId);
 
       const mapped: MapPoint[] = payload
         .map((dto: any) => {
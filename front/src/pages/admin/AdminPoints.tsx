@@ -32,14 +32,20 @@ export default function AdminPoints() {
   const load = async () => {
     try {
       setLoading(true);
-      const res = await fetch(`${backendURL}/points`);
-      const data = await res.json();
-      if (data && data.data) {
-        setPoints(data.data);
-        console.log(data);
-      } else {
-        setError('Invalid response');
-      }
+      // GET /points is paginated: follow the X-Next-After-Id cursor until the last page
+      const all: any[] = [];
+      let afterId: string | null = null;
+      do {
+        const res = await fetch(`${backendURL}/points${afterId ? `?after_id=${afterId}` : ''}`);
+        const data = await res.json();
+        if (!data || !data.data) {
+          setError('Invalid response');
+          return;
+        }
+        all.push(...data.data);
+        afterId = res.headers.get('X-Next-After-Id');
+      } while (afterId);
+      setPoints(all);
     } catch (e: any) {
       setError(e.message || String(e));
     } finally {